@@ -0,0 +1,50 @@
+package com.trading.bot.benchmarks;
+
+import com.trading.bot.logic.ExchangeTrader;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ExchangeTrader#loadBarSeries(KucoinKline)} per kline, past the rolling window size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBarSeriesBenchmark {
+    private static final int KLINES = 1728;
+
+    private final List<KucoinKline> klines = RecordedKlines.load(KLINES);
+    private ExchangeTrader trader;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        trader = new ExchangeTrader(null, RecordedKlines.PAIR, BigDecimal.ONE);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KLINES)
+    public ExchangeTrader loadBarSeries() {
+        for (KucoinKline kline : klines) {
+            trader.loadBarSeries(kline);
+        }
+        return trader;
+    }
+}
@@ -0,0 +1,71 @@
+package com.trading.bot.benchmarks;
+
+import com.trading.bot.simulation.FillModel;
+import com.trading.bot.simulation.MatchingEngine;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.knowm.xchange.dto.Order.OrderType.ASK;
+import static org.knowm.xchange.dto.Order.OrderType.BID;
+
+/**
+ * Five recorded days of bars against a grid of resting limit orders on both sides, every fill replaced
+ * by an order on the other side one grid step away.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MatchingEngineBenchmark {
+    private static final int KLINES = 1440;
+    private static final BigDecimal STEP = new BigDecimal("0.01");
+
+    @Param({"10", "10000"})
+    public int levels;
+
+    private final List<KucoinKline> klines = RecordedKlines.load(KLINES);
+    private MatchingEngine engine;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        engine = new MatchingEngine(FillModel.builder().build(), fill -> {
+            if (fill.getSide() == BID) {
+                engine.placeLimit(fill.getPair(), ASK, fill.getAmount(), fill.getOrderPrice().add(STEP));
+            } else {
+                engine.placeLimit(fill.getPair(), BID, fill.getAmount(), fill.getOrderPrice().subtract(STEP));
+            }
+        });
+        final BigDecimal open = klines.get(0).getOpen();
+        for (int level = 1; level <= levels / 2; level++) {
+            engine.placeLimit(RecordedKlines.PAIR, BID, BigDecimal.ONE, open.subtract(STEP.multiply(BigDecimal.valueOf(level))));
+            engine.placeLimit(RecordedKlines.PAIR, ASK, BigDecimal.ONE, open.add(STEP.multiply(BigDecimal.valueOf(level))));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KLINES)
+    public MatchingEngine onBar() {
+        for (KucoinKline kline : klines) {
+            engine.onBar(kline);
+        }
+        return engine;
+    }
+}
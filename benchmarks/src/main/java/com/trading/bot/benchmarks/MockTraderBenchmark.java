@@ -0,0 +1,54 @@
+package com.trading.bot.benchmarks;
+
+import com.trading.bot.logic.MockTrader;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link MockTrader} per kline loop of the stop order backtest over five recorded days.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MockTraderBenchmark {
+    private static final int WARM_UP = 288;
+    private static final int KLINES = 1440;
+
+    private final List<KucoinKline> klines = RecordedKlines.load(WARM_UP + KLINES);
+    private MockTrader trader;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        trader = new MockTrader(RecordedKlines.PAIR, BigDecimal.ONE);
+        trader.walletUSDT = BigDecimal.valueOf(1800);
+        klines.subList(0, WARM_UP).forEach(trader::loadBarSeries);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KLINES)
+    public MockTrader next() throws IOException {
+        for (KucoinKline kline : klines.subList(WARM_UP, WARM_UP + KLINES)) {
+            trader.next(kline);
+        }
+        return trader;
+    }
+}
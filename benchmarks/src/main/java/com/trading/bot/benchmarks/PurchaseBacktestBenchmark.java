@@ -0,0 +1,72 @@
+package com.trading.bot.benchmarks;
+
+import com.trading.bot.backtest.BacktestResultCache;
+import com.trading.bot.backtest.BacktestRunner;
+import com.trading.bot.controllers.PurchaseController;
+import com.trading.bot.repository.KlinePrefetcher;
+import com.trading.bot.repository.KlineRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The full {@link PurchaseController} day loop over five recorded days served from a warm kline store,
+ * with the bar by bar ta4j engine, the columnar one and the fixed-point one. The result cache is off,
+ * so every call runs the simulation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PurchaseBacktestBenchmark {
+    private static final LocalDateTime START = LocalDateTime.parse("2023-11-02T00:00:00");
+    private static final LocalDateTime END = LocalDateTime.parse("2023-11-07T00:00:00");
+
+    @Param({"BAR", "COLUMNAR", "FIXED_POINT"})
+    public BacktestRunner.Engine engine;
+
+    private KlineRepository klineRepository;
+    private KlinePrefetcher klinePrefetcher;
+    private PurchaseController controller;
+
+    @Setup
+    public void setUp() throws IOException {
+        final Path storePath = Files.createTempDirectory("kline-store");
+        final RecordedKlines source = new RecordedKlines();
+        klineRepository = new KlineRepository(source, storePath.toString());
+        klinePrefetcher = new KlinePrefetcher(klineRepository, source, 1, 1);
+        controller = new PurchaseController(new BacktestRunner(klinePrefetcher, BigDecimal.ONE),
+                new BacktestResultCache(klineRepository, 0, ""));
+        checkPredict();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        klinePrefetcher.shutdown();
+        klineRepository.close();
+    }
+
+    @Benchmark
+    public List<String> checkPredict() throws IOException {
+        return controller.checkPredict("SOL", "USDT", START, END, BigDecimal.valueOf(1800), BigDecimal.valueOf(95), engine);
+    }
+}
@@ -0,0 +1,79 @@
+package com.trading.bot.benchmarks;
+
+import com.trading.bot.repository.KlineSource;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.kucoin.dto.KlineIntervalType;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.knowm.xchange.kucoin.dto.KlineIntervalType.min5;
+
+/**
+ * Recorded SOL/USDT 5 minute klines shared with the tests, starting 2023-11-01T00:00:00Z.
+ */
+public final class RecordedKlines implements KlineSource {
+    public static final CurrencyPair PAIR = new CurrencyPair("SOL", "USDT");
+    private static final String RESOURCE = "/klines/SOL-USDT-min5.csv";
+
+    private final List<KucoinKline> klines = load();
+
+    @Override
+    public List<KucoinKline> getKlines(CurrencyPair pair, long startTime, long endTime, KlineIntervalType interval) {
+        final List<KucoinKline> result = new ArrayList<>();
+        for (KucoinKline kline : klines) {
+            if (kline.getTime() >= startTime && kline.getTime() < endTime) {
+                result.add(kline);
+            }
+        }
+        return result;
+    }
+
+    public static List<KucoinKline> load() {
+        final List<KucoinKline> klines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                RecordedKlines.class.getResourceAsStream(RESOURCE), StandardCharsets.UTF_8))) {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                klines.add(new KucoinKline(PAIR, min5, line.split(",")));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return klines;
+    }
+
+    /**
+     * Repeats the recording until {@code count} klines, every repetition continues in time and price
+     * where the previous one ended.
+     */
+    public static List<KucoinKline> load(int count) {
+        final List<KucoinKline> recorded = load();
+        final long span = recorded.get(recorded.size() - 1).getTime() + min5.getSeconds() - recorded.get(0).getTime();
+        final double drift = recorded.get(recorded.size() - 1).getClose().doubleValue() / recorded.get(0).getOpen().doubleValue();
+        final List<KucoinKline> klines = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            final int repetition = i / recorded.size();
+            final KucoinKline kline = recorded.get(i % recorded.size());
+            final BigDecimal scale = BigDecimal.valueOf(Math.pow(drift, repetition));
+            klines.add(new KucoinKline(PAIR, min5, new Object[]{
+                    kline.getTime() + repetition * span,
+                    kline.getOpen().multiply(scale),
+                    kline.getClose().multiply(scale),
+                    kline.getHigh().multiply(scale),
+                    kline.getLow().multiply(scale),
+                    kline.getVolume(),
+                    kline.getAmount()}));
+        }
+        return klines;
+    }
+}
@@ -0,0 +1,104 @@
+package com.trading.bot.benchmarks;
+
+import com.trading.bot.configuration.MovingStrategy;
+import com.trading.bot.configuration.StrategyRegistry;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseBarSeries;
+import org.ta4j.core.Strategy;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MovingStrategy} construction and rule evaluation at growing series lengths, and eight signal variants
+ * built separately or through one {@link StrategyRegistry}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StrategyBenchmark {
+
+    private static final int[] SIGNAL_BAR_COUNTS = {5, 6, 7, 8, 9, 10, 11, 12};
+
+    @Param({"288", "2880", "28800"})
+    public int barCount;
+
+    private BarSeries series;
+    private Strategy warmStrategy;
+
+    @Setup
+    public void setUp() {
+        series = new BaseBarSeries();
+        for (KucoinKline kline : RecordedKlines.load(barCount)) {
+            series.addBar(Duration.ofMinutes(5L),
+                    ZonedDateTime.ofInstant(Instant.ofEpochSecond(kline.getTime()), ZoneOffset.UTC),
+                    kline.getOpen(),
+                    kline.getHigh(),
+                    kline.getLow(),
+                    kline.getClose(),
+                    kline.getVolume());
+        }
+        warmStrategy = MovingStrategy.buildStrategy(series);
+        warmStrategy.shouldEnter(series.getEndIndex());
+    }
+
+    @Benchmark
+    public Strategy buildStrategy() {
+        return MovingStrategy.buildStrategy(series);
+    }
+
+    /** Fresh indicators, the whole chain is computed up to the last bar. */
+    @Benchmark
+    public void shouldEnterAndExitCold(Blackhole blackhole) {
+        final Strategy strategy = MovingStrategy.buildStrategy(series);
+        blackhole.consume(strategy.shouldEnter(series.getEndIndex()));
+        blackhole.consume(strategy.shouldExit(series.getEndIndex()));
+    }
+
+    /** Fresh indicators for every variant. */
+    @Benchmark
+    public void variantsSeparate(Blackhole blackhole) {
+        for (int signal : SIGNAL_BAR_COUNTS) {
+            final Strategy strategy = MovingStrategy.buildStrategy(series, MovingStrategy.SMA_BAR_COUNT,
+                    MovingStrategy.MACD_SHORT_BAR_COUNT, MovingStrategy.MACD_LONG_BAR_COUNT, signal);
+            blackhole.consume(strategy.shouldEnter(series.getEndIndex()));
+        }
+    }
+
+    /** Fresh indicators shared by the variants, the SMA and MACD are computed once. */
+    @Benchmark
+    public void variantsShared(Blackhole blackhole) {
+        final StrategyRegistry registry = new StrategyRegistry(series);
+        for (int signal : SIGNAL_BAR_COUNTS) {
+            final Strategy strategy = registry.register(MovingStrategy.SMA_BAR_COUNT,
+                    MovingStrategy.MACD_SHORT_BAR_COUNT, MovingStrategy.MACD_LONG_BAR_COUNT, signal);
+            blackhole.consume(strategy.shouldEnter(series.getEndIndex()));
+        }
+    }
+
+    /** Cached indicators, as on a live tick. */
+    @Benchmark
+    public void shouldEnterAndExitCached(Blackhole blackhole) {
+        blackhole.consume(warmStrategy.shouldEnter(series.getEndIndex()));
+        blackhole.consume(warmStrategy.shouldExit(series.getEndIndex()));
+    }
+}
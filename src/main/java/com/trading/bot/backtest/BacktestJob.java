@@ -0,0 +1,134 @@
+package com.trading.bot.backtest;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+
+/**
+ * One submitted backtest. The job is the report of its run, it counts the days for the progress
+ * and stops the run at the next trade or day once it is canceled.
+ */
+public class BacktestJob implements TradeReport {
+    public enum State { QUEUED, RUNNING, DONE, FAILED, CANCELED }
+
+    private final String id;
+    private final String type;
+    private final long days;
+    private final long submittedAt = System.currentTimeMillis();
+    private final TextTradeReport report = new TextTradeReport();
+    private volatile State state = State.QUEUED;
+    private volatile boolean canceled;
+    private volatile long daysDone;
+    private volatile long trades;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile String error;
+    private volatile Future<?> future;
+
+    BacktestJob(String id, String type, long days) {
+        this.id = id;
+        this.type = type;
+        this.days = days;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isFinished() {
+        return state == State.DONE || state == State.FAILED || state == State.CANCELED;
+    }
+
+    public Status getStatus() {
+        return Status.builder()
+                .id(id)
+                .type(type)
+                .state(state)
+                .days(days)
+                .daysDone(daysDone)
+                .trades(trades)
+                .submittedAt(submittedAt)
+                .startedAt(startedAt)
+                .finishedAt(finishedAt)
+                .error(error)
+                .build();
+    }
+
+    /**
+     * Report lines produced so far, the same lines the buffered endpoints return.
+     */
+    public synchronized List<String> getResults() {
+        return new ArrayList<>(report.getLines());
+    }
+
+    @Override
+    public synchronized void trade(long entryTime, long exitTime, double entryPrice, double exitPrice,
+                                   double walletBefore, double walletAfter, double profit) {
+        checkCanceled();
+        report.trade(entryTime, exitTime, entryPrice, exitPrice, walletBefore, walletAfter, profit);
+        trades++;
+    }
+
+    @Override
+    public synchronized void day(int day, long dayStart, double walletUSDT) {
+        checkCanceled();
+        report.day(day, dayStart, walletUSDT);
+        daysDone = day + 1L;
+    }
+
+    void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    void started() {
+        startedAt = System.currentTimeMillis();
+        state = State.RUNNING;
+    }
+
+    void finished(State state, String error) {
+        this.error = error;
+        this.finishedAt = System.currentTimeMillis();
+        this.state = state;
+    }
+
+    /**
+     * A queued job never runs and is left for the service to purge from the queue, a running one stops cooperatively. It is not interrupted,
+     * an interrupt would close the kline store channels the run is reading.
+     */
+    void cancel() {
+        canceled = true;
+        final Future<?> queued = future;
+        if (queued != null && queued.cancel(false)) {
+            finished(State.CANCELED, null);
+        }
+    }
+
+    private void checkCanceled() {
+        if (canceled) {
+            throw new CancellationException("Backtest " + id + " canceled");
+        }
+    }
+
+    @Data
+    @Builder
+    public static class Status {
+        private String id;
+        private String type;
+        private State state;
+        private long days;
+        private long daysDone;
+        private long trades;
+        private long submittedAt;
+        private long startedAt;
+        private long finishedAt;
+        private String error;
+    }
+}
@@ -0,0 +1,129 @@
+package com.trading.bot.backtest;
+
+import org.knowm.xchange.currency.CurrencyPair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs submitted backtests on a bounded pool of {@code backtest.threads} workers with up to
+ * {@code backtest.queue-capacity} jobs waiting. Finished jobs are kept for polling until
+ * {@code backtest.retained-jobs} newer jobs have finished.
+ */
+@Service
+public class BacktestJobService {
+    protected final Logger logger = LoggerFactory.getLogger(getClass().getName());
+    private final BacktestRunner backtestRunner;
+    private final ThreadPoolExecutor executor;
+    private final int retainedJobs;
+    private final Map<String, BacktestJob> jobs = new LinkedHashMap<>();
+
+    public BacktestJobService(BacktestRunner backtestRunner,
+                              @Value("${backtest.threads:4}") int threads,
+                              @Value("${backtest.queue-capacity:32}") int queueCapacity,
+                              @Value("${backtest.retained-jobs:100}") int retainedJobs) {
+        this.backtestRunner = backtestRunner;
+        this.retainedJobs = retainedJobs;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("backtest-"));
+    }
+
+    public BacktestJob submitPurchase(CurrencyPair currencyPair, LocalDateTime startDate, LocalDateTime endDate,
+                                      BigDecimal walletUSDT, BigDecimal stopLoss) {
+        return submit("purchase", ChronoUnit.DAYS.between(startDate, endDate),
+                job -> backtestRunner.purchase(currencyPair, startDate, endDate, walletUSDT, stopLoss, job));
+    }
+
+    public BacktestJob submitStopOrder(CurrencyPair currencyPair, LocalDateTime startDate, LocalDateTime endDate,
+                                       BigDecimal walletUSDT) {
+        return submit("stop-order", ChronoUnit.DAYS.between(startDate, endDate),
+                job -> backtestRunner.stopOrder(currencyPair, startDate, endDate, walletUSDT, job));
+    }
+
+    public synchronized BacktestJob getJob(String id) {
+        return jobs.get(id);
+    }
+
+    public synchronized List<BacktestJob> getJobs() {
+        return new ArrayList<>(jobs.values());
+    }
+
+    /**
+     * Cancels the job, a queued one is removed from the queue and no longer counts against its capacity.
+     */
+    public BacktestJob cancel(String id) {
+        final BacktestJob job = getJob(id);
+        if (job != null) {
+            job.cancel();
+            executor.purge();
+        }
+        return job;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        getJobs().forEach(BacktestJob::cancel);
+        executor.shutdown();
+    }
+
+    /**
+     * @throws java.util.concurrent.RejectedExecutionException when the queue is full
+     */
+    private synchronized BacktestJob submit(String type, long days, Backtest backtest) {
+        final BacktestJob job = new BacktestJob(UUID.randomUUID().toString(), type, days);
+        job.setFuture(executor.submit(() -> run(job, backtest)));
+        jobs.put(job.getId(), job);
+        evictFinished();
+        return job;
+    }
+
+    private void run(BacktestJob job, Backtest backtest) {
+        job.started();
+        try {
+            backtest.run(job);
+            job.finished(BacktestJob.State.DONE, null);
+        } catch (CancellationException e) {
+            job.finished(BacktestJob.State.CANCELED, null);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Backtest {} failed", job.getId(), e);
+            job.finished(BacktestJob.State.FAILED, e.toString());
+        }
+    }
+
+    private void evictFinished() {
+        int finished = 0;
+        for (BacktestJob job : jobs.values()) {
+            if (job.isFinished()) {
+                finished++;
+            }
+        }
+        for (Iterator<BacktestJob> iterator = jobs.values().iterator(); finished > retainedJobs && iterator.hasNext(); ) {
+            if (iterator.next().isFinished()) {
+                iterator.remove();
+                finished--;
+            }
+        }
+    }
+
+    private interface Backtest {
+        void run(BacktestJob job) throws IOException;
+    }
+}
@@ -0,0 +1,20 @@
+package com.trading.bot.backtest;
+
+import lombok.Builder;
+import lombok.Data;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.kucoin.dto.KlineIntervalType;
+
+/**
+ * Everything a backtest result depends on: its parameters and configuration in canonical form,
+ * and the kline range it reads.
+ */
+@Data
+@Builder
+public class BacktestKey {
+    private String parameters;
+    private CurrencyPair pair;
+    private KlineIntervalType interval;
+    private long startTime;
+    private long endTime;
+}
@@ -0,0 +1,259 @@
+package com.trading.bot.backtest;
+
+import com.trading.bot.repository.KlineRepository;
+import lombok.Builder;
+import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Results of finished backtests, addressed by a hash of their {@link BacktestKey} parameters and of the stored
+ * klines they read. A repeated backtest replays the recorded report instead of running again, a backtest whose
+ * klines changed since gets another address and runs. Recordings are kept in memory up to
+ * {@code backtest.cache.max-bytes}, least recently used first out, and also written under
+ * {@code backtest.cache.path} when it is set. Ranges that are not completely stored are never cached.
+ */
+@Service
+public class BacktestResultCache {
+    private static final int FILE_MAGIC = 0x42524331;
+    private static final String FILE_SUFFIX = ".bin";
+
+    protected final Logger logger = LoggerFactory.getLogger(getClass().getName());
+    private final KlineRepository klineRepository;
+    private final long maxBytes;
+    private final Path directory;
+    private final Map<String, RecordedTradeReport> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long diskHits;
+    private long misses;
+    private long uncacheable;
+    private long evictions;
+
+    public BacktestResultCache(KlineRepository klineRepository,
+                               @Value("${backtest.cache.max-bytes:67108864}") long maxBytes,
+                               @Value("${backtest.cache.path:}") String path) throws IOException {
+        this.klineRepository = klineRepository;
+        this.maxBytes = maxBytes;
+        this.directory = path.isEmpty() ? null : Files.createDirectories(Paths.get(path));
+    }
+
+    @FunctionalInterface
+    public interface Backtest {
+        void run(TradeReport report) throws IOException;
+    }
+
+    /**
+     * Replays the cached result of {@code key} to {@code report}, or runs {@code backtest} with it
+     * and caches the result once it completed.
+     */
+    public void run(BacktestKey key, TradeReport report, Backtest backtest) throws IOException {
+        if (maxBytes <= 0 && directory == null) {
+            backtest.run(report);
+            return;
+        }
+        final long fingerprint = fingerprint(key);
+        final RecordedTradeReport cached = get(fingerprint < 0 ? null : id(key, fingerprint));
+        if (cached != null) {
+            cached.replay(report);
+            return;
+        }
+
+        final RecordedTradeReport recording = new RecordedTradeReport();
+        backtest.run(new TeeTradeReport(report, recording));
+        recording.trim();
+
+        final long completed = fingerprint(key);
+        if (completed < 0) {
+            synchronized (this) {
+                uncacheable++;
+            }
+            return;
+        }
+        put(id(key, completed), recording);
+    }
+
+    /**
+     * Drops every cached result, in memory and on disk.
+     */
+    public synchronized void invalidate() throws IOException {
+        entries.clear();
+        bytes = 0;
+        if (directory != null) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+                for (Path file : files) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    public synchronized Statistics getStatistics() {
+        final long lookups = hits + diskHits + misses;
+        return Statistics.builder()
+                .hits(hits)
+                .diskHits(diskHits)
+                .misses(misses)
+                .uncacheable(uncacheable)
+                .evictions(evictions)
+                .entries(entries.size())
+                .bytes(bytes)
+                .maxBytes(maxBytes)
+                .hitRate(lookups == 0 ? 0 : (double) (hits + diskHits) / lookups)
+                .build();
+    }
+
+    private long fingerprint(BacktestKey key) throws IOException {
+        return klineRepository.fingerprint(key.getPair(), key.getStartTime(), key.getEndTime(), key.getInterval());
+    }
+
+    /**
+     * @param id null when the range is not completely stored yet
+     */
+    private RecordedTradeReport get(String id) throws IOException {
+        synchronized (this) {
+            final RecordedTradeReport entry = id == null ? null : entries.get(id);
+            if (entry != null) {
+                hits++;
+                return entry;
+            }
+        }
+        final RecordedTradeReport stored = id == null || directory == null ? null : readFile(id);
+        synchronized (this) {
+            if (stored == null) {
+                misses++;
+                return null;
+            }
+            diskHits++;
+            keep(id, stored);
+            return stored;
+        }
+    }
+
+    private void put(String id, RecordedTradeReport recording) throws IOException {
+        synchronized (this) {
+            keep(id, recording);
+        }
+        if (directory != null) {
+            writeFile(id, recording);
+        }
+    }
+
+    private void keep(String id, RecordedTradeReport recording) {
+        if (recording.getSizeBytes() > maxBytes) {
+            return;
+        }
+        final RecordedTradeReport previous = entries.put(id, recording);
+        if (previous != null) {
+            bytes -= previous.getSizeBytes();
+        }
+        bytes += recording.getSizeBytes();
+
+        final Iterator<RecordedTradeReport> eldest = entries.values().iterator();
+        while (bytes > maxBytes) {
+            bytes -= eldest.next().getSizeBytes();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private RecordedTradeReport readFile(String id) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file(id))))) {
+            if (in.readInt() != FILE_MAGIC) {
+                logger.warn("Ignored cached backtest {} of another format", id);
+                return null;
+            }
+            return RecordedTradeReport.read(in);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private void writeFile(String id, RecordedTradeReport recording) throws IOException {
+        final Path temp = Files.createTempFile(directory, id, ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(FILE_MAGIC);
+            recording.write(out);
+        }
+        Files.move(temp, file(id), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path file(String id) {
+        return directory.resolve(id + FILE_SUFFIX);
+    }
+
+    private static String id(BacktestKey key, long fingerprint) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(key.getParameters().getBytes(StandardCharsets.UTF_8));
+            digest.update((" " + key.getInterval() + " " + key.getStartTime() + " " + key.getEndTime() + " " + fingerprint)
+                    .getBytes(StandardCharsets.UTF_8));
+            final StringBuilder id = new StringBuilder(64);
+            for (byte b : digest.digest()) {
+                id.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return id.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class TeeTradeReport implements TradeReport {
+        private final TradeReport first;
+        private final TradeReport second;
+
+        TeeTradeReport(TradeReport first, TradeReport second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public void trade(long entryTime, long exitTime, double entryPrice, double exitPrice,
+                          double walletBefore, double walletAfter, double profit) {
+            first.trade(entryTime, exitTime, entryPrice, exitPrice, walletBefore, walletAfter, profit);
+            second.trade(entryTime, exitTime, entryPrice, exitPrice, walletBefore, walletAfter, profit);
+        }
+
+        @Override
+        public void day(int day, long dayStart, double walletUSDT) {
+            first.day(day, dayStart, walletUSDT);
+            second.day(day, dayStart, walletUSDT);
+        }
+    }
+
+    @Data
+    @Builder
+    public static class Statistics {
+        private long hits;
+        /** Hits read back from {@code backtest.cache.path}. */
+        private long diskHits;
+        private long misses;
+        /** Runs over ranges that were not completely stored. */
+        private long uncacheable;
+        private long evictions;
+        private int entries;
+        private long bytes;
+        private long maxBytes;
+        private double hitRate;
+    }
+}
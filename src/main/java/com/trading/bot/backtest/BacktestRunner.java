@@ -0,0 +1,434 @@
+package com.trading.bot.backtest;
+
+import com.trading.bot.configuration.MovingStrategy;
+import com.trading.bot.indicator.MacdSignalColumns;
+import com.trading.bot.logic.ExchangeTrader;
+import com.trading.bot.logic.MockTrader;
+import com.trading.bot.repository.KlineColumns;
+import com.trading.bot.repository.KlinePrefetcher;
+import com.trading.bot.simulation.FillModel;
+import com.trading.bot.simulation.FixedPoint;
+import com.trading.bot.simulation.PairPrecision;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.kucoin.dto.KlineIntervalType;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import org.ta4j.core.*;
+import org.ta4j.core.num.DecimalNum;
+import org.ta4j.core.num.Num;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.*;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.knowm.xchange.kucoin.dto.KlineIntervalType.min15;
+import static org.knowm.xchange.kucoin.dto.KlineIntervalType.min5;
+
+/**
+ * The purchase and stop order backtests. Every run builds its own series and simulator,
+ * so runs share nothing but the kline repository and can run concurrently. The klines of the
+ * next days are prefetched while a day is simulated. Amounts are bought with the pair's {@link PairPrecision}.
+ */
+@Service
+public class BacktestRunner {
+    private final KlinePrefetcher klinePrefetcher;
+    private final BigDecimal tradeLimit;
+    private final Function<CurrencyPair, PairPrecision> precisions;
+
+    public BacktestRunner(KlinePrefetcher klinePrefetcher, BigDecimal tradeLimit) {
+        this(klinePrefetcher, tradeLimit, pair -> PairPrecision.builder().build());
+    }
+
+    @Autowired
+    public BacktestRunner(KlinePrefetcher klinePrefetcher,
+                          @Value("${trader.buylimit:1}") BigDecimal tradeLimit,
+                          Environment environment) {
+        this(klinePrefetcher, tradeLimit, pair -> PairPrecision.of(environment, pair));
+    }
+
+    private BacktestRunner(KlinePrefetcher klinePrefetcher, BigDecimal tradeLimit,
+                           Function<CurrencyPair, PairPrecision> precisions) {
+        this.klinePrefetcher = klinePrefetcher;
+        this.tradeLimit = tradeLimit;
+        this.precisions = precisions;
+    }
+
+    public enum Engine {
+        /** ta4j strategy evaluated bar by bar on a {@code BarSeries}. */
+        BAR,
+        /**
+         * {@link MacdSignalColumns} computed a day at a time over closes read straight from the store into
+         * {@link KlineColumns}, no object per bar. The same trades many times faster.
+         */
+        COLUMNAR,
+        /** The columnar rules with prices, amounts and balances in {@link FixedPoint} units. Reports the same as {@link #COLUMNAR}. */
+        FIXED_POINT
+    }
+
+    public void purchase(CurrencyPair currencyPair, LocalDateTime startDate, LocalDateTime endDate,
+                         BigDecimal walletUSDT, BigDecimal stopLoss, TradeReport report) throws IOException {
+        purchase(currencyPair, startDate, endDate, walletUSDT, stopLoss, Engine.COLUMNAR, report);
+    }
+
+    /**
+     * @throws IllegalArgumentException when {@code engine} cannot run with these parameters
+     */
+    public void checkPurchase(CurrencyPair currencyPair, BigDecimal walletUSDT, Engine engine) {
+        if (engine == Engine.FIXED_POINT) {
+            precisions.apply(currencyPair).checkFixedPoint(walletUSDT);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException when {@link #checkPurchase} fails
+     */
+    public void purchase(CurrencyPair currencyPair, LocalDateTime startDate, LocalDateTime endDate,
+                         BigDecimal walletUSDT, BigDecimal stopLoss, Engine engine, TradeReport report) throws IOException {
+        checkPurchase(currencyPair, walletUSDT, engine);
+        final PairPrecision precision = precisions.apply(currencyPair);
+        if (engine == Engine.BAR) {
+            purchaseBarByBar(currencyPair, startDate, endDate, walletUSDT, stopLoss, precision, report);
+        } else if (engine == Engine.COLUMNAR) {
+            purchaseColumnar(currencyPair, startDate, endDate, walletUSDT, stopLoss, precision, report);
+        } else {
+            purchaseFixedPoint(currencyPair, startDate, endDate, walletUSDT, stopLoss, precision, report);
+        }
+    }
+
+    /**
+     * Runs the backtest a day at a time, the series is bounded so memory stays flat over long ranges.
+     */
+    private void purchaseBarByBar(CurrencyPair currencyPair, LocalDateTime startDate, LocalDateTime endDate,
+                                  BigDecimal walletUSDT, BigDecimal stopLoss, PairPrecision precision,
+                                  TradeReport report) throws IOException {
+        final BarSeries barSeries = new BaseBarSeries();
+        barSeries.setMaximumBarCount(MovingStrategy.MAXIMUM_BAR_COUNT);
+        final Strategy movingMomentumStrategy = MovingStrategy.buildStrategy(barSeries);
+
+        long purchaseDate = 0;
+        BigDecimal walletUSDTBefore = BigDecimal.valueOf(0);
+        BigDecimal exitPrice = BigDecimal.valueOf(0);
+        BigDecimal walletBase = BigDecimal.valueOf(0);
+        try (KlinePrefetcher.Days days = open(currencyPair, min5, startDate, endDate)) {
+            List<KucoinKline> kucoinKlines = days.next();
+            kucoinKlines.forEach(kucoinKline -> loadBarSeries(barSeries, kucoinKline));
+
+            TradingRecord tradingRecord = new BaseTradingRecord();
+
+            for (int day = 0; day < ChronoUnit.DAYS.between(startDate, endDate); day++) {
+
+                kucoinKlines = days.next();
+                kucoinKlines.forEach(kucoinKline -> loadBarSeries(barSeries, kucoinKline));
+
+
+                for (int i = 0; i < kucoinKlines.size(); i++) {
+                    final int index = 288 + 288 * day + i;
+                    final BigDecimal closePrice = kucoinKlines.get(i).getClose();
+
+                    if (tradingRecord.isClosed() && movingMomentumStrategy.shouldEnter(index, tradingRecord)) {
+
+                        purchaseDate = kucoinKlines.get(i).getTime();
+                        walletUSDTBefore = walletUSDT;
+                        walletBase = walletUSDT.divide(closePrice, precision.getAmountScale(), RoundingMode.DOWN);
+                        walletUSDT = walletUSDT.subtract(walletBase.multiply(closePrice));
+
+                        tradingRecord.enter(index, DecimalNum.valueOf(closePrice), DecimalNum.valueOf(walletBase));
+                    }
+
+                    if (!tradingRecord.isClosed()
+                            && DecimalNum.valueOf(closePrice)
+                                .dividedBy(tradingRecord.getCurrentPosition().getEntry().getPricePerAsset())
+                                .isLessThan(DecimalNum.valueOf(stopLoss.divide(BigDecimal.valueOf(100), 3, RoundingMode.HALF_UP)))
+                            && (walletBase.compareTo(BigDecimal.valueOf(0)) > 0)) {
+
+                            walletUSDT = walletUSDT.add(walletBase.multiply(closePrice));
+                            walletBase = BigDecimal.valueOf(0);
+                            exitPrice = closePrice;
+                    }
+
+                    if (!tradingRecord.isClosed() && movingMomentumStrategy.shouldExit(index, tradingRecord)) {
+
+                        if (walletBase.compareTo(BigDecimal.valueOf(0)) > 0) {
+                            tradingRecord.exit(index, DecimalNum.valueOf(closePrice), tradingRecord.getCurrentPosition().getEntry().getAmount());
+                            walletUSDT = walletUSDT.add(walletBase.multiply(closePrice));
+                            walletBase = BigDecimal.valueOf(0);
+                            exitPrice = closePrice;
+                        } else {
+                            tradingRecord.exit(index, DecimalNum.valueOf(exitPrice), tradingRecord.getCurrentPosition().getEntry().getAmount());
+                        }
+
+                        final Position position = tradingRecord.getLastPosition();
+                        report.trade(purchaseDate,
+                                     kucoinKlines.get(i).getTime(),
+                                     position.getEntry().getPricePerAsset().doubleValue(),
+                                     position.getExit().getPricePerAsset().doubleValue(),
+                                     walletUSDTBefore.doubleValue(),
+                                     walletUSDT.doubleValue(),
+                                     position.getProfit().doubleValue());
+                    }
+                }
+                report.day(day, startDate.plusDays(day).toEpochSecond(ZoneOffset.UTC), walletUSDT.doubleValue());
+            }
+        }
+    }
+
+    /**
+     * The rules of {@link #purchaseBarByBar} over the columns of each day, read straight from the store into
+     * {@link KlineColumns}. Bar {@code i} of a day is the bar the bar by bar run evaluates at {@code 288 + 288 * day + i},
+     * which holds for the complete days of the store. Per bar only doubles are compared: the stop price is the exact
+     * {@code BigDecimal} product of the entry and the ratio, rounded to a double once per entry, and a close of the
+     * pair's precision is below it exactly when its double is. Amounts and balances are {@code BigDecimal} and only
+     * computed on entry and exit.
+     */
+    private void purchaseColumnar(CurrencyPair currencyPair, LocalDateTime startDate, LocalDateTime endDate,
+                                  BigDecimal walletUSDT, BigDecimal stopLoss, PairPrecision precision,
+                                  TradeReport report) throws IOException {
+        final MacdSignalColumns signals = new MacdSignalColumns();
+        final KlineColumns klines = new KlineColumns();
+        final BigDecimal stopLossRatio = stopLoss.divide(BigDecimal.valueOf(100), 3, RoundingMode.HALF_UP);
+
+        boolean inPosition = false;
+        long purchaseDate = 0;
+        BigDecimal walletUSDTBefore = BigDecimal.ZERO;
+        BigDecimal entryPrice = BigDecimal.ZERO;
+        BigDecimal entryAmount = BigDecimal.ZERO;
+        double stopPrice = 0;
+        BigDecimal exitPrice = BigDecimal.ZERO;
+        BigDecimal walletBase = BigDecimal.ZERO;
+        try (KlinePrefetcher.Days days = open(currencyPair, min5, startDate, endDate)) {
+            days.next(klines);
+            signals.compute(klines.getCloses(), klines.size());
+
+            for (int day = 0; day < ChronoUnit.DAYS.between(startDate, endDate); day++) {
+                days.next(klines);
+                signals.compute(klines.getCloses(), klines.size());
+
+                for (int i = 0; i < klines.size(); i++) {
+                    final double close = klines.getClose(i);
+
+                    if (!inPosition && signals.isEntry(i)) {
+                        final BigDecimal closePrice = BigDecimal.valueOf(close);
+                        purchaseDate = klines.getTime(i);
+                        walletUSDTBefore = walletUSDT;
+                        walletBase = walletUSDT.divide(closePrice, precision.getAmountScale(), RoundingMode.DOWN);
+                        walletUSDT = walletUSDT.subtract(walletBase.multiply(closePrice));
+
+                        inPosition = true;
+                        entryPrice = closePrice;
+                        entryAmount = walletBase;
+                        stopPrice = closePrice.multiply(stopLossRatio).doubleValue();
+                    }
+
+                    if (inPosition && close < stopPrice && walletBase.signum() > 0) {
+                        exitPrice = BigDecimal.valueOf(close);
+                        walletUSDT = walletUSDT.add(walletBase.multiply(exitPrice));
+                        walletBase = BigDecimal.ZERO;
+                    }
+
+                    if (inPosition && signals.isExit(i)) {
+                        if (walletBase.signum() > 0) {
+                            exitPrice = BigDecimal.valueOf(close);
+                            walletUSDT = walletUSDT.add(walletBase.multiply(exitPrice));
+                            walletBase = BigDecimal.ZERO;
+                        }
+                        inPosition = false;
+
+                        report.trade(purchaseDate,
+                                     klines.getTime(i),
+                                     entryPrice.doubleValue(),
+                                     exitPrice.doubleValue(),
+                                     walletUSDTBefore.doubleValue(),
+                                     walletUSDT.doubleValue(),
+                                     profit(entryPrice, exitPrice, entryAmount));
+                    }
+                }
+                report.day(day, startDate.plusDays(day).toEpochSecond(ZoneOffset.UTC), walletUSDT.doubleValue());
+            }
+        }
+    }
+
+    /**
+     * The rules of {@link #purchaseColumnar} in units of the pair's precision. Buying with the whole wallet is
+     * a division of units, value units being price units times amount units, and the stop loss compares
+     * {@code close * 1000} with the entry times the ratio in thousandths, so every step is exact like its
+     * {@code BigDecimal} counterpart. Closes with more places than the price scale are rounded half up and
+     * the wallet down to the value scale. Values are turned back into doubles only for the report.
+     */
+    private void purchaseFixedPoint(CurrencyPair currencyPair, LocalDateTime startDate, LocalDateTime endDate,
+                                    BigDecimal walletUSDT, BigDecimal stopLoss, PairPrecision precision,
+                                    TradeReport report) throws IOException {
+        final int priceScale = precision.getPriceScale();
+        final int amountScale = precision.getAmountScale();
+        final int valueScale = precision.getValueScale();
+        final long stopLossRatio = FixedPoint.toUnits(stopLoss.divide(BigDecimal.valueOf(100), 3, RoundingMode.HALF_UP), 3);
+        final MacdSignalColumns signals = new MacdSignalColumns();
+        final KlineColumns klines = new KlineColumns();
+
+        long wallet = FixedPoint.toUnits(walletUSDT, valueScale, RoundingMode.DOWN);
+        boolean inPosition = false;
+        long purchaseDate = 0;
+        long walletBefore = 0;
+        double entryPrice = 0;
+        long entryAmount = 0;
+        long stopPrice = 0;
+        double exitPrice = 0;
+        long walletBase = 0;
+        try (KlinePrefetcher.Days days = open(currencyPair, min5, startDate, endDate)) {
+            days.next(klines);
+            signals.compute(klines.getCloses(), klines.size());
+
+            for (int day = 0; day < ChronoUnit.DAYS.between(startDate, endDate); day++) {
+                days.next(klines);
+                signals.compute(klines.getCloses(), klines.size());
+
+                for (int i = 0; i < klines.size(); i++) {
+                    final long closePrice = FixedPoint.toUnits(klines.getClose(i), priceScale, RoundingMode.HALF_UP);
+
+                    if (!inPosition && signals.isEntry(i)) {
+                        purchaseDate = klines.getTime(i);
+                        walletBefore = wallet;
+                        walletBase = closePrice > 0 ? wallet / closePrice : 0;
+                        wallet = Math.subtractExact(wallet, Math.multiplyExact(walletBase, closePrice));
+
+                        inPosition = true;
+                        entryPrice = klines.getClose(i);
+                        entryAmount = walletBase;
+                        stopPrice = Math.multiplyExact(closePrice, stopLossRatio);
+                    }
+
+                    if (inPosition && Math.multiplyExact(closePrice, 1000L) < stopPrice && walletBase > 0) {
+                        wallet = Math.addExact(wallet, Math.multiplyExact(walletBase, closePrice));
+                        walletBase = 0;
+                        exitPrice = klines.getClose(i);
+                    }
+
+                    if (inPosition && signals.isExit(i)) {
+                        if (walletBase > 0) {
+                            wallet = Math.addExact(wallet, Math.multiplyExact(walletBase, closePrice));
+                            walletBase = 0;
+                            exitPrice = klines.getClose(i);
+                        }
+                        inPosition = false;
+
+                        report.trade(purchaseDate,
+                                     klines.getTime(i),
+                                     entryPrice,
+                                     exitPrice,
+                                     FixedPoint.toDouble(walletBefore, valueScale),
+                                     FixedPoint.toDouble(wallet, valueScale),
+                                     profit(BigDecimal.valueOf(entryPrice), BigDecimal.valueOf(exitPrice),
+                                            FixedPoint.toDecimal(entryAmount, amountScale)));
+                    }
+                }
+                report.day(day, startDate.plusDays(day).toEpochSecond(ZoneOffset.UTC), FixedPoint.toDouble(wallet, valueScale));
+            }
+        }
+    }
+
+    /**
+     * Profit of a closed position computed like ta4j's {@code Position.getProfit()}, whose {@code DecimalNum}
+     * products round to the precision of their operands, so the reports of both engines match to the cent.
+     */
+    private static double profit(BigDecimal entryPrice, BigDecimal exitPrice, BigDecimal amount) {
+        final Num entryAmount = DecimalNum.valueOf(amount);
+        return DecimalNum.valueOf(exitPrice).multipliedBy(entryAmount)
+                .minus(DecimalNum.valueOf(entryPrice).multipliedBy(entryAmount))
+                .doubleValue();
+    }
+
+    private static void loadBarSeries(BarSeries barSeries, KucoinKline kucoinKlines) {
+        if (barSeries.isEmpty() || kucoinKlines.getTime() > barSeries.getLastBar().getEndTime().toEpochSecond()) {
+            barSeries.addBar(Duration.ofMinutes(5L),
+                    ZonedDateTime.ofInstant(Instant.ofEpochSecond(kucoinKlines.getTime()), ZoneOffset.UTC),
+                    kucoinKlines.getOpen(),
+                    kucoinKlines.getHigh(),
+                    kucoinKlines.getLow(),
+                    kucoinKlines.getClose(),
+                    kucoinKlines.getVolume());
+        }
+    }
+
+    /**
+     * Runs the stop orders of a fresh {@link MockTrader} over 15 minute klines a day at a time.
+     */
+    public void stopOrder(CurrencyPair currencyPair, LocalDateTime startDate, LocalDateTime endDate,
+                          BigDecimal walletUSDT, TradeReport report) throws IOException {
+        final MockTrader trader = new MockTrader(currencyPair, tradeLimit);
+        trader.walletUSDT = walletUSDT;
+        trader.report = report;
+
+        try (KlinePrefetcher.Days days = open(currencyPair, min15, startDate, endDate)) {
+            List<KucoinKline> klines = days.next();
+            klines.forEach(trader::loadBarSeries);
+
+
+            for (int day = 0; day < ChronoUnit.DAYS.between(startDate, endDate); day++) {
+
+                klines = days.next();
+
+                for (KucoinKline kline : klines) {
+                    trader.next(kline);
+                }
+
+                report.day(day, startDate.plusDays(day).toEpochSecond(ZoneOffset.UTC), trader.walletUSDT.doubleValue());
+            }
+        }
+    }
+
+    /**
+     * @return the key of {@link #purchase} with these parameters and the current configuration
+     */
+    public BacktestKey purchaseKey(CurrencyPair currencyPair, LocalDateTime startDate, LocalDateTime endDate,
+                                   BigDecimal walletUSDT, BigDecimal stopLoss, Engine engine) {
+        final PairPrecision precision = precisions.apply(currencyPair);
+        return key(currencyPair, min5, startDate, endDate, "purchase " + currencyPair + " " + startDate + " " + endDate
+                + " wallet " + canonical(walletUSDT) + " stopLoss " + canonical(stopLoss) + " engine " + engine
+                + strategy() + " precision " + precision.getPriceScale() + "," + precision.getAmountScale());
+    }
+
+    /**
+     * @return the key of {@link #stopOrder} with these parameters and the current configuration
+     */
+    public BacktestKey stopOrderKey(CurrencyPair currencyPair, LocalDateTime startDate, LocalDateTime endDate,
+                                    BigDecimal walletUSDT) {
+        return key(currencyPair, min15, startDate, endDate, "stopOrder " + currencyPair + " " + startDate + " " + endDate
+                + " wallet " + canonical(walletUSDT) + " limit " + canonical(tradeLimit) + " fill " + FillModel.close()
+                + strategy() + " stop " + canonical(ExchangeTrader.STOP_ORDER_PERCENT));
+    }
+
+    private static String strategy() {
+        return " strategy " + MovingStrategy.SMA_BAR_COUNT + "," + MovingStrategy.MACD_SHORT_BAR_COUNT
+                + "," + MovingStrategy.MACD_LONG_BAR_COUNT + "," + MovingStrategy.SIGNAL_BAR_COUNT
+                + "," + MovingStrategy.MAXIMUM_BAR_COUNT;
+    }
+
+    private static BacktestKey key(CurrencyPair currencyPair, KlineIntervalType interval,
+                                   LocalDateTime startDate, LocalDateTime endDate, String parameters) {
+        final long startTime = startDate.minusDays(1).toEpochSecond(ZoneOffset.UTC);
+        return BacktestKey.builder()
+                .parameters(parameters)
+                .pair(currencyPair)
+                .interval(interval)
+                .startTime(startTime)
+                .endTime(startTime + (Math.max(0, ChronoUnit.DAYS.between(startDate, endDate)) + 1) * 86400L)
+                .build();
+    }
+
+    private static String canonical(BigDecimal value) {
+        return value.stripTrailingZeros().toPlainString();
+    }
+
+    private KlinePrefetcher.Days open(CurrencyPair currencyPair, KlineIntervalType interval,
+                                      LocalDateTime startDate, LocalDateTime endDate) {
+        return klinePrefetcher.open(currencyPair, interval,
+                startDate.minusDays(1).toEpochSecond(ZoneOffset.UTC),
+                Math.max(0, ChronoUnit.DAYS.between(startDate, endDate)) + 1);
+    }
+}
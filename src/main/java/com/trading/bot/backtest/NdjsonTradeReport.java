@@ -0,0 +1,132 @@
+package com.trading.bot.backtest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Writes the report as newline delimited JSON, one {@code trade} record per closed trade and one
+ * {@code day} summary per day. The line buffer is reused so writing a record allocates nothing,
+ * the writer is flushed after every day so clients see the results while the backtest runs.
+ */
+public class NdjsonTradeReport implements TradeReport {
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L};
+
+    private final Writer writer;
+    private final StringBuilder line = new StringBuilder(256);
+    private char[] buffer = new char[256];
+    private int dayTrades;
+
+    public NdjsonTradeReport(Writer writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void trade(long entryTime, long exitTime, double entryPrice, double exitPrice,
+                      double walletBefore, double walletAfter, double profit) {
+        line.setLength(0);
+        line.append("{\"type\":\"trade\",\"entryTime\":\"");
+        appendDateTime(line, entryTime);
+        line.append("\",\"exitTime\":\"");
+        appendDateTime(line, exitTime);
+        line.append("\",\"entryPrice\":");
+        appendFixed(line, entryPrice, 3);
+        line.append(",\"exitPrice\":");
+        appendFixed(line, exitPrice, 3);
+        line.append(",\"walletBefore\":");
+        appendFixed(line, walletBefore, 2);
+        line.append(",\"walletAfter\":");
+        appendFixed(line, walletAfter, 2);
+        line.append(",\"profit\":");
+        appendFixed(line, profit, 2);
+        line.append("}\n");
+        dayTrades++;
+        write(false);
+    }
+
+    @Override
+    public void day(int day, long dayStart, double walletUSDT) {
+        line.setLength(0);
+        line.append("{\"type\":\"day\",\"day\":").append(day).append(",\"date\":\"");
+        appendDate(line, Math.floorDiv(dayStart, 86400L));
+        line.append("\",\"trades\":").append(dayTrades).append(",\"walletUSDT\":");
+        appendFixed(line, walletUSDT, 2);
+        line.append("}\n");
+        dayTrades = 0;
+        write(true);
+    }
+
+    private void write(boolean flush) {
+        final int length = line.length();
+        if (buffer.length < length) {
+            buffer = new char[Math.max(length, 2 * buffer.length)];
+        }
+        line.getChars(0, length, buffer, 0);
+        try {
+            writer.write(buffer, 0, length);
+            if (flush) {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Appends {@code value} rounded half even to {@code scale} decimals, like {@code DecimalFormat("#0.00")}.
+     */
+    static void appendFixed(StringBuilder out, double value, int scale) {
+        final long scaled = (long) Math.rint(Math.abs(value) * POWERS_OF_TEN[scale]);
+        if (value < 0 && scaled != 0) {
+            out.append('-');
+        }
+        out.append(scaled / POWERS_OF_TEN[scale]);
+        if (scale > 0) {
+            out.append('.');
+            final long fraction = scaled % POWERS_OF_TEN[scale];
+            for (int digit = scale - 1; digit >= 0; digit--) {
+                out.append((char) ('0' + fraction / POWERS_OF_TEN[digit] % 10));
+            }
+        }
+    }
+
+    /**
+     * Appends epoch seconds as an ISO-8601 UTC date time, {@code 2023-11-01T05:10:00Z}.
+     */
+    static void appendDateTime(StringBuilder out, long epochSecond) {
+        final long secondOfDay = Math.floorMod(epochSecond, 86400L);
+        appendDate(out, Math.floorDiv(epochSecond, 86400L));
+        out.append('T');
+        appendTwoDigits(out, secondOfDay / 3600);
+        out.append(':');
+        appendTwoDigits(out, secondOfDay / 60 % 60);
+        out.append(':');
+        appendTwoDigits(out, secondOfDay % 60);
+        out.append('Z');
+    }
+
+    /**
+     * Appends an epoch day as {@code yyyy-MM-dd}, the civil calendar conversion of {@code LocalDate.ofEpochDay}.
+     */
+    static void appendDate(StringBuilder out, long epochDay) {
+        final long days = epochDay + 719468;
+        final long era = Math.floorDiv(days, 146097);
+        final long dayOfEra = days - era * 146097;
+        final long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        final long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        final long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        final long day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        final long month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        final long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        out.append(year).append('-');
+        appendTwoDigits(out, month);
+        out.append('-');
+        appendTwoDigits(out, day);
+    }
+
+    private static void appendTwoDigits(StringBuilder out, long value) {
+        out.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+}
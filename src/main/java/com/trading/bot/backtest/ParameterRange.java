@@ -0,0 +1,56 @@
+package com.trading.bot.backtest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses sweep ranges written as {@code value}, {@code from:to} or {@code from:to:step}, bounds inclusive.
+ * A range of more values than the given maximum is rejected before any value is created.
+ */
+public final class ParameterRange {
+
+    private ParameterRange() {
+    }
+
+    public static int[] ints(String range) {
+        return ints(range, Integer.MAX_VALUE);
+    }
+
+    public static int[] ints(String range, int maxValues) {
+        final List<BigDecimal> values = decimals(range, maxValues);
+        final int[] result = new int[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i).intValueExact();
+        }
+        return result;
+    }
+
+    public static List<BigDecimal> decimals(String range) {
+        return decimals(range, Integer.MAX_VALUE);
+    }
+
+    public static List<BigDecimal> decimals(String range, int maxValues) {
+        final String[] parts = range.trim().split(":");
+        if (parts.length > 3) {
+            throw new IllegalArgumentException("Range must be value, from:to or from:to:step but was " + range);
+        }
+
+        final BigDecimal from = new BigDecimal(parts[0].trim());
+        final BigDecimal to = parts.length > 1 ? new BigDecimal(parts[1].trim()) : from;
+        final BigDecimal step = parts.length > 2 ? new BigDecimal(parts[2].trim()) : BigDecimal.ONE;
+        if (step.signum() <= 0 || to.compareTo(from) < 0) {
+            throw new IllegalArgumentException("Range must be ascending with a positive step but was " + range);
+        }
+        final BigDecimal count = to.subtract(from).divideToIntegralValue(step).add(BigDecimal.ONE);
+        if (count.compareTo(BigDecimal.valueOf(maxValues)) > 0) {
+            throw new IllegalArgumentException("Range " + range + " has " + count + " values, at most " + maxValues);
+        }
+
+        final List<BigDecimal> result = new ArrayList<>();
+        for (BigDecimal value = from; value.compareTo(to) <= 0; value = value.add(step)) {
+            result.add(value);
+        }
+        return result;
+    }
+}
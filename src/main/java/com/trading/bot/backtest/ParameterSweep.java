@@ -0,0 +1,196 @@
+package com.trading.bot.backtest;
+
+import com.trading.bot.configuration.MovingStrategy;
+import com.trading.bot.configuration.StrategyRegistry;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.ta4j.core.Bar;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseBarSeries;
+import org.ta4j.core.TradingRecord;
+import org.ta4j.core.criteria.MaximumDrawdownCriterion;
+import org.ta4j.core.num.DoubleNum;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs {@link MovingStrategy} for every combination of parameters on a fork-join pool.
+ * Bars are converted once and shared read-only. Combinations with the same SMA and MACD bar counts run on one task
+ * over one series, their strategies come from one {@link StrategyRegistry} and share every common indicator.
+ * Every combination gets its own trading record. A sweep of more than {@code sweep.max-combinations}
+ * combinations is rejected.
+ */
+@Service
+public class ParameterSweep {
+    private final ForkJoinPool pool;
+    private final int maxCombinations;
+
+    public ParameterSweep(@Value("${sweep.parallelism:0}") int parallelism,
+                          @Value("${sweep.max-combinations:10000}") int maxCombinations) {
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.maxCombinations = maxCombinations;
+    }
+
+    public int getMaxCombinations() {
+        return maxCombinations;
+    }
+
+    /**
+     * @param klines warm-up klines followed by the tested range, ordered from oldest to newest
+     * @param startIndex index of the first kline of the tested range
+     * @return results ordered by profit, best first
+     * @throws IllegalArgumentException with more than {@code sweep.max-combinations} combinations
+     */
+    public List<SweepResult> sweep(List<KucoinKline> klines, int startIndex, Duration barDuration, BigDecimal walletUSDT,
+                                   int[] smaBarCounts, int[] shortBarCounts, int[] longBarCounts, int[] signalBarCounts,
+                                   List<BigDecimal> stopLosses) {
+        long macdCount = 0;
+        for (int shortBarCount : shortBarCounts) {
+            for (int longBarCount : longBarCounts) {
+                macdCount += shortBarCount < longBarCount ? 1 : 0;
+            }
+        }
+        final long combinationCount = macdCount * smaBarCounts.length * signalBarCounts.length * stopLosses.size();
+        if (combinationCount > maxCombinations) {
+            throw new IllegalArgumentException("Sweep of " + combinationCount + " combinations, at most " + maxCombinations);
+        }
+
+        final BarSeries template = new BaseBarSeries("sweep", DoubleNum::valueOf);
+        for (KucoinKline kline : klines) {
+            template.addBar(barDuration,
+                    ZonedDateTime.ofInstant(Instant.ofEpochSecond(kline.getTime()), ZoneOffset.UTC),
+                    kline.getOpen(),
+                    kline.getHigh(),
+                    kline.getLow(),
+                    kline.getClose(),
+                    kline.getVolume());
+        }
+        final List<Bar> bars = template.getBarData();
+
+        final List<SweepResult> combinations = new ArrayList<>();
+        for (int sma : smaBarCounts) {
+            for (int shortBarCount : shortBarCounts) {
+                for (int longBarCount : longBarCounts) {
+                    if (shortBarCount >= longBarCount) {
+                        continue;
+                    }
+                    for (int signal : signalBarCounts) {
+                        for (BigDecimal stopLoss : stopLosses) {
+                            combinations.add(SweepResult.builder()
+                                    .smaBarCount(sma)
+                                    .shortBarCount(shortBarCount)
+                                    .longBarCount(longBarCount)
+                                    .signalBarCount(signal)
+                                    .stopLoss(stopLoss)
+                                    .build());
+                        }
+                    }
+                }
+            }
+        }
+
+        final SweepResult[] results = combinations.toArray(new SweepResult[0]);
+        final List<Integer> groups = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            if (i == 0 || !sharesIndicators(results[i - 1], results[i])) {
+                groups.add(i);
+            }
+        }
+        groups.add(results.length);
+        final int[] groupStarts = groups.stream().mapToInt(Integer::intValue).toArray();
+        pool.invoke(new SweepTask(bars, klines, startIndex, walletUSDT, results, groupStarts, 0, groupStarts.length - 1));
+
+        Arrays.sort(results, Comparator.comparing(SweepResult::getProfit).reversed());
+        return Arrays.asList(results);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * @return whether both combinations have the same SMA and MACD, combinations are ordered so those are adjacent
+     */
+    private static boolean sharesIndicators(SweepResult left, SweepResult right) {
+        return left.getSmaBarCount() == right.getSmaBarCount()
+                && left.getShortBarCount() == right.getShortBarCount()
+                && left.getLongBarCount() == right.getLongBarCount();
+    }
+
+    private static class SweepTask extends RecursiveAction {
+        private final List<Bar> bars;
+        private final List<KucoinKline> klines;
+        private final int startIndex;
+        private final BigDecimal walletUSDT;
+        private final SweepResult[] results;
+        /** Index of the first result of every group, followed by the number of results. */
+        private final int[] groupStarts;
+        private final int from;
+        private final int to;
+
+        SweepTask(List<Bar> bars, List<KucoinKline> klines, int startIndex, BigDecimal walletUSDT,
+                  SweepResult[] results, int[] groupStarts, int from, int to) {
+            this.bars = bars;
+            this.klines = klines;
+            this.startIndex = startIndex;
+            this.walletUSDT = walletUSDT;
+            this.results = results;
+            this.groupStarts = groupStarts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (to > from) {
+                    runGroup(groupStarts[from], groupStarts[from + 1]);
+                }
+                return;
+            }
+            final int middle = (from + to) >>> 1;
+            invokeAll(new SweepTask(bars, klines, startIndex, walletUSDT, results, groupStarts, from, middle),
+                    new SweepTask(bars, klines, startIndex, walletUSDT, results, groupStarts, middle, to));
+        }
+
+        private void runGroup(int first, int end) {
+            final BarSeries series = new BaseBarSeries("sweep", bars, DoubleNum::valueOf);
+            final StrategyRegistry strategyRegistry = new StrategyRegistry(series);
+            final StrategyBacktest backtest = new StrategyBacktest(series, klines, startIndex);
+            for (int i = first; i < end; i++) {
+                run(series, strategyRegistry, backtest, results[i]);
+            }
+        }
+
+        private void run(BarSeries series, StrategyRegistry strategyRegistry, StrategyBacktest backtest, SweepResult result) {
+            final StrategyBacktest.Outcome outcome = backtest
+                    .run(strategyRegistry.register(
+                            result.getSmaBarCount(),
+                            result.getShortBarCount(),
+                            result.getLongBarCount(),
+                            result.getSignalBarCount()),
+                            walletUSDT,
+                            result.getStopLoss());
+            final TradingRecord tradingRecord = outcome.getTradingRecord();
+            final BigDecimal lastClose = klines.isEmpty() ? BigDecimal.ZERO : klines.get(klines.size() - 1).getClose();
+
+            result.setWalletUSDT(outcome.getWalletUSDT().add(outcome.getWalletBase().multiply(lastClose)));
+            result.setProfit(result.getWalletUSDT().subtract(walletUSDT));
+            result.setMaxDrawdown(new MaximumDrawdownCriterion().calculate(series, tradingRecord).doubleValue());
+            result.setTrades(tradingRecord.getPositionCount());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.trading.bot.backtest;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Records a report in primitive columns so it can be replayed to any other report, as if the backtest ran again.
+ */
+public class RecordedTradeReport implements TradeReport {
+    private static final int TRADE_VALUES = 5;
+    private static final int DAY_VALUES = 1;
+
+    /** Per event: -1 for a trade, the day number for a day. */
+    private int[] days = new int[16];
+    private long[] times = new long[32];
+    private double[] values = new double[80];
+    private int events;
+    private int timeCount;
+    private int valueCount;
+
+    @Override
+    public void trade(long entryTime, long exitTime, double entryPrice, double exitPrice,
+                      double walletBefore, double walletAfter, double profit) {
+        ensureCapacity(2, TRADE_VALUES);
+        days[events++] = -1;
+        times[timeCount++] = entryTime;
+        times[timeCount++] = exitTime;
+        values[valueCount++] = entryPrice;
+        values[valueCount++] = exitPrice;
+        values[valueCount++] = walletBefore;
+        values[valueCount++] = walletAfter;
+        values[valueCount++] = profit;
+    }
+
+    @Override
+    public void day(int day, long dayStart, double walletUSDT) {
+        ensureCapacity(1, DAY_VALUES);
+        days[events++] = day;
+        times[timeCount++] = dayStart;
+        values[valueCount++] = walletUSDT;
+    }
+
+    public void replay(TradeReport report) {
+        int time = 0;
+        int value = 0;
+        for (int event = 0; event < events; event++) {
+            if (days[event] < 0) {
+                report.trade(times[time], times[time + 1], values[value], values[value + 1],
+                        values[value + 2], values[value + 3], values[value + 4]);
+                time += 2;
+                value += TRADE_VALUES;
+            } else {
+                report.day(days[event], times[time++], values[value]);
+                value += DAY_VALUES;
+            }
+        }
+    }
+
+    /**
+     * @return bytes held by the recorded events
+     */
+    public long getSizeBytes() {
+        return 64L + 4L * days.length + 8L * times.length + 8L * values.length;
+    }
+
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(events);
+        out.writeInt(timeCount);
+        out.writeInt(valueCount);
+        for (int i = 0; i < events; i++) {
+            out.writeInt(days[i]);
+        }
+        for (int i = 0; i < timeCount; i++) {
+            out.writeLong(times[i]);
+        }
+        for (int i = 0; i < valueCount; i++) {
+            out.writeDouble(values[i]);
+        }
+    }
+
+    public static RecordedTradeReport read(DataInput in) throws IOException {
+        final RecordedTradeReport report = new RecordedTradeReport();
+        report.events = in.readInt();
+        report.timeCount = in.readInt();
+        report.valueCount = in.readInt();
+        report.days = new int[report.events];
+        report.times = new long[report.timeCount];
+        report.values = new double[report.valueCount];
+        for (int i = 0; i < report.events; i++) {
+            report.days[i] = in.readInt();
+        }
+        for (int i = 0; i < report.timeCount; i++) {
+            report.times[i] = in.readLong();
+        }
+        for (int i = 0; i < report.valueCount; i++) {
+            report.values[i] = in.readDouble();
+        }
+        return report;
+    }
+
+    /**
+     * Drops the spare capacity once the recording is complete.
+     */
+    void trim() {
+        days = Arrays.copyOf(days, events);
+        times = Arrays.copyOf(times, timeCount);
+        values = Arrays.copyOf(values, valueCount);
+    }
+
+    private void ensureCapacity(int moreTimes, int moreValues) {
+        if (events == days.length) {
+            days = Arrays.copyOf(days, Math.max(16, 2 * days.length));
+        }
+        if (timeCount + moreTimes > times.length) {
+            times = Arrays.copyOf(times, Math.max(32, 2 * times.length));
+        }
+        if (valueCount + moreValues > values.length) {
+            values = Arrays.copyOf(values, Math.max(80, 2 * values.length));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.trading.bot.backtest;
+
+import lombok.Builder;
+import lombok.Data;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseTradingRecord;
+import org.ta4j.core.Strategy;
+import org.ta4j.core.TradingRecord;
+import org.ta4j.core.num.Num;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+/**
+ * Runs the purchase and stop loss rules of the purchase backtest over a prepared series.
+ * Bar {@code i} of the series must be built from {@code klines.get(i)}.
+ */
+public class StrategyBacktest {
+    private final BarSeries series;
+    private final List<KucoinKline> klines;
+    private final int startIndex;
+
+    public StrategyBacktest(BarSeries series, List<KucoinKline> klines, int startIndex) {
+        this.series = series;
+        this.klines = klines;
+        this.startIndex = startIndex;
+    }
+
+    public Outcome run(Strategy strategy, BigDecimal walletUSDT, BigDecimal stopLoss) {
+        final TradingRecord tradingRecord = new BaseTradingRecord();
+        final Num stopLossRatio = series.numOf(stopLoss.divide(BigDecimal.valueOf(100), 3, RoundingMode.HALF_UP));
+        BigDecimal exitPrice = BigDecimal.ZERO;
+        BigDecimal walletBase = BigDecimal.ZERO;
+
+        for (int index = startIndex; index < klines.size(); index++) {
+            final BigDecimal closePrice = klines.get(index).getClose();
+
+            if (tradingRecord.isClosed() && strategy.shouldEnter(index, tradingRecord)) {
+                walletBase = walletUSDT.divide(closePrice, 0, RoundingMode.DOWN);
+                walletUSDT = walletUSDT.subtract(walletBase.multiply(closePrice));
+
+                tradingRecord.enter(index, series.numOf(closePrice), series.numOf(walletBase));
+            }
+
+            if (!tradingRecord.isClosed()
+                    && walletBase.signum() > 0
+                    && series.getBar(index).getClosePrice()
+                        .dividedBy(tradingRecord.getCurrentPosition().getEntry().getPricePerAsset())
+                        .isLessThan(stopLossRatio)) {
+
+                walletUSDT = walletUSDT.add(walletBase.multiply(closePrice));
+                walletBase = BigDecimal.ZERO;
+                exitPrice = closePrice;
+            }
+
+            if (!tradingRecord.isClosed() && strategy.shouldExit(index, tradingRecord)) {
+                if (walletBase.signum() > 0) {
+                    tradingRecord.exit(index, series.numOf(closePrice), tradingRecord.getCurrentPosition().getEntry().getAmount());
+                    walletUSDT = walletUSDT.add(walletBase.multiply(closePrice));
+                    walletBase = BigDecimal.ZERO;
+                } else {
+                    tradingRecord.exit(index, series.numOf(exitPrice), tradingRecord.getCurrentPosition().getEntry().getAmount());
+                }
+            }
+        }
+
+        return Outcome.builder()
+                .tradingRecord(tradingRecord)
+                .walletUSDT(walletUSDT)
+                .walletBase(walletBase)
+                .build();
+    }
+
+    @Data
+    @Builder
+    public static class Outcome {
+        private TradingRecord tradingRecord;
+        private BigDecimal walletUSDT;
+        private BigDecimal walletBase;
+    }
+}
@@ -0,0 +1,20 @@
+package com.trading.bot.backtest;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+public class SweepResult {
+    private int smaBarCount;
+    private int shortBarCount;
+    private int longBarCount;
+    private int signalBarCount;
+    private BigDecimal stopLoss;
+    private BigDecimal walletUSDT;
+    private BigDecimal profit;
+    private double maxDrawdown;
+    private int trades;
+}
@@ -0,0 +1,38 @@
+package com.trading.bot.backtest;
+
+import java.text.DecimalFormat;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the report as the plain text lines of the buffered backtest responses.
+ */
+public class TextTradeReport implements TradeReport {
+    private final DecimalFormat priceFormat = new DecimalFormat("#0.000");
+    private final DecimalFormat walletFormat = new DecimalFormat("#0.00");
+    private final List<String> lines = new ArrayList<>();
+
+    @Override
+    public void trade(long entryTime, long exitTime, double entryPrice, double exitPrice,
+                      double walletBefore, double walletAfter, double profit) {
+        lines.add(ZonedDateTime.ofInstant(Instant.ofEpochSecond(entryTime), ZoneOffset.UTC) + " " +
+                  ZonedDateTime.ofInstant(Instant.ofEpochSecond(exitTime), ZoneOffset.UTC) + "   " +
+                  priceFormat.format(entryPrice) + " " +
+                  priceFormat.format(exitPrice) + "   " +
+                  walletFormat.format(walletBefore) + " " +
+                  walletFormat.format(walletAfter) + " " +
+                  walletFormat.format(profit));
+    }
+
+    @Override
+    public void day(int day, long dayStart, double walletUSDT) {
+        lines.add("Day " + day);
+    }
+
+    public List<String> getLines() {
+        return lines;
+    }
+}
@@ -0,0 +1,12 @@
+package com.trading.bot.backtest;
+
+/**
+ * Receives the closed trades and the day ends of a backtest as they are produced.
+ * Times are epoch seconds, amounts are in the counter currency.
+ */
+public interface TradeReport {
+    void trade(long entryTime, long exitTime, double entryPrice, double exitPrice,
+               double walletBefore, double walletAfter, double profit);
+
+    void day(int day, long dayStart, double walletUSDT);
+}
@@ -8,6 +8,9 @@ import org.knowm.xchange.kucoin.KucoinExchange;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.time.Clock;
 
 @Configuration
 public class BotConfig {
@@ -24,7 +27,9 @@ public class BotConfig {
     public String exchangePassphrase;
     public static final CurrencyPair CURRENCY_PAIR = new CurrencyPair("SOL", "USDT");
 
+    /** The replay profile provides a replay exchange and its virtual clock instead. */
     @Bean
+    @Profile("!replay")
     public Exchange getXChangeExchange() {
         ExchangeSpecification exchangeSpecification = new ExchangeSpecification(KucoinExchange.class);
 
@@ -35,4 +40,10 @@ public class BotConfig {
 
         return ExchangeFactory.INSTANCE.createExchange(exchangeSpecification);
     }
+
+    @Bean
+    @Profile("!replay")
+    public Clock clock() {
+        return Clock.systemUTC();
+    }
 }
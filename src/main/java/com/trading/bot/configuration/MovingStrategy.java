@@ -1,36 +1,59 @@
 package com.trading.bot.configuration;
 
+import com.trading.bot.indicator.IndicatorFactory;
 import org.ta4j.core.BarSeries;
 import org.ta4j.core.BaseStrategy;
+import org.ta4j.core.Indicator;
 import org.ta4j.core.Rule;
 import org.ta4j.core.Strategy;
-import org.ta4j.core.indicators.EMAIndicator;
-import org.ta4j.core.indicators.MACDIndicator;
-import org.ta4j.core.indicators.SMAIndicator;
-import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
-import org.ta4j.core.indicators.helpers.CombineIndicator;
 import org.ta4j.core.num.Num;
 import org.ta4j.core.rules.*;
 
 
 public class MovingStrategy {
+    public static final int SMA_BAR_COUNT = 2;
+    public static final int MACD_SHORT_BAR_COUNT = 12;
+    public static final int MACD_LONG_BAR_COUNT = 26;
+    public static final int SIGNAL_BAR_COUNT = 9;
+    /** Bars a live series keeps: ten times the longest indicator lookback so the EMA seeds have decayed away. */
+    public static final int MAXIMUM_BAR_COUNT = 10 * (SMA_BAR_COUNT + MACD_LONG_BAR_COUNT + SIGNAL_BAR_COUNT);
 
     /**
      * @param series a time series
      * @return a moving momentum strategy
      */
     public static Strategy buildStrategy(BarSeries series) {
-        if (series == null) {
-            throw new IllegalArgumentException("Series cannot be null");
-        }
+        return buildStrategy(series, SMA_BAR_COUNT, MACD_SHORT_BAR_COUNT, MACD_LONG_BAR_COUNT, SIGNAL_BAR_COUNT);
+    }
+
+    /**
+     * @param series a time series
+     * @param smaBarCount bar count of the close price smoothing
+     * @param shortBarCount short bar count of the MACD
+     * @param longBarCount long bar count of the MACD
+     * @param signalBarCount bar count of the MACD signal EMA
+     * @return a moving momentum strategy
+     */
+    public static Strategy buildStrategy(BarSeries series, int smaBarCount, int shortBarCount, int longBarCount, int signalBarCount) {
+        return buildStrategy(new IndicatorFactory(series), smaBarCount, shortBarCount, longBarCount, signalBarCount);
+    }
 
-        ClosePriceIndicator closePrice = new ClosePriceIndicator(series);
-        SMAIndicator smaIndicator = new SMAIndicator(closePrice, 2);
+    /**
+     * @param indicatorFactory builds the indicators, nodes already built by it for other strategies are shared
+     * @param smaBarCount bar count of the close price smoothing
+     * @param shortBarCount short bar count of the MACD
+     * @param longBarCount long bar count of the MACD
+     * @param signalBarCount bar count of the MACD signal EMA
+     * @return a moving momentum strategy
+     */
+    public static Strategy buildStrategy(IndicatorFactory indicatorFactory, int smaBarCount, int shortBarCount,
+                                         int longBarCount, int signalBarCount) {
+        Indicator<Num> smaIndicator = indicatorFactory.sma(indicatorFactory.closePrice(), smaBarCount);
 
-        MACDIndicator macd = new MACDIndicator(smaIndicator, 12, 26);
-        EMAIndicator signal = new EMAIndicator(macd, 9);
+        Indicator<Num> macd = indicatorFactory.macd(smaIndicator, shortBarCount, longBarCount);
+        Indicator<Num> signal = indicatorFactory.ema(macd, signalBarCount);
 
-        CombineIndicator histogram = new CombineIndicator(macd, signal, Num::minus);
+        Indicator<Num> histogram = indicatorFactory.difference(macd, signal);
 
         // Entry rule
         Rule entryRule = new UnderIndicatorRule(macd, signal)
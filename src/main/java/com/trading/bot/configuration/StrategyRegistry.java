@@ -0,0 +1,54 @@
+package com.trading.bot.configuration;
+
+import com.trading.bot.indicator.IndicatorFactory;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.Strategy;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Variants of {@link MovingStrategy} running side by side on one series. All of them are built through one
+ * {@link IndicatorFactory}, so indicators they have in common are computed once, and a variant registered again
+ * with the same bar counts is the same strategy.
+ */
+public class StrategyRegistry {
+    private final IndicatorFactory indicatorFactory;
+    private final Map<String, Strategy> strategies = new LinkedHashMap<>();
+
+    public StrategyRegistry(BarSeries series) {
+        this.indicatorFactory = new IndicatorFactory(series);
+    }
+
+    /**
+     * @return the strategy with these bar counts, named {@code <sma>/<short>/<long>/<signal>}
+     */
+    public Strategy register(int smaBarCount, int shortBarCount, int longBarCount, int signalBarCount) {
+        return strategies.computeIfAbsent(name(smaBarCount, shortBarCount, longBarCount, signalBarCount),
+                name -> MovingStrategy.buildStrategy(indicatorFactory, smaBarCount, shortBarCount, longBarCount, signalBarCount));
+    }
+
+    public Strategy getStrategy(String name) {
+        return strategies.get(name);
+    }
+
+    public Map<String, Strategy> getStrategies() {
+        return Collections.unmodifiableMap(strategies);
+    }
+
+    public IndicatorFactory getIndicatorFactory() {
+        return indicatorFactory;
+    }
+
+    /**
+     * Computes the shared indicators of bar {@code index} once for all strategies, call before asking them.
+     */
+    public void evaluate(int index) {
+        indicatorFactory.evaluate(index);
+    }
+
+    public static String name(int smaBarCount, int shortBarCount, int longBarCount, int signalBarCount) {
+        return smaBarCount + "/" + shortBarCount + "/" + longBarCount + "/" + signalBarCount;
+    }
+}
@@ -0,0 +1,35 @@
+package com.trading.bot.controllers;
+
+import com.trading.bot.backtest.BacktestResultCache;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+@RestController
+public class BacktestCacheController {
+    private final BacktestResultCache backtestResultCache;
+
+
+    public BacktestCacheController(BacktestResultCache backtestResultCache) {
+        this.backtestResultCache = backtestResultCache;
+    }
+
+/*
+    GET http://localhost:8080/backtest-cache
+*/
+    @GetMapping(path = "backtest-cache")
+    public BacktestResultCache.Statistics statistics() {
+        return backtestResultCache.getStatistics();
+    }
+
+/*
+    DELETE http://localhost:8080/backtest-cache
+*/
+    @DeleteMapping(path = "backtest-cache")
+    public BacktestResultCache.Statistics invalidate() throws IOException {
+        backtestResultCache.invalidate();
+        return backtestResultCache.getStatistics();
+    }
+}
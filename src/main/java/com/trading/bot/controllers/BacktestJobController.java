@@ -0,0 +1,114 @@
+package com.trading.bot.controllers;
+
+import com.trading.bot.backtest.BacktestJob;
+import com.trading.bot.backtest.BacktestJobService;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+@RestController
+public class BacktestJobController {
+    private final BacktestJobService backtestJobService;
+
+
+    public BacktestJobController(BacktestJobService backtestJobService) {
+        this.backtestJobService = backtestJobService;
+    }
+
+/*
+    POST http://localhost:8080/backtests/purchase?baseSymbol=SOL&counterSymbol=USDT&startDate=2023-11-01T00:00:00&endDate=2023-12-01T00:00:00&walletUSDT=1800&stopLoss=95
+*/
+    @PostMapping(path = "backtests/purchase")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public BacktestJob.Status submitPurchase(
+            @RequestParam String baseSymbol,
+            @RequestParam String counterSymbol,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam BigDecimal walletUSDT,
+            @RequestParam BigDecimal stopLoss) {
+        try {
+            return backtestJobService.submitPurchase(new CurrencyPair(baseSymbol, counterSymbol),
+                    startDate, endDate, walletUSDT, stopLoss).getStatus();
+        } catch (RejectedExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Backtest queue is full", e);
+        }
+    }
+
+/*
+    POST http://localhost:8080/backtests/stop-order?baseSymbol=SOL&counterSymbol=USDT&startDate=2023-11-01T00:00:00&endDate=2023-12-01T00:00:00&walletUSDT=1800
+*/
+    @PostMapping(path = "backtests/stop-order")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public BacktestJob.Status submitStopOrder(
+            @RequestParam String baseSymbol,
+            @RequestParam String counterSymbol,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam BigDecimal walletUSDT) {
+        try {
+            return backtestJobService.submitStopOrder(new CurrencyPair(baseSymbol, counterSymbol),
+                    startDate, endDate, walletUSDT).getStatus();
+        } catch (RejectedExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Backtest queue is full", e);
+        }
+    }
+
+/*
+    GET http://localhost:8080/backtests
+*/
+    @GetMapping(path = "backtests")
+    public List<BacktestJob.Status> jobs() {
+        return backtestJobService.getJobs().stream()
+                .map(BacktestJob::getStatus)
+                .collect(Collectors.toList());
+    }
+
+/*
+    GET http://localhost:8080/backtests/{id}
+*/
+    @GetMapping(path = "backtests/{id}")
+    public BacktestJob.Status status(@PathVariable String id) {
+        return job(id).getStatus();
+    }
+
+/*
+    GET http://localhost:8080/backtests/{id}/results
+*/
+    @GetMapping(path = "backtests/{id}/results")
+    public List<String> results(@PathVariable String id) {
+        return job(id).getResults();
+    }
+
+/*
+    DELETE http://localhost:8080/backtests/{id}
+*/
+    @DeleteMapping(path = "backtests/{id}")
+    public BacktestJob.Status cancel(@PathVariable String id) {
+        final BacktestJob job = job(id);
+        backtestJobService.cancel(id);
+        return job.getStatus();
+    }
+
+    private BacktestJob job(String id) {
+        final BacktestJob job = backtestJobService.getJob(id);
+        if (job == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No backtest " + id);
+        }
+        return job;
+    }
+}
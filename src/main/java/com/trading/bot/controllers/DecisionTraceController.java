@@ -0,0 +1,50 @@
+package com.trading.bot.controllers;
+
+import com.trading.bot.trace.DecisionTrace;
+import com.trading.bot.trace.DecisionTraceService;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Collections;
+import java.util.List;
+
+@Profile("prod")
+@RestController
+public class DecisionTraceController {
+    private final DecisionTraceService decisionTraceService;
+
+
+    public DecisionTraceController(DecisionTraceService decisionTraceService) {
+        this.decisionTraceService = decisionTraceService;
+    }
+
+/*
+    GET http://localhost:8080/trace?baseSymbol=SOL&counterSymbol=USDT&limit=100
+*/
+    @GetMapping(path = "trace")
+    public List<DecisionTrace.Record> trace(
+            @RequestParam String baseSymbol,
+            @RequestParam String counterSymbol,
+            @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must not be negative");
+        }
+        final DecisionTrace trace = decisionTraceService.findTrace(new CurrencyPair(baseSymbol, counterSymbol));
+        return trace == null ? Collections.emptyList() : trace.snapshot(limit);
+    }
+
+/*
+    GET http://localhost:8080/trace/dump
+*/
+    @GetMapping(path = "trace/dump", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public StreamingResponseBody dump() {
+        return decisionTraceService::dump;
+    }
+}
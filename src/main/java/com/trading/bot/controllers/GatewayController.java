@@ -0,0 +1,25 @@
+package com.trading.bot.controllers;
+
+import com.trading.bot.gateway.ExchangeGateway;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+public class GatewayController {
+    private final ExchangeGateway exchangeGateway;
+
+
+    public GatewayController(ExchangeGateway exchangeGateway) {
+        this.exchangeGateway = exchangeGateway;
+    }
+
+/*
+    GET http://localhost:8080/gateway
+*/
+    @GetMapping(path = "gateway")
+    public Map<ExchangeGateway.Endpoint, ExchangeGateway.Statistics> statistics() {
+        return exchangeGateway.getStatistics();
+    }
+}
@@ -0,0 +1,25 @@
+package com.trading.bot.controllers;
+
+import com.trading.bot.logic.BalanceLedger;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@Profile("prod")
+@RestController
+public class LedgerController {
+    private final BalanceLedger balanceLedger;
+
+
+    public LedgerController(BalanceLedger balanceLedger) {
+        this.balanceLedger = balanceLedger;
+    }
+
+/*
+    GET http://localhost:8080/ledger
+*/
+    @GetMapping(path = "ledger")
+    public BalanceLedger.Statistics statistics() {
+        return balanceLedger.getStatistics();
+    }
+}
@@ -1,41 +1,41 @@
 package com.trading.bot.controllers;
 
-import com.trading.bot.configuration.MovingStrategy;
-import org.knowm.xchange.Exchange;
+import com.trading.bot.backtest.BacktestResultCache;
+import com.trading.bot.backtest.BacktestRunner;
+import com.trading.bot.backtest.NdjsonTradeReport;
+import com.trading.bot.backtest.TextTradeReport;
 import org.knowm.xchange.currency.CurrencyPair;
-import org.knowm.xchange.kucoin.KucoinMarketDataService;
-import org.knowm.xchange.kucoin.dto.response.KucoinKline;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import org.ta4j.core.*;
-import org.ta4j.core.num.DecimalNum;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.text.DecimalFormat;
-import java.time.*;
-import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.List;
 
-import static org.knowm.xchange.kucoin.dto.KlineIntervalType.min5;
-
 @RestController
 public class PurchaseController {
     /** Logger. */
-    private final Exchange exchange;
+    private final BacktestRunner backtestRunner;
+    private final BacktestResultCache backtestResultCache;
 
 
-    public PurchaseController(Exchange exchange) {
-        this.exchange = exchange;
+    public PurchaseController(BacktestRunner backtestRunner, BacktestResultCache backtestResultCache) {
+        this.backtestRunner = backtestRunner;
+        this.backtestResultCache = backtestResultCache;
     }
 
 /*
-    GET http://localhost:8080/purchase?baseSymbol=SOL&counterSymbol=USDT&startDate=2023-11-01T00:00:00&endDate=2023-12-01T00:00:00&walletUSDT=1800&stopLoss=95
+    GET http://localhost:8080/purchase?baseSymbol=SOL&counterSymbol=USDT&startDate=2023-11-01T00:00:00&endDate=2023-12-01T00:00:00&walletUSDT=1800&stopLoss=95&engine=COLUMNAR
 */
     @GetMapping(path = "purchase")
     public List<String> checkPredict(
@@ -44,100 +44,44 @@ public class PurchaseController {
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
             @RequestParam BigDecimal walletUSDT,
-            @RequestParam BigDecimal stopLoss) throws IOException {
-        final BarSeries barSeries = new BaseBarSeries();
-        final Strategy movingMomentumStrategy = MovingStrategy.buildStrategy(barSeries);
-
-        long purchaseDate = 0;
-        BigDecimal walletUSDTBefore = BigDecimal.valueOf(0);
-        BigDecimal exitPrice = BigDecimal.valueOf(0);
-        BigDecimal walletBase = BigDecimal.valueOf(0);
-        List<String> listResult = new ArrayList<>();
-        List<KucoinKline> kucoinKlines = ((KucoinMarketDataService) exchange.getMarketDataService())
-                .getKucoinKlines(
-                        new CurrencyPair(baseSymbol, counterSymbol),
-                        startDate.minusDays(1).toEpochSecond(ZoneOffset.UTC),
-                        startDate.toEpochSecond(ZoneOffset.UTC),
-                        min5);
-        Collections.reverse(kucoinKlines);
-        kucoinKlines.forEach(kucoinKline -> loadBarSeries(barSeries, kucoinKline));
-
-        TradingRecord tradingRecord = new BaseTradingRecord();
-
-        for (int day = 0; day < ChronoUnit.DAYS.between(startDate, endDate); day++) {
-
-            kucoinKlines = ((KucoinMarketDataService) exchange.getMarketDataService())
-                    .getKucoinKlines(
-                            new CurrencyPair(baseSymbol, counterSymbol),
-                            startDate.plusDays(day).toEpochSecond(ZoneOffset.UTC),
-                            startDate.plusDays(day + 1L).toEpochSecond(ZoneOffset.UTC),
-                            min5);
-            Collections.reverse(kucoinKlines);
-            kucoinKlines.forEach(kucoinKline -> loadBarSeries(barSeries, kucoinKline));
-
-
-            for (int i = 0; i < kucoinKlines.size(); i++) {
-                final int index = 288 + 288 * day + i;
-                final BigDecimal closePrice = kucoinKlines.get(i).getClose();
-
-                if (tradingRecord.isClosed() && movingMomentumStrategy.shouldEnter(index, tradingRecord)) {
-
-                    purchaseDate = kucoinKlines.get(i).getTime();
-                    walletUSDTBefore = walletUSDT;
-                    walletBase = walletUSDT.divide(closePrice, 0, RoundingMode.DOWN);
-                    walletUSDT = walletUSDT.subtract(walletBase.multiply(closePrice));
-
-                    tradingRecord.enter(index, DecimalNum.valueOf(closePrice), DecimalNum.valueOf(walletBase));
-                }
-
-                if (!tradingRecord.isClosed()
-                        && DecimalNum.valueOf(closePrice)
-                            .dividedBy(tradingRecord.getCurrentPosition().getEntry().getPricePerAsset())
-                            .isLessThan(DecimalNum.valueOf(stopLoss.divide(BigDecimal.valueOf(100), 3, RoundingMode.HALF_UP)))
-                        && (walletBase.compareTo(BigDecimal.valueOf(0)) > 0)) {
-
-                        walletUSDT = walletUSDT.add(walletBase.multiply(closePrice));
-                        walletBase = BigDecimal.valueOf(0);
-                        exitPrice = closePrice;
-                }
-
-                if (!tradingRecord.isClosed() && movingMomentumStrategy.shouldExit(index, tradingRecord)) {
-
-                    if (walletBase.compareTo(BigDecimal.valueOf(0)) > 0) {
-                        tradingRecord.exit(index, DecimalNum.valueOf(closePrice), tradingRecord.getCurrentPosition().getEntry().getAmount());
-                        walletUSDT = walletUSDT.add(walletBase.multiply(closePrice));
-                        walletBase = BigDecimal.valueOf(0);
-                        exitPrice = closePrice;
-                    } else {
-                        tradingRecord.exit(index, DecimalNum.valueOf(exitPrice), tradingRecord.getCurrentPosition().getEntry().getAmount());
-                    }
-
-                    listResult.add(ZonedDateTime.ofInstant(Instant.ofEpochSecond(purchaseDate), ZoneOffset.UTC) + " " +
-                                   ZonedDateTime.ofInstant(Instant.ofEpochSecond(kucoinKlines.get(i).getTime()), ZoneOffset.UTC) + "   " +
-                                   new DecimalFormat("#0.000").format(tradingRecord.getLastPosition().getEntry().getPricePerAsset().doubleValue()) + " " +
-                                   new DecimalFormat("#0.000").format(tradingRecord.getLastPosition().getExit().getPricePerAsset().doubleValue()) + "   " +
-                                   new DecimalFormat("#0.00").format(walletUSDTBefore.doubleValue()) + " " +
-                                   new DecimalFormat("#0.00").format(walletUSDT.doubleValue()) + " " +
-                                   new DecimalFormat("#0.00").format(tradingRecord.getLastPosition().getProfit().doubleValue()));
-                }
-            }
-            listResult.add("Day " + day);
-        }
+            @RequestParam BigDecimal stopLoss,
+            @RequestParam(defaultValue = "COLUMNAR") BacktestRunner.Engine engine) throws IOException {
+        final CurrencyPair currencyPair = new CurrencyPair(baseSymbol, counterSymbol);
+        checkPurchase(currencyPair, walletUSDT, engine);
+        final TextTradeReport report = new TextTradeReport();
+        backtestResultCache.run(backtestRunner.purchaseKey(currencyPair, startDate, endDate, walletUSDT, stopLoss, engine), report,
+                cached -> backtestRunner.purchase(currencyPair, startDate, endDate, walletUSDT, stopLoss, engine, cached));
+        return report.getLines();
+    }
 
-        return listResult;
+/*
+    GET http://localhost:8080/purchase/stream?baseSymbol=SOL&counterSymbol=USDT&startDate=2023-11-01T00:00:00&endDate=2023-12-01T00:00:00&walletUSDT=1800&stopLoss=95
+*/
+    @GetMapping(path = "purchase/stream", produces = NdjsonTradeReport.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamPredict(
+            @RequestParam String baseSymbol,
+            @RequestParam String counterSymbol,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam BigDecimal walletUSDT,
+            @RequestParam BigDecimal stopLoss,
+            @RequestParam(defaultValue = "COLUMNAR") BacktestRunner.Engine engine) {
+        final CurrencyPair currencyPair = new CurrencyPair(baseSymbol, counterSymbol);
+        checkPurchase(currencyPair, walletUSDT, engine);
+        return outputStream -> {
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            backtestResultCache.run(backtestRunner.purchaseKey(currencyPair, startDate, endDate, walletUSDT, stopLoss, engine),
+                    new NdjsonTradeReport(writer),
+                    cached -> backtestRunner.purchase(currencyPair, startDate, endDate, walletUSDT, stopLoss, engine, cached));
+            writer.flush();
+        };
     }
 
-    private static void loadBarSeries(BarSeries barSeries, KucoinKline kucoinKlines) {
-        if (barSeries.isEmpty() || kucoinKlines.getTime() > barSeries.getLastBar().getEndTime().toEpochSecond()) {
-            barSeries.addBar(Duration.ofMinutes(5L),
-                    ZonedDateTime.ofInstant(Instant.ofEpochSecond(kucoinKlines.getTime()), ZoneOffset.UTC),
-                    kucoinKlines.getOpen(),
-                    kucoinKlines.getHigh(),
-                    kucoinKlines.getLow(),
-                    kucoinKlines.getClose(),
-                    kucoinKlines.getVolume());
+    private void checkPurchase(CurrencyPair currencyPair, BigDecimal walletUSDT, BacktestRunner.Engine engine) {
+        try {
+            backtestRunner.checkPurchase(currencyPair, walletUSDT, engine);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
         }
     }
 }
-
-
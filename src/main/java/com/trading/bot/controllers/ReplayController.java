@@ -0,0 +1,25 @@
+package com.trading.bot.controllers;
+
+import com.trading.bot.replay.ReplayDriver;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@Profile("replay")
+@RestController
+public class ReplayController {
+    private final ReplayDriver replayDriver;
+
+
+    public ReplayController(ReplayDriver replayDriver) {
+        this.replayDriver = replayDriver;
+    }
+
+/*
+    GET http://localhost:8080/replay
+*/
+    @GetMapping(path = "replay")
+    public ReplayDriver.Statistics statistics() {
+        return replayDriver.getStatistics();
+    }
+}
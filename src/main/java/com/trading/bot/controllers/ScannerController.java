@@ -0,0 +1,25 @@
+package com.trading.bot.controllers;
+
+import com.trading.bot.scanner.SignalScanner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@ConditionalOnProperty(name = "scanner.pairs")
+@RestController
+public class ScannerController {
+    private final SignalScanner signalScanner;
+
+
+    public ScannerController(SignalScanner signalScanner) {
+        this.signalScanner = signalScanner;
+    }
+
+/*
+    GET http://localhost:8080/scanner
+*/
+    @GetMapping(path = "scanner")
+    public SignalScanner.Scan scan() {
+        return signalScanner.getLastScan();
+    }
+}
@@ -1,34 +1,35 @@
 package com.trading.bot.controllers;
 
-import com.trading.bot.logic.MockTrader;
-import org.knowm.xchange.Exchange;
+import com.trading.bot.backtest.BacktestResultCache;
+import com.trading.bot.backtest.BacktestRunner;
+import com.trading.bot.backtest.NdjsonTradeReport;
+import com.trading.bot.backtest.TextTradeReport;
 import org.knowm.xchange.currency.CurrencyPair;
-import org.knowm.xchange.kucoin.KucoinMarketDataService;
-import org.knowm.xchange.kucoin.dto.response.KucoinKline;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
-import java.time.*;
-import java.time.temporal.ChronoUnit;
-import java.util.Collections;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.List;
 
-import static org.knowm.xchange.kucoin.dto.KlineIntervalType.min15;
-
 @RestController
 public class StopOrderController {
     /** Logger. */
-    private final Exchange exchange;
-    private final MockTrader trader;
+    private final BacktestRunner backtestRunner;
+    private final BacktestResultCache backtestResultCache;
 
 
-    public StopOrderController(Exchange exchange, MockTrader trader) {
-        this.exchange = exchange;
-        this.trader = trader;
+    public StopOrderController(BacktestRunner backtestRunner, BacktestResultCache backtestResultCache) {
+        this.backtestRunner = backtestRunner;
+        this.backtestResultCache = backtestResultCache;
     }
 
 /*
@@ -41,38 +42,30 @@ public class StopOrderController {
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
             @RequestParam BigDecimal walletUSDT) throws IOException {
+        final CurrencyPair currencyPair = new CurrencyPair(baseSymbol, counterSymbol);
+        final TextTradeReport report = new TextTradeReport();
+        backtestResultCache.run(backtestRunner.stopOrderKey(currencyPair, startDate, endDate, walletUSDT), report,
+                cached -> backtestRunner.stopOrder(currencyPair, startDate, endDate, walletUSDT, cached));
+        return report.getLines();
+    }
 
-        trader.walletUSDT = walletUSDT;
-
-        List<KucoinKline> klines = ((KucoinMarketDataService) exchange.getMarketDataService())
-                .getKucoinKlines(
-                        new CurrencyPair(baseSymbol, counterSymbol),
-                        startDate.minusDays(1).toEpochSecond(ZoneOffset.UTC),
-                        startDate.toEpochSecond(ZoneOffset.UTC),
-                        min15);
-        Collections.reverse(klines);
-        klines.forEach(trader::loadBarSeries);
-
-
-        for (int day = 0; day < ChronoUnit.DAYS.between(startDate, endDate); day++) {
-
-            klines = ((KucoinMarketDataService) exchange.getMarketDataService())
-                    .getKucoinKlines(
-                            new CurrencyPair(baseSymbol, counterSymbol),
-                            startDate.plusDays(day).toEpochSecond(ZoneOffset.UTC),
-                            startDate.plusDays(day + 1L).toEpochSecond(ZoneOffset.UTC),
-                            min15);
-            Collections.reverse(klines);
-
-            for (KucoinKline kline : klines) {
-                trader.next(kline);
-            }
-
-            trader.listResult.add("Day " + day);
-        }
-
-        return trader.listResult;
+/*
+    GET http://localhost:8080/stop-order/stream?baseSymbol=SOL&counterSymbol=USDT&startDate=2023-11-01T00:00:00&endDate=2023-12-01T00:00:00&walletUSDT=1800
+*/
+    @GetMapping(path = "stop-order/stream", produces = NdjsonTradeReport.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamPredict(
+            @RequestParam String baseSymbol,
+            @RequestParam String counterSymbol,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam BigDecimal walletUSDT) {
+        final CurrencyPair currencyPair = new CurrencyPair(baseSymbol, counterSymbol);
+        return outputStream -> {
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            backtestResultCache.run(backtestRunner.stopOrderKey(currencyPair, startDate, endDate, walletUSDT),
+                    new NdjsonTradeReport(writer),
+                    cached -> backtestRunner.stopOrder(currencyPair, startDate, endDate, walletUSDT, cached));
+            writer.flush();
+        };
     }
 }
-
-
@@ -0,0 +1,94 @@
+package com.trading.bot.controllers;
+
+import com.trading.bot.backtest.ParameterRange;
+import com.trading.bot.backtest.ParameterSweep;
+import com.trading.bot.backtest.SweepResult;
+import com.trading.bot.repository.KlineRepository;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.knowm.xchange.kucoin.dto.KlineIntervalType.min5;
+
+@RestController
+public class SweepController {
+    private final KlineRepository klineRepository;
+    private final ParameterSweep parameterSweep;
+
+
+    public SweepController(KlineRepository klineRepository, ParameterSweep parameterSweep) {
+        this.klineRepository = klineRepository;
+        this.parameterSweep = parameterSweep;
+    }
+
+/*
+    GET http://localhost:8080/sweep?baseSymbol=SOL&counterSymbol=USDT&startDate=2023-11-01T00:00:00&endDate=2023-12-01T00:00:00&walletUSDT=1800&sma=2:4&macdShort=8:14:2&macdLong=20:30:2&signal=7:11&stopLoss=90:99:1
+*/
+    @GetMapping(path = "sweep")
+    public List<SweepResult> sweep(
+            @RequestParam String baseSymbol,
+            @RequestParam String counterSymbol,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam BigDecimal walletUSDT,
+            @RequestParam(defaultValue = "2") String sma,
+            @RequestParam(defaultValue = "12") String macdShort,
+            @RequestParam(defaultValue = "26") String macdLong,
+            @RequestParam(defaultValue = "9") String signal,
+            @RequestParam String stopLoss,
+            @RequestParam(defaultValue = "100") int limit) throws IOException {
+        if (limit < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must not be negative");
+        }
+        final int maxValues = parameterSweep.getMaxCombinations();
+        final int[] smaBarCounts;
+        final int[] shortBarCounts;
+        final int[] longBarCounts;
+        final int[] signalBarCounts;
+        final List<BigDecimal> stopLosses;
+        try {
+            smaBarCounts = ParameterRange.ints(sma, maxValues);
+            shortBarCounts = ParameterRange.ints(macdShort, maxValues);
+            longBarCounts = ParameterRange.ints(macdLong, maxValues);
+            signalBarCounts = ParameterRange.ints(signal, maxValues);
+            stopLosses = ParameterRange.decimals(stopLoss, maxValues);
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+
+        final CurrencyPair currencyPair = new CurrencyPair(baseSymbol, counterSymbol);
+        final List<KucoinKline> klines = klineRepository.getKlines(
+                currencyPair,
+                startDate.minusDays(1).toEpochSecond(ZoneOffset.UTC),
+                startDate.toEpochSecond(ZoneOffset.UTC),
+                min5);
+        final int startIndex = klines.size();
+        klines.addAll(klineRepository.getKlines(
+                currencyPair,
+                startDate.toEpochSecond(ZoneOffset.UTC),
+                endDate.toEpochSecond(ZoneOffset.UTC),
+                min5));
+
+        final List<SweepResult> results;
+        try {
+            results = parameterSweep.sweep(klines, startIndex, Duration.ofMinutes(5L), walletUSDT,
+                    smaBarCounts, shortBarCounts, longBarCounts, signalBarCounts, stopLosses);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+
+        return results.subList(0, Math.min(limit, results.size()));
+    }
+}
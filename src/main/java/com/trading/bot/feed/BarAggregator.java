@@ -0,0 +1,139 @@
+package com.trading.bot.feed;
+
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.kucoin.dto.KlineIntervalType;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Builds candles of one interval from trades and hands each candle over as soon as its interval ends,
+ * either when the first trade of a later interval arrives or when {@link #closeUntil(long)} is called at the boundary.
+ * Intervals without trades produce a flat candle at the last close with zero volume.
+ * The interval a pair's first trade falls in is never handed over, its trades before the subscription are missing.
+ */
+public class BarAggregator implements TradeListener {
+    /** Flat candles are emitted at most for one day of missing intervals. */
+    private static final long MAX_FLAT_MILLIS = 86400000L;
+
+    protected final Logger logger = LoggerFactory.getLogger(getClass().getName());
+    private final KlineIntervalType interval;
+    private final long intervalMillis;
+    private final long maxFlatCandles;
+    private final Consumer<KucoinKline> listener;
+    private final Map<CurrencyPair, Candle> candles = new ConcurrentHashMap<>();
+
+    public BarAggregator(KlineIntervalType interval, Consumer<KucoinKline> listener) {
+        this.interval = interval;
+        this.intervalMillis = interval.getSeconds() * 1000L;
+        this.maxFlatCandles = MAX_FLAT_MILLIS / intervalMillis;
+        this.listener = listener;
+    }
+
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    @Override
+    public void onTrade(CurrencyPair pair, long timeMillis, BigDecimal price, BigDecimal size) {
+        final Candle candle = candles.computeIfAbsent(pair, Candle::new);
+        final long start = timeMillis - Math.floorMod(timeMillis, intervalMillis);
+
+        synchronized (candle) {
+            if (candle.start == 0) {
+                candle.start = start;
+            } else if (start < candle.start) {
+                logger.debug("{} late trade at {} dropped", pair, timeMillis);
+                return;
+            } else if (start > candle.start) {
+                advance(candle, start);
+            }
+
+            if (!candle.traded) {
+                candle.traded = true;
+                candle.open = price;
+                candle.high = price;
+                candle.low = price;
+            } else {
+                candle.high = candle.high.max(price);
+                candle.low = candle.low.min(price);
+            }
+            candle.close = price;
+            candle.volume = candle.volume.add(size);
+            candle.amount = candle.amount.add(size.multiply(price));
+        }
+    }
+
+    /**
+     * Closes every candle whose interval ended at or before {@code timeMillis}.
+     */
+    public void closeUntil(long timeMillis) {
+        final long start = timeMillis - Math.floorMod(timeMillis, intervalMillis);
+        for (Candle candle : candles.values()) {
+            synchronized (candle) {
+                if (candle.start != 0 && candle.start < start) {
+                    advance(candle, start);
+                }
+            }
+        }
+    }
+
+    private void advance(Candle candle, long start) {
+        emit(candle);
+        long flat = 0;
+        for (long next = candle.start + intervalMillis; next < start && flat < maxFlatCandles; next += intervalMillis, flat++) {
+            candle.reset(next);
+            emit(candle);
+        }
+        candle.reset(start);
+    }
+
+    private void emit(Candle candle) {
+        if (candle.open == null || candle.partial) {
+            return;
+        }
+        listener.accept(new KucoinKline(candle.pair, interval, new Object[]{
+                candle.start / 1000,
+                candle.open,
+                candle.close,
+                candle.high,
+                candle.low,
+                candle.volume,
+                candle.amount}));
+    }
+
+    private static class Candle {
+        private final CurrencyPair pair;
+        private long start;
+        private BigDecimal open;
+        private BigDecimal high;
+        private BigDecimal low;
+        private BigDecimal close;
+        private BigDecimal volume = BigDecimal.ZERO;
+        private BigDecimal amount = BigDecimal.ZERO;
+        private boolean traded;
+        /** Whether the candle was not started on its interval's boundary, only the pair's first one is. */
+        private boolean partial = true;
+
+        Candle(CurrencyPair pair) {
+            this.pair = pair;
+        }
+
+        /** Starts the next interval flat at the previous close. */
+        void reset(long nextStart) {
+            start = nextStart;
+            open = close;
+            high = close;
+            low = close;
+            volume = BigDecimal.ZERO;
+            amount = BigDecimal.ZERO;
+            traded = false;
+            partial = false;
+        }
+    }
+}
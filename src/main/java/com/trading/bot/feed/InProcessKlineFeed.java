@@ -0,0 +1,30 @@
+package com.trading.bot.feed;
+
+import org.knowm.xchange.currency.CurrencyPair;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+
+/**
+ * Feed driven by the caller, used to replay trades without a network connection.
+ */
+public class InProcessKlineFeed implements KlineFeed {
+    private volatile TradeListener listener;
+
+    @Override
+    public void start(Collection<CurrencyPair> pairs, TradeListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void stop() {
+        listener = null;
+    }
+
+    public void publish(CurrencyPair pair, long timeMillis, BigDecimal price, BigDecimal size) {
+        final TradeListener current = listener;
+        if (current != null) {
+            current.onTrade(pair, timeMillis, price, size);
+        }
+    }
+}
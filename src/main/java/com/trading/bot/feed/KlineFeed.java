@@ -0,0 +1,14 @@
+package com.trading.bot.feed;
+
+import org.knowm.xchange.currency.CurrencyPair;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Pushes the trades of the subscribed pairs as they happen, the {@link BarAggregator} turns them into klines.
+ */
+public interface KlineFeed {
+    void start(Collection<CurrencyPair> pairs, TradeListener listener) throws IOException;
+    void stop();
+}
@@ -0,0 +1,75 @@
+package com.trading.bot.feed;
+
+import com.trading.bot.logic.Trader;
+import com.trading.bot.logic.TraderRegistry;
+import com.trading.bot.repository.KlineResampler;
+import com.trading.bot.scheduler.TraderScheduler;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.kucoin.dto.KlineIntervalType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.knowm.xchange.kucoin.dto.KlineIntervalType.min5;
+
+/**
+ * Replaces the cron poll of {@link TraderScheduler#sell()} when {@code trader.feed=stream}: trades from the
+ * {@link KlineFeed} are aggregated into candles of {@code kline.base-interval}, these are resampled into 5 minute
+ * candles and each closed candle is dispatched to its trader at once.
+ */
+@Profile("prod")
+@ConditionalOnProperty(name = "trader.feed", havingValue = "stream")
+@Service
+public class KlineStreamService {
+    private final KlineFeed klineFeed;
+    private final TraderRegistry traderRegistry;
+    private final BarAggregator barAggregator;
+    private final long closeDelayMillis;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("kline-close-"));
+
+    public KlineStreamService(KlineFeed klineFeed,
+                              TraderRegistry traderRegistry,
+                              TraderScheduler traderScheduler,
+                              @Value("${kline.base-interval:min1}") KlineIntervalType baseInterval,
+                              @Value("${trader.feed.close-delay-ms:250}") long closeDelayMillis) {
+        this.klineFeed = klineFeed;
+        this.traderRegistry = traderRegistry;
+        this.closeDelayMillis = closeDelayMillis;
+        this.barAggregator = KlineResampler.isDerivable(baseInterval, min5)
+                ? new BarAggregator(baseInterval, new KlineResampler(baseInterval, min5, traderScheduler::onKline))
+                : new BarAggregator(min5, traderScheduler::onKline);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        final List<CurrencyPair> pairs = new ArrayList<>();
+        for (Trader trader : traderRegistry.getTraders()) {
+            pairs.add(trader.getCurrencyPair());
+        }
+        klineFeed.start(pairs, barAggregator);
+
+        // Close candles without a trade in the next interval right after the boundary,
+        // the delay leaves room for trades of the ending interval still in flight.
+        final long intervalMillis = barAggregator.getIntervalMillis();
+        final long now = System.currentTimeMillis();
+        timer.scheduleAtFixedRate(() -> barAggregator.closeUntil(System.currentTimeMillis() - closeDelayMillis),
+                intervalMillis - Math.floorMod(now, intervalMillis) + closeDelayMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        timer.shutdownNow();
+        klineFeed.stop();
+    }
+}
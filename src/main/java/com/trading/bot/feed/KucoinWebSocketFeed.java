@@ -0,0 +1,190 @@
+package com.trading.bot.feed;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.websocket.ClientEndpointConfig;
+import javax.websocket.CloseReason;
+import javax.websocket.ContainerProvider;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.MessageHandler;
+import javax.websocket.Session;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams the public match channel of KuCoin over a websocket and reconnects when the connection drops.
+ */
+@Profile("prod")
+@ConditionalOnProperty(name = "trader.feed", havingValue = "stream")
+@Service
+public class KucoinWebSocketFeed implements KlineFeed {
+    /** KuCoin accepts at most 100 symbols per subscription topic. */
+    private static final int SYMBOLS_PER_TOPIC = 100;
+    private static final long RECONNECT_DELAY_SECONDS = 5;
+
+    protected final Logger logger = LoggerFactory.getLogger(getClass().getName());
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("kucoin-ws-"));
+    private final String apiUrl;
+    private List<CurrencyPair> pairs;
+    private TradeListener listener;
+    private volatile Session session;
+    private ScheduledFuture<?> ping;
+    private volatile boolean running;
+
+    public KucoinWebSocketFeed(@Value("${trader.feed.api-url:https://api.kucoin.com}") String apiUrl) {
+        this.apiUrl = apiUrl;
+    }
+
+    @Override
+    public synchronized void start(Collection<CurrencyPair> pairs, TradeListener listener) throws IOException {
+        this.pairs = new ArrayList<>(pairs);
+        this.listener = listener;
+        running = true;
+        connect();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        disconnect();
+        scheduler.shutdownNow();
+    }
+
+    private synchronized void connect() throws IOException {
+        final JsonNode bullet = requestBullet();
+        final String token = bullet.path("token").asText();
+        final JsonNode server = bullet.path("instanceServers").get(0);
+        final long pingInterval = server.path("pingInterval").asLong(18000);
+        final URI uri = URI.create(server.path("endpoint").asText() + "?token=" + token + "&connectId=" + UUID.randomUUID());
+
+        try {
+            session = ContainerProvider.getWebSocketContainer().connectToServer(new MatchEndpoint(),
+                    ClientEndpointConfig.Builder.create().build(), uri);
+        } catch (javax.websocket.DeploymentException e) {
+            throw new IOException("Cannot connect to " + uri.getHost(), e);
+        }
+
+        for (int from = 0; from < pairs.size(); from += SYMBOLS_PER_TOPIC) {
+            final StringBuilder topic = new StringBuilder("/market/match:");
+            for (int i = from; i < Math.min(from + SYMBOLS_PER_TOPIC, pairs.size()); i++) {
+                topic.append(i == from ? "" : ",").append(pairs.get(i).base).append('-').append(pairs.get(i).counter);
+            }
+            session.getBasicRemote().sendText("{\"id\":\"" + UUID.randomUUID() + "\",\"type\":\"subscribe\",\"topic\":\""
+                    + topic + "\",\"privateChannel\":false,\"response\":true}");
+        }
+
+        ping = scheduler.scheduleAtFixedRate(this::ping, pingInterval, pingInterval, TimeUnit.MILLISECONDS);
+        logger.info("Kline feed connected for {} pairs", pairs.size());
+    }
+
+    private synchronized void disconnect() {
+        if (ping != null) {
+            ping.cancel(false);
+            ping = null;
+        }
+        final Session current = session;
+        session = null;
+        if (current != null && current.isOpen()) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                logger.warn("Kline feed close failed", e);
+            }
+        }
+    }
+
+    private synchronized void reconnect() {
+        if (!running) {
+            return;
+        }
+        disconnect();
+        try {
+            connect();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Kline feed reconnect failed, retry in {}s", RECONNECT_DELAY_SECONDS, e);
+            scheduler.schedule(this::reconnect, RECONNECT_DELAY_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private synchronized void ping() {
+        try {
+            if (session != null && session.isOpen()) {
+                session.getBasicRemote().sendText("{\"id\":\"" + UUID.randomUUID() + "\",\"type\":\"ping\"}");
+            }
+        } catch (IOException e) {
+            logger.warn("Kline feed ping failed", e);
+        }
+    }
+
+    private JsonNode requestBullet() throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(apiUrl + "/api/v1/bullet-public").openConnection();
+        connection.setRequestMethod("POST");
+        connection.setConnectTimeout(10000);
+        connection.setReadTimeout(10000);
+        try (InputStream body = connection.getInputStream()) {
+            return objectMapper.readTree(body).path("data");
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private void onMessage(String message) {
+        try {
+            final JsonNode node = objectMapper.readTree(message);
+            if (!"message".equals(node.path("type").asText())) {
+                return;
+            }
+            final JsonNode data = node.path("data");
+            final String[] symbol = data.path("symbol").asText().split("-");
+            listener.onTrade(new CurrencyPair(symbol[0], symbol[1]),
+                    Long.parseLong(data.path("time").asText()) / 1_000_000L,
+                    new BigDecimal(data.path("price").asText()),
+                    new BigDecimal(data.path("size").asText()));
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Kline feed message skipped: {}", message, e);
+        }
+    }
+
+    private class MatchEndpoint extends Endpoint {
+        @Override
+        public void onOpen(Session session, EndpointConfig config) {
+            session.addMessageHandler(String.class, (MessageHandler.Whole<String>) KucoinWebSocketFeed.this::onMessage);
+        }
+
+        @Override
+        public void onClose(Session session, CloseReason closeReason) {
+            if (running && session == KucoinWebSocketFeed.this.session) {
+                logger.warn("Kline feed closed: {}, reconnecting", closeReason);
+                scheduler.schedule(KucoinWebSocketFeed.this::reconnect, RECONNECT_DELAY_SECONDS, TimeUnit.SECONDS);
+            }
+        }
+
+        @Override
+        public void onError(Session session, Throwable error) {
+            logger.warn("Kline feed error", error);
+        }
+    }
+}
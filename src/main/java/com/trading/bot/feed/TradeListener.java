@@ -0,0 +1,10 @@
+package com.trading.bot.feed;
+
+import org.knowm.xchange.currency.CurrencyPair;
+
+import java.math.BigDecimal;
+
+@FunctionalInterface
+public interface TradeListener {
+    void onTrade(CurrencyPair pair, long timeMillis, BigDecimal price, BigDecimal size);
+}
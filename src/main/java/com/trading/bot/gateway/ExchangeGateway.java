@@ -0,0 +1,192 @@
+package com.trading.bot.gateway;
+
+import com.trading.bot.metrics.TraderMetrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.Builder;
+import lombok.Data;
+import org.knowm.xchange.Exchange;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The only way to the {@link Exchange}. Every call takes a token of its endpoint's bucket, configured with
+ * {@code exchange.gateway.<endpoint>.requests-per-second} and {@code exchange.gateway.<endpoint>.burst},
+ * and identical calls in flight at the same time are sent once and share the answer.
+ * Calls from threads of {@link #threadFactory(Priority, ThreadFactory)} with {@link Priority#LIVE}
+ * take tokens before any waiting call of a lower priority.
+ */
+@Service
+public class ExchangeGateway {
+    private static final ThreadLocal<Priority> PRIORITY = ThreadLocal.withInitial(() -> Priority.BACKTEST);
+
+    private final Exchange exchange;
+    private final TraderMetrics traderMetrics;
+    private final Map<Endpoint, TokenBucket> buckets = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, Counters> counters = new EnumMap<>(Endpoint.class);
+    private final Map<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    public ExchangeGateway(Exchange exchange, TraderMetrics traderMetrics, Environment environment) {
+        this.exchange = exchange;
+        this.traderMetrics = traderMetrics;
+        for (Endpoint endpoint : Endpoint.values()) {
+            final String prefix = "exchange.gateway." + endpoint.key;
+            buckets.put(endpoint, new TokenBucket(
+                    environment.getProperty(prefix + ".requests-per-second", Double.class, endpoint.requestsPerSecond),
+                    environment.getProperty(prefix + ".burst", Double.class, endpoint.burst)));
+            counters.put(endpoint, new Counters());
+            for (Priority priority : Priority.values()) {
+                traderMetrics.exchangeQueue(endpoint.key, priority.name(), () -> buckets.get(endpoint).getWaiting(priority));
+            }
+        }
+    }
+
+    /** Priority of the exchange calls sent from the current thread. */
+    public enum Priority {
+        /** Calls of the live traders. */
+        LIVE,
+        /** Calls of backtests and everything else. */
+        BACKTEST
+    }
+
+    /** Endpoint groups of the KuCoin REST API, each with its own rate limit. */
+    public enum Endpoint {
+        MARKET_DATA("market-data", 10, 10),
+        ACCOUNT("account", 5, 5),
+        TRADE("trade", 10, 5);
+
+        private final String key;
+        private final double requestsPerSecond;
+        private final double burst;
+
+        Endpoint(String key, double requestsPerSecond, double burst) {
+            this.key = key;
+            this.requestsPerSecond = requestsPerSecond;
+            this.burst = burst;
+        }
+    }
+
+    @FunctionalInterface
+    public interface ExchangeCall<T> {
+        T call(Exchange exchange) throws IOException;
+    }
+
+    /**
+     * @return threads of {@code threadFactory} that send their exchange calls with {@code priority}
+     */
+    public static ThreadFactory threadFactory(Priority priority, ThreadFactory threadFactory) {
+        return runnable -> threadFactory.newThread(() -> {
+            PRIORITY.set(priority);
+            runnable.run();
+        });
+    }
+
+    /**
+     * Sends {@code call} when a token of {@code endpoint} is available.
+     *
+     * @param key equal for calls with the same answer, a call with the key of a call in flight waits for its answer
+     *            instead of being sent; null for calls that must always be sent
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T call(Endpoint endpoint, Object key, ExchangeCall<T> call) throws IOException {
+        if (key == null) {
+            return send(endpoint, call);
+        }
+        final CompletableFuture<Object> flight = new CompletableFuture<>();
+        final CompletableFuture<Object> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            counters.get(endpoint).coalesced.incrementAndGet();
+            return (T) await(leader);
+        }
+        try {
+            final T result = send(endpoint, call);
+            flight.complete(result);
+            return result;
+        } catch (Throwable e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    public Map<Endpoint, Statistics> getStatistics() {
+        final Map<Endpoint, Statistics> statistics = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : Endpoint.values()) {
+            final Counters endpointCounters = counters.get(endpoint);
+            final long requests = endpointCounters.requests.get();
+            statistics.put(endpoint, Statistics.builder()
+                    .requests(requests)
+                    .coalesced(endpointCounters.coalesced.get())
+                    .queuedLive(buckets.get(endpoint).getWaiting(Priority.LIVE))
+                    .queuedBacktest(buckets.get(endpoint).getWaiting(Priority.BACKTEST))
+                    .meanWaitMillis(requests == 0 ? 0 : endpointCounters.waitNanos.get() / 1e6 / requests)
+                    .maxWaitMillis(TimeUnit.NANOSECONDS.toMillis(endpointCounters.maxWaitNanos.get()))
+                    .build());
+        }
+        return statistics;
+    }
+
+    private <T> T send(Endpoint endpoint, ExchangeCall<T> call) throws IOException {
+        final Priority priority = PRIORITY.get();
+        final Counters endpointCounters = counters.get(endpoint);
+        final Timer.Sample sample = traderMetrics.start();
+        final long waitStart = System.nanoTime();
+        buckets.get(endpoint).acquire(priority);
+        final long waitNanos = System.nanoTime() - waitStart;
+        sample.stop(traderMetrics.exchangeWait(endpoint.key, priority.name()));
+
+        endpointCounters.requests.incrementAndGet();
+        endpointCounters.waitNanos.addAndGet(waitNanos);
+        endpointCounters.maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        return call.call(exchange);
+    }
+
+    private static Object await(CompletableFuture<Object> flight) throws IOException {
+        try {
+            return flight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for an exchange call in flight");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException("Exchange call failed", e.getCause());
+        }
+    }
+
+    private static class Counters {
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong coalesced = new AtomicLong();
+        private final AtomicLong waitNanos = new AtomicLong();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+    }
+
+    @Data
+    @Builder
+    public static class Statistics {
+        /** Calls sent to the exchange. */
+        private long requests;
+        /** Calls answered by an identical call in flight. */
+        private long coalesced;
+        private int queuedLive;
+        private int queuedBacktest;
+        /** Wait for a token of the sent calls. */
+        private double meanWaitMillis;
+        private long maxWaitMillis;
+    }
+}
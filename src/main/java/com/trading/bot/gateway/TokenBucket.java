@@ -0,0 +1,70 @@
+package com.trading.bot.gateway;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket of one exchange endpoint: {@code burst} requests may start at once, then one every
+ * {@code 1 / requestsPerSecond}. A caller waits while a caller of a higher priority is waiting.
+ */
+class TokenBucket {
+    private final double burst;
+    private final double tokensPerNano;
+    private final int[] waiting = new int[ExchangeGateway.Priority.values().length];
+    private double tokens;
+    private long refilledAt = System.nanoTime();
+
+    TokenBucket(double requestsPerSecond, double burst) {
+        this.burst = burst;
+        this.tokensPerNano = requestsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.tokens = burst;
+    }
+
+    /**
+     * Blocks until the caller may send its request.
+     */
+    synchronized void acquire(ExchangeGateway.Priority priority) throws InterruptedIOException {
+        waiting[priority.ordinal()]++;
+        try {
+            while (true) {
+                refill();
+                if (tokens >= 1 && !isPreempted(priority)) {
+                    tokens -= 1;
+                    return;
+                }
+                // a preempted caller is woken by the acquire of the caller preempting it
+                final long waitNanos = tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / tokensPerNano);
+                if (waitNanos > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(this, waitNanos);
+                } else {
+                    wait();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a request permit");
+        } finally {
+            waiting[priority.ordinal()]--;
+            notifyAll();
+        }
+    }
+
+    synchronized int getWaiting(ExchangeGateway.Priority priority) {
+        return waiting[priority.ordinal()];
+    }
+
+    private boolean isPreempted(ExchangeGateway.Priority priority) {
+        for (int higher = 0; higher < priority.ordinal(); higher++) {
+            if (waiting[higher] > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void refill() {
+        final long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+    }
+}
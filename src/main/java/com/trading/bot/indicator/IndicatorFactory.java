@@ -0,0 +1,105 @@
+package com.trading.bot.indicator;
+
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.Indicator;
+import org.ta4j.core.indicators.EMAIndicator;
+import org.ta4j.core.indicators.SMAIndicator;
+import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
+import org.ta4j.core.indicators.helpers.CombineIndicator;
+import org.ta4j.core.num.Num;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Builds the indicators of one series as a shared graph: asking twice for the same type, parameters and input
+ * returns the same node, so strategies built through one factory compute and cache every distinct indicator once.
+ * Not thread-safe, like the series and the ta4j indicator caches it builds on.
+ */
+public class IndicatorFactory {
+    private final BarSeries series;
+    private final Map<List<Object>, Indicator<Num>> nodes = new HashMap<>();
+    /** Nodes in creation order, every node after its inputs. */
+    private final List<Indicator<Num>> order = new ArrayList<>();
+    private int requests;
+
+    public IndicatorFactory(BarSeries series) {
+        if (series == null) {
+            throw new IllegalArgumentException("Series cannot be null");
+        }
+        this.series = series;
+    }
+
+    public BarSeries getSeries() {
+        return series;
+    }
+
+    public Indicator<Num> closePrice() {
+        return node(() -> new ClosePriceIndicator(series), "close");
+    }
+
+    public Indicator<Num> sma(Indicator<Num> input, int barCount) {
+        return node(() -> new SMAIndicator(input, barCount), "sma", input, barCount);
+    }
+
+    public Indicator<Num> ema(Indicator<Num> input, int barCount) {
+        return node(() -> new EMAIndicator(input, barCount), "ema", input, barCount);
+    }
+
+    public Indicator<Num> difference(Indicator<Num> left, Indicator<Num> right) {
+        return node(() -> new CombineIndicator(left, right, Num::minus), "difference", left, right);
+    }
+
+    /**
+     * @return the short EMA minus the long EMA of {@code input}, the EMAs are nodes of their own
+     * and shared with every other MACD of the same input and bar count
+     */
+    public Indicator<Num> macd(Indicator<Num> input, int shortBarCount, int longBarCount) {
+        return difference(ema(input, shortBarCount), ema(input, longBarCount));
+    }
+
+    /**
+     * Computes every node at {@code index} once, inputs first, so the rules of all strategies
+     * read cached values afterwards.
+     */
+    public void evaluate(int index) {
+        for (Indicator<Num> node : order) {
+            node.getValue(index);
+        }
+    }
+
+    /**
+     * @return distinct indicators built so far
+     */
+    public int size() {
+        return order.size();
+    }
+
+    /**
+     * @return indicators asked for, shared ones counted every time
+     */
+    public int getRequests() {
+        return requests;
+    }
+
+    public List<Indicator<Num>> getNodes() {
+        return Collections.unmodifiableList(order);
+    }
+
+    private Indicator<Num> node(Supplier<Indicator<Num>> indicator, Object... key) {
+        requests++;
+        final List<Object> nodeKey = Arrays.asList(key);
+        Indicator<Num> node = nodes.get(nodeKey);
+        if (node == null) {
+            node = indicator.get();
+            nodes.put(nodeKey, node);
+            order.add(node);
+        }
+        return node;
+    }
+}
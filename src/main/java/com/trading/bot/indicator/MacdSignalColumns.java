@@ -0,0 +1,176 @@
+package com.trading.bot.indicator;
+
+import com.trading.bot.configuration.MovingStrategy;
+
+/**
+ * Columnar batch version of {@link MacdSignalEngine} for backtests. A chunk of close prices is turned into
+ * SMA, MACD, signal and histogram columns and entry and exit bitsets in a few tight loops over
+ * {@code double[]}, the EMA state is carried over so consecutive chunks continue one series.
+ * The arithmetic is done in the same order as the engine, so every value is bit for bit the same.
+ */
+public class MacdSignalColumns {
+    private final int smaBarCount;
+    private final double shortMultiplier;
+    private final double longMultiplier;
+    private final double signalMultiplier;
+    /** The last {@code smaBarCount - 1} closes of the previous chunks followed by the current chunk. */
+    private double[] close = new double[0];
+    private double[] sma = new double[0];
+    private double[] macd = new double[0];
+    private double[] signal = new double[0];
+    private double[] histogram = new double[0];
+    private long[] entries = new long[0];
+    private long[] exits = new long[0];
+    private int count;
+    private long barCount;
+    private double shortEma;
+    private double longEma;
+    private double lastSignal;
+    private double lastHistogram;
+
+    public MacdSignalColumns() {
+        this(MovingStrategy.SMA_BAR_COUNT, MovingStrategy.MACD_SHORT_BAR_COUNT,
+                MovingStrategy.MACD_LONG_BAR_COUNT, MovingStrategy.SIGNAL_BAR_COUNT);
+    }
+
+    public MacdSignalColumns(int smaBarCount, int shortBarCount, int longBarCount, int signalBarCount) {
+        if (shortBarCount > longBarCount) {
+            throw new IllegalArgumentException("Long term period count must be greater than short term period count");
+        }
+        this.smaBarCount = smaBarCount;
+        shortMultiplier = 2.0 / (shortBarCount + 1);
+        longMultiplier = 2.0 / (longBarCount + 1);
+        signalMultiplier = 2.0 / (signalBarCount + 1);
+    }
+
+    /**
+     * Computes the columns of the next {@code length} bars, the columns of the previous chunk are overwritten.
+     */
+    public void compute(double[] closePrices, int length) {
+        if (length == 0) {
+            return;
+        }
+        final int carry = smaBarCount - 1;
+        if (close.length < carry + length) {
+            resize(carry + length);
+        }
+        if (count > 0) {
+            System.arraycopy(close, count, close, 0, carry);
+        }
+        System.arraycopy(closePrices, 0, close, carry, length);
+        count = length;
+
+        // SMA, oldest close first like the engine, bars before a full window average what there is
+        final int warmUp = (int) Math.max(0, Math.min(length, carry - barCount));
+        for (int i = 0; i < warmUp; i++) {
+            final int available = (int) (barCount + i + 1);
+            double sum = 0;
+            for (int w = available - 1; w >= 0; w--) {
+                sum += close[carry + i - w];
+            }
+            sma[i] = sum / available;
+        }
+        for (int i = warmUp; i < length; i++) {
+            sma[i] = 0;
+        }
+        for (int w = carry; w >= 0; w--) {
+            for (int i = warmUp; i < length; i++) {
+                sma[i] += close[carry + i - w];
+            }
+        }
+        for (int i = warmUp; i < length; i++) {
+            sma[i] /= smaBarCount;
+        }
+
+        // EMAs are a recurrence, one sequential pass
+        int first = 0;
+        if (barCount == 0) {
+            shortEma = sma[0];
+            longEma = sma[0];
+            macd[0] = shortEma - longEma;
+            signal[0] = macd[0];
+            first = 1;
+        }
+        double signalValue = first == 0 ? lastSignal : signal[0];
+        for (int i = first; i < length; i++) {
+            shortEma = (sma[i] - shortEma) * shortMultiplier + shortEma;
+            longEma = (sma[i] - longEma) * longMultiplier + longEma;
+            final double macdValue = shortEma - longEma;
+            signalValue = (macdValue - signalValue) * signalMultiplier + signalValue;
+            macd[i] = macdValue;
+            signal[i] = signalValue;
+        }
+
+        for (int i = 0; i < length; i++) {
+            histogram[i] = macd[i] - signal[i];
+        }
+
+        final int words = (length + 63) >>> 6;
+        for (int word = 0; word < words; word++) {
+            entries[word] = 0;
+            exits[word] = 0;
+        }
+        double previousHistogram = barCount == 0 ? histogram[0] : lastHistogram;
+        for (int i = 0; i < length; i++) {
+            final long bit = 1L << i;
+            if (macd[i] < signal[i] && histogram[i] > previousHistogram) {
+                entries[i >>> 6] |= bit;
+            }
+            if (macd[i] > signal[i] && histogram[i] < previousHistogram) {
+                exits[i >>> 6] |= bit;
+            }
+            previousHistogram = histogram[i];
+        }
+
+        lastSignal = signal[length - 1];
+        lastHistogram = histogram[length - 1];
+        barCount += length;
+    }
+
+    public void reset() {
+        count = 0;
+        barCount = 0;
+    }
+
+    /** Bars computed over all chunks. */
+    public long getBarCount() {
+        return barCount;
+    }
+
+    public boolean isEntry(int index) {
+        return (entries[index >>> 6] & 1L << index) != 0;
+    }
+
+    public boolean isExit(int index) {
+        return (exits[index >>> 6] & 1L << index) != 0;
+    }
+
+    public double getSma(int index) {
+        return sma[index];
+    }
+
+    public double getMacd(int index) {
+        return macd[index];
+    }
+
+    public double getSignal(int index) {
+        return signal[index];
+    }
+
+    public double getHistogram(int index) {
+        return histogram[index];
+    }
+
+    private void resize(int capacity) {
+        final double[] resized = new double[capacity];
+        System.arraycopy(close, 0, resized, 0, close.length);
+        close = resized;
+        final int length = capacity - (smaBarCount - 1);
+        sma = new double[length];
+        macd = new double[length];
+        signal = new double[length];
+        histogram = new double[length];
+        entries = new long[(length + 63) >>> 6];
+        exits = new long[(length + 63) >>> 6];
+    }
+}
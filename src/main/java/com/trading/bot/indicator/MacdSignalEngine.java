@@ -0,0 +1,105 @@
+package com.trading.bot.indicator;
+
+import com.trading.bot.configuration.MovingStrategy;
+
+/**
+ * Incremental {@code double} version of the {@link MovingStrategy} indicator chain:
+ * close price, SMA, MACD of the SMA, EMA signal of the MACD and the histogram between them.
+ * Each {@link #next(double)} does constant work and allocates nothing, values follow the ta4j
+ * definitions so the entry and exit decisions match the strategy built on a {@code BarSeries}.
+ */
+public class MacdSignalEngine {
+    private final double[] window;
+    private final double shortMultiplier;
+    private final double longMultiplier;
+    private final double signalMultiplier;
+    private long barCount;
+    private double sma;
+    private double shortEma;
+    private double longEma;
+    private double macd;
+    private double signal;
+    private double histogram;
+    private double previousHistogram;
+
+    public MacdSignalEngine() {
+        this(MovingStrategy.SMA_BAR_COUNT, MovingStrategy.MACD_SHORT_BAR_COUNT,
+                MovingStrategy.MACD_LONG_BAR_COUNT, MovingStrategy.SIGNAL_BAR_COUNT);
+    }
+
+    public MacdSignalEngine(int smaBarCount, int shortBarCount, int longBarCount, int signalBarCount) {
+        if (shortBarCount > longBarCount) {
+            throw new IllegalArgumentException("Long term period count must be greater than short term period count");
+        }
+        window = new double[smaBarCount];
+        shortMultiplier = 2.0 / (shortBarCount + 1);
+        longMultiplier = 2.0 / (longBarCount + 1);
+        signalMultiplier = 2.0 / (signalBarCount + 1);
+    }
+
+    public void next(double closePrice) {
+        window[(int) (barCount % window.length)] = closePrice;
+        final int count = (int) Math.min(barCount + 1, window.length);
+
+        double sum = 0;
+        for (int i = count - 1; i >= 0; i--) {
+            sum += window[(int) ((barCount - i) % window.length)];
+        }
+        sma = sum / count;
+
+        if (barCount == 0) {
+            shortEma = sma;
+            longEma = sma;
+            macd = shortEma - longEma;
+            signal = macd;
+            histogram = macd - signal;
+            previousHistogram = histogram;
+        } else {
+            shortEma = (sma - shortEma) * shortMultiplier + shortEma;
+            longEma = (sma - longEma) * longMultiplier + longEma;
+            macd = shortEma - longEma;
+            signal = (macd - signal) * signalMultiplier + signal;
+            previousHistogram = histogram;
+            histogram = macd - signal;
+        }
+        barCount++;
+    }
+
+    /** MACD under its signal while the histogram rises. */
+    public boolean shouldEnter() {
+        return barCount > 0 && macd < signal && histogram > previousHistogram;
+    }
+
+    /** MACD over its signal while the histogram falls. */
+    public boolean shouldExit() {
+        return barCount > 0 && macd > signal && histogram < previousHistogram;
+    }
+
+    public void reset() {
+        barCount = 0;
+    }
+
+    public long getBarCount() {
+        return barCount;
+    }
+
+    public double getSma() {
+        return sma;
+    }
+
+    public double getMacd() {
+        return macd;
+    }
+
+    public double getSignal() {
+        return signal;
+    }
+
+    public double getHistogram() {
+        return histogram;
+    }
+
+    public double getPreviousHistogram() {
+        return previousHistogram;
+    }
+}
@@ -0,0 +1,183 @@
+package com.trading.bot.journal;
+
+import org.knowm.xchange.dto.Order;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Append-only memory-mapped journal of the trade state of one pair.
+ * Every record holds the whole state after its event, so replay only has to find the last valid record.
+ * Appends write to the mapping and never block on the disk, {@link #sync()} forces them in batches.
+ * When the file is full it is compacted into a single snapshot record, which bounds the replay.
+ * <p>
+ * Record layout, {@value #RECORD_SIZE} bytes: crc32 of the rest, sequence, epoch millis, event,
+ * trade status, order side, then the ask order price and the order id as length prefixed UTF-8.
+ */
+public class TradeJournal implements Closeable {
+    public enum Event { SNAPSHOT, STATUS, ORDER_PLACED, ORDER_CANCELED }
+
+    static final int RECORD_SIZE = 128;
+    private static final int HEADER_SIZE = 24;
+    private static final Order.OrderType[] SIDES = Order.OrderType.values();
+
+    private final Path path;
+    private final int capacity;
+    private final CRC32 crc = new CRC32();
+    private final byte[] record = new byte[RECORD_SIZE];
+    private final ByteBuffer view = ByteBuffer.wrap(record);
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private TradeState state;
+    private long sequence;
+    private int size;
+    private volatile boolean dirty;
+
+    /**
+     * Opens the journal and replays it, a journal that was not empty is compacted right away.
+     *
+     * @param capacity records the file holds before it is compacted
+     */
+    public TradeJournal(Path path, int capacity) throws IOException {
+        this.path = path;
+        this.capacity = capacity;
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        channel = FileChannel.open(path, CREATE, READ, WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * RECORD_SIZE);
+        replay();
+        if (state != null) {
+            compact();
+        }
+    }
+
+    /**
+     * @return state of the last valid record, null for a new journal
+     */
+    public synchronized TradeState getState() {
+        return state;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized void append(Event event, TradeState state) throws IOException {
+        if (size == capacity) {
+            compact();
+        }
+        write(buffer, size++, ++sequence, event, state);
+        this.state = state;
+        dirty = true;
+    }
+
+    /**
+     * Forces appended records to the disk, does nothing when nothing was appended since the last sync.
+     */
+    public void sync() {
+        if (dirty) {
+            dirty = false;
+            final MappedByteBuffer current;
+            synchronized (this) {
+                current = buffer;
+            }
+            current.force();
+        }
+    }
+
+    /**
+     * Rewrites the journal as one snapshot of the current state. The snapshot is written and forced
+     * to a new file which then atomically replaces the journal, a crash leaves either file complete.
+     */
+    public synchronized void compact() throws IOException {
+        final Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        final FileChannel compactedChannel = FileChannel.open(compacted, CREATE, READ, WRITE, TRUNCATE_EXISTING);
+        final MappedByteBuffer compactedBuffer = compactedChannel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * RECORD_SIZE);
+        if (state != null) {
+            write(compactedBuffer, 0, ++sequence, Event.SNAPSHOT, state);
+        }
+        compactedBuffer.force();
+        Files.move(compacted, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        channel.close();
+        channel = compactedChannel;
+        buffer = compactedBuffer;
+        size = state == null ? 0 : 1;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private void replay() {
+        for (int index = 0; index < capacity; index++) {
+            buffer.position(index * RECORD_SIZE);
+            buffer.get(record);
+            final long recordSequence = view.getLong(4);
+            if (recordSequence <= sequence || checksum() != view.getInt(0)) {
+                break;
+            }
+            sequence = recordSequence;
+            state = read();
+            size = index + 1;
+        }
+    }
+
+    private void write(MappedByteBuffer target, int index, long recordSequence, Event event, TradeState state) {
+        Arrays.fill(record, (byte) 0);
+        view.putLong(4, recordSequence);
+        view.putLong(12, System.currentTimeMillis());
+        record[20] = (byte) event.ordinal();
+        record[21] = (byte) state.getTradeStatus().ordinal();
+        record[22] = (byte) (state.getOrderSide() == null ? -1 : state.getOrderSide().ordinal());
+        final int offset = putString(HEADER_SIZE, state.getAskOrderPrice().toPlainString());
+        putString(offset, state.getOrderId());
+        view.putInt(0, checksum());
+
+        target.position(index * RECORD_SIZE);
+        target.put(record);
+    }
+
+    private TradeState read() {
+        final int priceLength = record[HEADER_SIZE];
+        final int idOffset = HEADER_SIZE + 1 + priceLength;
+        return TradeState.builder()
+                .tradeStatus(SIDES[record[21]])
+                .orderSide(record[22] < 0 ? null : SIDES[record[22]])
+                .askOrderPrice(new BigDecimal(new String(record, HEADER_SIZE + 1, priceLength, StandardCharsets.UTF_8)))
+                .orderId(new String(record, idOffset + 1, record[idOffset], StandardCharsets.UTF_8))
+                .build();
+    }
+
+    private int putString(int offset, String value) {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (offset + 1 + bytes.length > RECORD_SIZE || bytes.length > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Journal record cannot hold " + value);
+        }
+        record[offset] = (byte) bytes.length;
+        System.arraycopy(bytes, 0, record, offset + 1, bytes.length);
+        return offset + 1 + bytes.length;
+    }
+
+    private int checksum() {
+        crc.reset();
+        crc.update(record, 4, RECORD_SIZE - 4);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,84 @@
+package com.trading.bot.journal;
+
+import org.knowm.xchange.currency.CurrencyPair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opens one {@link TradeJournal} per pair under {@code trader.journal.path} and forces the appended
+ * records to the disk every {@code trader.journal.sync-interval-ms}, off the trading threads.
+ */
+@Profile("prod")
+@Service
+public class TradeJournalService {
+    protected final Logger logger = LoggerFactory.getLogger(getClass().getName());
+    private final Path directory;
+    private final int capacity;
+    private final long syncIntervalMillis;
+    private final Map<CurrencyPair, TradeJournal> journals = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("journal-"));
+
+    public TradeJournalService(@Value("${trader.journal.path:data/journal}") String directory,
+                               @Value("${trader.journal.capacity:4096}") int capacity,
+                               @Value("${trader.journal.sync-interval-ms:100}") long syncIntervalMillis) {
+        this.directory = Paths.get(directory);
+        this.capacity = capacity;
+        this.syncIntervalMillis = syncIntervalMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::sync, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public TradeJournal getJournal(CurrencyPair pair) throws IOException {
+        TradeJournal journal = journals.get(pair);
+        if (journal == null) {
+            synchronized (journals) {
+                journal = journals.get(pair);
+                if (journal == null) {
+                    journal = new TradeJournal(directory.resolve(pair.base + "-" + pair.counter + ".journal"), capacity);
+                    journals.put(pair, journal);
+                }
+            }
+        }
+        return journal;
+    }
+
+    @PreDestroy
+    public void close() {
+        scheduler.shutdownNow();
+        for (TradeJournal journal : journals.values()) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                logger.warn("Trade journal close failed", e);
+            }
+        }
+    }
+
+    private void sync() {
+        for (TradeJournal journal : journals.values()) {
+            try {
+                journal.sync();
+            } catch (RuntimeException e) {
+                logger.warn("Trade journal sync failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.trading.bot.journal;
+
+import lombok.Builder;
+import lombok.Data;
+import org.knowm.xchange.dto.Order;
+
+import java.math.BigDecimal;
+
+/**
+ * Trading state of one pair as journaled after every transition and order event.
+ */
+@Data
+@Builder
+public class TradeState {
+    private Order.OrderType tradeStatus;
+    /** Side of the placed stop order, null before the first order. */
+    private Order.OrderType orderSide;
+    private String orderId;
+    private BigDecimal askOrderPrice;
+}
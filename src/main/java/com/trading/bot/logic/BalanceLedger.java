@@ -0,0 +1,257 @@
+package com.trading.bot.logic;
+
+import com.trading.bot.gateway.ExchangeGateway;
+import com.trading.bot.metrics.TraderMetrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.Builder;
+import lombok.Data;
+import org.knowm.xchange.currency.Currency;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.dto.Order;
+import org.knowm.xchange.dto.account.Balance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.trading.bot.gateway.ExchangeGateway.Endpoint.ACCOUNT;
+import static com.trading.bot.gateway.ExchangeGateway.Priority.LIVE;
+import static org.knowm.xchange.dto.Order.OrderType.BID;
+
+/**
+ * Local copy of the available balances of the trade wallet. Ticks read it instead of calling
+ * {@code getAccountInfo}, the copy is reconciled with the exchange in the background every
+ * {@code ledger.reconcile-interval-ms} and {@code ledger.fill-settle-ms} after a fill is reported. Until then the
+ * account snapshot may not show the fill yet, so reconciles keep the ledger's balances of the filled pair.
+ * The exchange holds no funds
+ * for a stop order before it triggers, so the ledger {@link #reserve reserves} them for every resting stop
+ * and pairs do not count on funds another pair's stop needs.
+ */
+@Profile("prod")
+@Service
+public class BalanceLedger {
+    private static final String TRADE_WALLET = "trade";
+    /** Key of the account info calls, a reconcile and a trader reading its balance at once share one call. */
+    public static final String ACCOUNT_INFO = "accountInfo";
+
+    protected final Logger logger = LoggerFactory.getLogger(getClass().getName());
+    private final ExchangeGateway exchangeGateway;
+    private final TraderMetrics traderMetrics;
+    private final long reconcileIntervalMillis;
+    private final long fillSettleMillis;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            ExchangeGateway.threadFactory(LIVE, new CustomizableThreadFactory("ledger-")));
+    private final Map<Currency, BigDecimal> balances = new ConcurrentHashMap<>();
+    private final Map<Currency, BigDecimal> drift = new ConcurrentHashMap<>();
+    private final Map<CurrencyPair, Reservation> reservations = new ConcurrentHashMap<>();
+    /** When the last fill changed each currency, until a snapshot taken after it settled. */
+    private final Map<Currency, Long> filledAt = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong reconciles = new AtomicLong();
+    private final AtomicLong drifts = new AtomicLong();
+    private final AtomicLong fills = new AtomicLong();
+    private volatile long reconciledAt;
+
+    public BalanceLedger(ExchangeGateway exchangeGateway,
+                         TraderMetrics traderMetrics,
+                         @Value("${ledger.reconcile-interval-ms:30000}") long reconcileIntervalMillis,
+                         @Value("${ledger.fill-settle-ms:5000}") long fillSettleMillis) {
+        this.exchangeGateway = exchangeGateway;
+        this.traderMetrics = traderMetrics;
+        this.reconcileIntervalMillis = reconcileIntervalMillis;
+        this.fillSettleMillis = fillSettleMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::reconcileQuietly, 0, reconcileIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Served from the ledger unless it was never reconciled or the background reconcile kept failing.
+     */
+    public BigDecimal getAvailable(Currency currency) throws IOException {
+        if (System.currentTimeMillis() - reconciledAt > 3 * reconcileIntervalMillis) {
+            misses.incrementAndGet();
+            reconcile();
+        } else {
+            hits.incrementAndGet();
+        }
+        return balances.getOrDefault(currency, BigDecimal.ZERO);
+    }
+
+    /**
+     * Applies a fill of the pair's stop order, which releases its reservation, and reconciles with the exchange
+     * once the fill settled.
+     */
+    public synchronized void onFill(CurrencyPair pair, Order.OrderType side, BigDecimal amount, BigDecimal price) {
+        final BigDecimal counterAmount = amount.multiply(price);
+        balances.merge(pair.base, side == BID ? amount : amount.negate(), BigDecimal::add);
+        balances.merge(pair.counter, side == BID ? counterAmount.negate() : counterAmount, BigDecimal::add);
+        final long now = System.currentTimeMillis();
+        filledAt.put(pair.base, now);
+        filledAt.put(pair.counter, now);
+        reservations.remove(pair);
+        fills.incrementAndGet();
+        if (!scheduler.isShutdown()) {
+            scheduler.schedule(this::reconcileQuietly, fillSettleMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Reserves what the pair's stop order pays once it fills, instead of the reservation of its previous stop.
+     */
+    public void reserve(CurrencyPair pair, Order.OrderType side, BigDecimal amount, BigDecimal price) {
+        reservations.put(pair, new Reservation(pair, side, amount, price));
+    }
+
+    /**
+     * Releases the reservation of the pair's canceled stop order.
+     */
+    public void release(CurrencyPair pair) {
+        reservations.remove(pair);
+    }
+
+    /**
+     * @return whether the available balance pays for the stop order besides the stops of all other pairs
+     */
+    public boolean canReserve(CurrencyPair pair, Order.OrderType side, BigDecimal amount, BigDecimal price) throws IOException {
+        final Reservation wanted = new Reservation(pair, side, amount, price);
+        BigDecimal free = getAvailable(wanted.currency);
+        for (Reservation reservation : reservations.values()) {
+            if (!reservation.pair.equals(pair) && reservation.currency.equals(wanted.currency)) {
+                free = free.subtract(reservation.amount);
+            }
+        }
+        return free.compareTo(wanted.amount) >= 0;
+    }
+
+    public synchronized void reconcile() throws IOException {
+        final long requestedAt = System.currentTimeMillis();
+        final Timer.Sample sample = traderMetrics.start();
+        final Map<Currency, Balance> actual;
+        try {
+            actual = exchangeGateway.call(ACCOUNT, ACCOUNT_INFO, exchange -> exchange.getAccountService().getAccountInfo())
+                    .getWallet(TRADE_WALLET).getBalances();
+        } finally {
+            sample.stop(traderMetrics.exchangeCall("getAccountInfo", null, null));
+        }
+        boolean drifted = false;
+
+        for (Map.Entry<Currency, BigDecimal> entry : balances.entrySet()) {
+            if (!actual.containsKey(entry.getKey()) && entry.getValue().signum() != 0 && !isSettling(entry.getKey(), requestedAt)) {
+                drift.put(entry.getKey(), entry.getValue().negate());
+                entry.setValue(BigDecimal.ZERO);
+                drifted = true;
+            }
+        }
+        for (Balance balance : actual.values()) {
+            if (isSettling(balance.getCurrency(), requestedAt)) {
+                continue;
+            }
+            // A currency new since the last reconcile drifted from zero
+            final BigDecimal previous = balances.put(balance.getCurrency(), balance.getAvailable());
+            final BigDecimal known = previous == null && reconciledAt != 0 ? BigDecimal.ZERO : previous;
+            if (known != null && known.compareTo(balance.getAvailable()) != 0) {
+                drift.put(balance.getCurrency(), balance.getAvailable().subtract(known));
+                drifted = true;
+            }
+        }
+
+        if (drifted && reconciledAt != 0) {
+            drifts.incrementAndGet();
+        }
+        reconciles.incrementAndGet();
+        reconciledAt = System.currentTimeMillis();
+    }
+
+    public Statistics getStatistics() {
+        final Map<Currency, BigDecimal> reserved = new HashMap<>();
+        for (Reservation reservation : reservations.values()) {
+            reserved.merge(reservation.currency, reservation.amount, BigDecimal::add);
+        }
+        return Statistics.builder()
+                .hits(hits.get())
+                .misses(misses.get())
+                .reconciles(reconciles.get())
+                .drifts(drifts.get())
+                .fills(fills.get())
+                .reconciledAt(reconciledAt)
+                .lastDrift(new HashMap<>(drift))
+                .reserved(reserved)
+                .build();
+    }
+
+    /**
+     * @return whether a snapshot requested at {@code requestedAt} may not show the last fill of the currency yet
+     */
+    private boolean isSettling(Currency currency, long requestedAt) {
+        final Long filled = filledAt.get(currency);
+        if (filled == null) {
+            return false;
+        }
+        if (requestedAt - filled < fillSettleMillis) {
+            return true;
+        }
+        filledAt.remove(currency, filled);
+        return false;
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Balance reconcile failed", e);
+        }
+    }
+
+    /**
+     * A buy stop pays the counter currency at its stop price, a sell stop pays the base amount.
+     */
+    private static class Reservation {
+        private final CurrencyPair pair;
+        private final Currency currency;
+        private final BigDecimal amount;
+
+        Reservation(CurrencyPair pair, Order.OrderType side, BigDecimal amount, BigDecimal price) {
+            this.pair = pair;
+            this.currency = side == BID ? pair.counter : pair.base;
+            this.amount = side == BID ? amount.multiply(price) : amount;
+        }
+    }
+
+    @Data
+    @Builder
+    public static class Statistics {
+        private long hits;
+        private long misses;
+        private long reconciles;
+        /** Reconciles that found a balance different from the ledger. */
+        private long drifts;
+        private long fills;
+        private long reconciledAt;
+        private Map<Currency, BigDecimal> lastDrift;
+        /** Funds held for the resting stop orders. */
+        private Map<Currency, BigDecimal> reserved;
+    }
+}
@@ -1,104 +1,196 @@
 package com.trading.bot.logic;
 
 import com.trading.bot.configuration.MovingStrategy;
-import org.knowm.xchange.Exchange;
-import org.knowm.xchange.currency.Currency;
+import com.trading.bot.gateway.ExchangeGateway;
+import com.trading.bot.indicator.MacdSignalEngine;
+import com.trading.bot.journal.TradeJournal;
+import com.trading.bot.journal.TradeState;
+import com.trading.bot.metrics.TraderMetrics;
+import com.trading.bot.order.OrderClient;
+import com.trading.bot.order.OrderCompletion;
+import com.trading.bot.order.OrderPipeline;
+import com.trading.bot.trace.DecisionTrace;
+import io.micrometer.core.instrument.Timer;
+import org.knowm.xchange.currency.CurrencyPair;
 import org.knowm.xchange.dto.Order;
 import org.knowm.xchange.dto.trade.StopOrder;
 import org.knowm.xchange.kucoin.dto.response.KucoinKline;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.annotation.Profile;
-import org.springframework.stereotype.Service;
 import org.ta4j.core.BarSeries;
 import org.ta4j.core.BaseBarSeries;
-import org.ta4j.core.Strategy;
 
-import javax.annotation.PostConstruct;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.*;
 
-import static com.trading.bot.configuration.BotConfig.CURRENCY_PAIR;
+import static com.trading.bot.gateway.ExchangeGateway.Endpoint.ACCOUNT;
+import static com.trading.bot.gateway.ExchangeGateway.Endpoint.TRADE;
 import static org.knowm.xchange.dto.Order.OrderType.ASK;
 import static org.knowm.xchange.dto.Order.OrderType.BID;
 
-@Profile("prod")
-@Service
+/**
+ * Trading state of one currency pair, instances are created per pair by the {@link TraderRegistry}.
+ * With an {@link OrderPipeline} the stop orders are sent in the background and their outcome is applied
+ * at the start of the next tick, without one every order call is made on the tick. Every tick is recorded
+ * in the {@link DecisionTrace} of the pair, if it has one.
+ */
 public class ExchangeTrader implements Trader {
+    /** Distance of the stop orders from the close, in percent. */
+    public static final BigDecimal STOP_ORDER_PERCENT = BigDecimal.valueOf(0.5F);
 
-    @Value("${trader.buylimit}")
-    public BigDecimal tradeLimit;
+    public final BigDecimal tradeLimit;
 
   //  @Value("${trader.stopOrderPercent}")
-    private BigDecimal stopOrderPercent = BigDecimal.valueOf(0.5F);
+    private BigDecimal stopOrderPercent = STOP_ORDER_PERCENT;
 
     protected final Logger logger = LoggerFactory.getLogger(getClass().getName());
-    private final Exchange exchange;
+    private final ExchangeGateway exchangeGateway;
+    private final CurrencyPair currencyPair;
+    private final BalanceLedger balanceLedger;
+    private final TraderMetrics traderMetrics;
+    private final TradeJournal tradeJournal;
+    private Order.OrderType orderSide;
     private Order.OrderType tradeStatus = ASK;
     public String orderId = "";
     public final BarSeries barSeries;
-    private final Strategy strategy;
-    private BigDecimal bidOrderPercent;
-    private BigDecimal askOrderPercent;
+    protected final MacdSignalEngine signalEngine;
+    private final BigDecimal bidOrderPercent;
+    private final BigDecimal askOrderPercent;
     private BigDecimal askOrderPrice = BigDecimal.ZERO;
+    /** Stop price of the resting order, null when none rests or it is not known. */
+    private BigDecimal orderPrice;
+    private final OrderPipeline.Slot orders;
+    private boolean placeOrders;
+    private DecisionTrace decisionTrace = DecisionTrace.disabled();
+    private BigDecimal minPosition;
 
-    public ExchangeTrader(Exchange exchange) {
-        this.exchange = exchange;
-        barSeries = new BaseBarSeries();
-        strategy = MovingStrategy.buildStrategy(barSeries);
+    public ExchangeTrader(ExchangeGateway exchangeGateway, CurrencyPair currencyPair, BigDecimal tradeLimit) {
+        this(exchangeGateway, currencyPair, tradeLimit, null, TraderMetrics.noop(), null);
     }
 
-    @PostConstruct
-    public void postConstruct() {
+    /**
+     * @param balanceLedger local balances, without a ledger every balance is read from the exchange
+     * @param tradeJournal journal the trader resumes its state from and records every change to, may be null
+     */
+    public ExchangeTrader(ExchangeGateway exchangeGateway, CurrencyPair currencyPair, BigDecimal tradeLimit,
+                          BalanceLedger balanceLedger, TraderMetrics traderMetrics, TradeJournal tradeJournal) {
+        this(exchangeGateway, currencyPair, tradeLimit, balanceLedger, traderMetrics, tradeJournal, null);
+    }
+
+    /**
+     * @param orderPipeline sends the stop orders in the background, without a pipeline they are sent on the tick
+     */
+    public ExchangeTrader(ExchangeGateway exchangeGateway, CurrencyPair currencyPair, BigDecimal tradeLimit,
+                          BalanceLedger balanceLedger, TraderMetrics traderMetrics, TradeJournal tradeJournal,
+                          OrderPipeline orderPipeline) {
+        this.exchangeGateway = exchangeGateway;
+        this.currencyPair = currencyPair;
+        this.balanceLedger = balanceLedger;
+        this.traderMetrics = traderMetrics;
+        this.tradeJournal = tradeJournal;
+        this.tradeLimit = tradeLimit;
+        this.minPosition = tradeLimit.divide(BigDecimal.valueOf(2));
+        barSeries = new BaseBarSeries(currencyPair.toString());
+        barSeries.setMaximumBarCount(MovingStrategy.MAXIMUM_BAR_COUNT);
+        signalEngine = new MacdSignalEngine();
         bidOrderPercent = BigDecimal.valueOf(100).add(stopOrderPercent).multiply(BigDecimal.valueOf(0.01));
         askOrderPercent = BigDecimal.valueOf(100).subtract(stopOrderPercent).multiply(BigDecimal.valueOf(0.01));
+
+        final TradeState state = tradeJournal == null ? null : tradeJournal.getState();
+        if (state != null) {
+            tradeStatus = state.getTradeStatus();
+            orderSide = state.getOrderSide();
+            orderId = state.getOrderId();
+            askOrderPrice = state.getAskOrderPrice();
+            if (orderSide == ASK && !orderId.isEmpty()) {
+                orderPrice = askOrderPrice;
+                reserve(ASK, askOrderPrice);
+            }
+            logger.info("{} resumed {} StopOrder {} {} Price {}", currencyPair, tradeStatus, orderSide, orderId, askOrderPrice);
+        }
+        orders = orderPipeline == null ? null : orderPipeline.open(currencyPair, new GatewayOrderClient(), orderId, orderSide);
+    }
+
+    /**
+     * @param placeOrders whether stop orders are sent to the exchange, without it they are only logged
+     */
+    public void setPlaceOrders(boolean placeOrders) {
+        this.placeOrders = placeOrders;
+    }
+
+    /**
+     * @param minPosition base balance from which the trader holds a position, half the trade limit by default
+     */
+    public void setMinPosition(BigDecimal minPosition) {
+        this.minPosition = minPosition;
+    }
+
+    public void setDecisionTrace(DecisionTrace decisionTrace) {
+        this.decisionTrace = decisionTrace;
+    }
+
+    @Override
+    public CurrencyPair getCurrencyPair() {
+        return currencyPair;
     }
 
 
     public void next(KucoinKline lastKline) throws IOException {
+        final long tickStart = System.nanoTime();
         loadBarSeries(lastKline);
+        decisionTrace.begin(lastKline.getTime(), lastKline.getClose().doubleValue(), signalEngine, tradeStatus.equals(BID));
+        try {
+            applyCompletions(lastKline);
 
-        if (tradeStatus.equals(ASK)) {
-            tradeBID(lastKline);
-            return;
-        }
+            if (tradeStatus.equals(ASK)) {
+                tradeBID(lastKline);
+                return;
+            }
 
-        if (tradeStatus.equals(BID)) {
-            tradeASK(lastKline);
+            if (tradeStatus.equals(BID)) {
+                tradeASK(lastKline);
+            }
+        } finally {
+            decisionTrace.commit(System.nanoTime() - tickStart);
         }
     }
 
     private void tradeBID(KucoinKline lastKline) throws IOException {
-        BigDecimal baseBalance = getBalance();
-        if (baseBalance.compareTo(BigDecimal.ONE) >= 0) {
+        BigDecimal baseBalance = getTracedBalance();
+        if (baseBalance.compareTo(minPosition) >= 0) {
             // Buy
-            logger.info("BID StopOrder {} submitted, change to IN_BID", orderId);
+            logger.info("{} BID StopOrder {} submitted, change to IN_BID", currencyPair, orderId);
+            decisionTrace.action(DecisionTrace.Action.BOUGHT);
             tradeStatus = BID;
+            journal(TradeJournal.Event.STATUS);
         } else {
-            if (!orderId.isEmpty()) {
-                // Cancel
-                cancelOrder();
-            }
-
-            if (strategy.shouldEnter(barSeries.getEndIndex())) {
-                // New
+            if (signalEngine.shouldEnter()) {
+                // Cancel and New
                 BigDecimal stopOrderPrice = lastKline.getClose().multiply(bidOrderPercent);
                 stopOrderPrice = stopOrderPrice.compareTo(lastKline.getHigh()) > 0 ? stopOrderPrice : lastKline.getHigh();
-                placeStopOrder(BID, stopOrderPrice);
-                logger.info("StopOrder BID placed {} Price {} Response {}", tradeLimit, stopOrderPrice, orderId);
+                if (balanceLedger != null && !balanceLedger.canReserve(currencyPair, BID, tradeLimit, stopOrderPrice)) {
+                    logger.warn("{} StopOrder BID at {} not covered by the free {} balance", currencyPair, stopOrderPrice, currencyPair.counter);
+                    return;
+                }
+                replaceStopOrder(BID, stopOrderPrice);
+                logger.info("{} StopOrder BID placed {} Price {}", currencyPair, tradeLimit, stopOrderPrice);
+            } else if (hasOrder()) {
+                // Cancel
+                withdrawStopOrder();
             }
         }
     }
 
     private void tradeASK(KucoinKline lastKline) throws IOException {
-        BigDecimal baseBalance = getBalance();
-        if (baseBalance.compareTo(BigDecimal.ONE) < 0) {
+        BigDecimal baseBalance = getTracedBalance();
+        if (baseBalance.compareTo(minPosition) < 0) {
             // Sell
-            logger.info("ASK StopOrder {} submitted, change to IN_ASK", orderId);
+            logger.info("{} ASK StopOrder {} submitted, change to IN_ASK", currencyPair, orderId);
+            decisionTrace.action(DecisionTrace.Action.SOLD);
             tradeStatus = ASK;
             askOrderPrice = BigDecimal.ZERO;
+            journal(TradeJournal.Event.STATUS);
         } else {
 
             // Calc Stop Loss
@@ -108,14 +200,101 @@ public class ExchangeTrader implements Trader {
             if (stopOrderPrice.compareTo(askOrderPrice) > 0) {
                 askOrderPrice = stopOrderPrice;
 
-                if (!orderId.isEmpty()) {
-                    cancelOrder();
+                // Cancel and New
+                replaceStopOrder(ASK, askOrderPrice);
+                logger.info("{} ASK StopOrder ASK placed {} Price {}", currencyPair, tradeLimit, askOrderPrice);
+            }
+        }
+    }
+
+    /**
+     * Replaces the resting stop order, if any, with a new one. Through the pipeline the tick goes on at once.
+     */
+    private void replaceStopOrder(Order.OrderType side, BigDecimal stopOrderPrice) throws IOException {
+        decisionTrace.action(side == BID ? DecisionTrace.Action.PLACE_BID : DecisionTrace.Action.PLACE_ASK);
+        decisionTrace.stopPrice(stopOrderPrice.doubleValue());
+        final long callStart = System.nanoTime();
+        try {
+            if (orders != null) {
+                orderSide = side;
+                orderPrice = stopOrderPrice;
+                reserve(side, stopOrderPrice);
+                orders.replace(side, tradeLimit, stopOrderPrice);
+                return;
+            }
+            if (!orderId.isEmpty()) {
+                cancelOrder();
+                journal(TradeJournal.Event.ORDER_CANCELED);
+            }
+            placeStopOrder(side, stopOrderPrice);
+        } finally {
+            decisionTrace.orderCall(System.nanoTime() - callStart);
+        }
+        journal(TradeJournal.Event.ORDER_PLACED);
+        logger.info("{} StopOrder {} Response {}", currencyPair, side, orderId);
+    }
+
+    private void withdrawStopOrder() throws IOException {
+        decisionTrace.action(DecisionTrace.Action.CANCEL);
+        final long callStart = System.nanoTime();
+        try {
+            if (orders != null) {
+                orderPrice = null;
+                release();
+                orders.cancel();
+                return;
+            }
+            cancelOrder();
+        } finally {
+            decisionTrace.orderCall(System.nanoTime() - callStart);
+        }
+        journal(TradeJournal.Event.ORDER_CANCELED);
+    }
+
+    private boolean hasOrder() {
+        return orders == null ? !orderId.isEmpty() : orders.hasOrder();
+    }
+
+    /**
+     * Takes over the order actions the pipeline finished since the last tick. A sell stop that could not be
+     * placed again after its cancel leaves the position without a stop, so the next tick places it anew.
+     * A resting stop the candle crossed is taken as filled at its stop price: when the ledger does not show
+     * the fill yet, it is applied to the ledger, which reconciles with the exchange right after.
+     */
+    private void applyCompletions(KucoinKline lastKline) throws IOException {
+        for (OrderCompletion completion = orders == null ? null : orders.poll(); completion != null; completion = orders.poll()) {
+            final boolean changed = !orderId.equals(completion.getOrderId());
+            orderId = completion.getOrderId();
+            decisionTrace.completedOrder(completion.getElapsedMillis());
+            if (completion.isFailed()) {
+                logger.warn("{} StopOrder {} {} Price {} failed after {} attempts, resting {}", currencyPair,
+                        completion.getAction(), completion.getSide(), completion.getStopPrice(), completion.getAttempts(), orderId);
+                if (orderId.isEmpty()) {
+                    orderPrice = null;
+                    release();
+                }
+                if (completion.getSide() == ASK && orderId.isEmpty()) {
+                    askOrderPrice = BigDecimal.ZERO;
                 }
+            } else {
+                logger.info("{} StopOrder {} {} Price {} Response {} in {} ms, {} superseded", currencyPair,
+                        completion.getAction(), completion.getSide(), completion.getStopPrice(), orderId,
+                        completion.getElapsedMillis(), completion.getSuperseded());
+            }
+            if (changed || !completion.isFailed()) {
+                journal(orderId.isEmpty() ? TradeJournal.Event.ORDER_CANCELED : TradeJournal.Event.ORDER_PLACED);
+            }
+        }
 
-                // New
-                placeStopOrder(ASK, askOrderPrice);
-                logger.info("ASK StopOrder ASK placed {} Price {} Response {}", tradeLimit, askOrderPrice, orderId);
+        if (balanceLedger != null && orderPrice != null && hasOrder() && (orderSide == BID
+                ? lastKline.getHigh().compareTo(orderPrice) >= 0
+                : lastKline.getLow().compareTo(orderPrice) <= 0)) {
+            final boolean inPosition = balanceLedger.getAvailable(currencyPair.base).compareTo(minPosition) >= 0;
+            if (inPosition != (orderSide == BID)) {
+                logger.info("{} StopOrder {} {} Price {} crossed, fill applied to the ledger", currencyPair, orderSide, orderId, orderPrice);
+                balanceLedger.onFill(currencyPair, orderSide, tradeLimit, orderPrice);
             }
+            orderPrice = null;
         }
     }
 
@@ -128,24 +307,127 @@ public class ExchangeTrader implements Trader {
                     kline.getLow(),
                     kline.getClose(),
                     kline.getVolume());
+            signalEngine.next(kline.getClose().doubleValue());
+        }
+    }
+
+    @Override
+    public int getBarCount() {
+        return barSeries.getBarCount();
+    }
+
+    private BigDecimal getTracedBalance() throws IOException {
+        final long callStart = System.nanoTime();
+        try {
+            return getBalance();
+        } finally {
+            decisionTrace.balanceCall(System.nanoTime() - callStart);
         }
     }
 
     @Override
     public BigDecimal getBalance() throws IOException {
-        return exchange.getAccountService().getAccountInfo().getWallet("trade").getBalance(Currency.SOL).getAvailable();
+        if (balanceLedger != null) {
+            return balanceLedger.getAvailable(currencyPair.base);
+        }
+        final Timer.Sample sample = traderMetrics.start();
+        try {
+            return exchangeGateway.call(ACCOUNT, BalanceLedger.ACCOUNT_INFO, exchange -> exchange.getAccountService().getAccountInfo())
+                    .getWallet("trade").getBalance(currencyPair.base).getAvailable();
+        } finally {
+            sample.stop(traderMetrics.exchangeCall("getAccountInfo", currencyPair, null));
+        }
     }
 
     @Override
     public void placeStopOrder(Order.OrderType bid, BigDecimal stopOrderPrice) throws IOException {
-        StopOrder stopOrder = new StopOrder(bid, tradeLimit, CURRENCY_PAIR, "", null, stopOrderPrice);
-//        orderId = exchange.getTradeService().placeStopOrder(stopOrder);
+        orderId = sendStopOrder(bid, tradeLimit, stopOrderPrice);
+        orderSide = bid;
+        orderPrice = stopOrderPrice;
+        reserve(bid, stopOrderPrice);
     }
 
     @Override
     public void cancelOrder() throws IOException {
-        exchange.getTradeService().cancelOrder(orderId);
-        logger.info("StopOrder {} canceled", orderId);
+        sendCancel(orderId, orderSide);
+        logger.info("{} StopOrder {} canceled", currencyPair, orderId);
         orderId = "";
+        orderPrice = null;
+        release();
+    }
+
+    private void reserve(Order.OrderType side, BigDecimal stopOrderPrice) {
+        if (balanceLedger != null) {
+            balanceLedger.reserve(currencyPair, side, tradeLimit, stopOrderPrice);
+        }
+    }
+
+    private void release() {
+        if (balanceLedger != null) {
+            balanceLedger.release(currencyPair);
+        }
+    }
+
+    /**
+     * @return id of the placed order, empty when orders are not placed
+     */
+    private String sendStopOrder(Order.OrderType side, BigDecimal amount, BigDecimal stopOrderPrice) throws IOException {
+        if (!placeOrders) {
+            return "";
+        }
+        final Timer.Sample sample = traderMetrics.start();
+        StopOrder stopOrder = new StopOrder(side, amount, currencyPair, "", null, stopOrderPrice);
+        final String placedId;
+        try {
+            placedId = exchangeGateway.call(TRADE, null, exchange -> exchange.getTradeService().placeStopOrder(stopOrder));
+        } finally {
+            sample.stop(traderMetrics.exchangeCall("placeStopOrder", currencyPair, side));
+        }
+        traderMetrics.orderAction("placeStopOrder", currencyPair, side).increment();
+        return placedId;
+    }
+
+    private void sendCancel(String cancelId, Order.OrderType side) throws IOException {
+        if (!placeOrders) {
+            return;
+        }
+        final Timer.Sample sample = traderMetrics.start();
+        try {
+            exchangeGateway.call(TRADE, null, exchange -> exchange.getTradeService().cancelOrder(cancelId));
+        } finally {
+            sample.stop(traderMetrics.exchangeCall("cancelOrder", currencyPair, side));
+        }
+        traderMetrics.orderAction("cancelOrder", currencyPair, side).increment();
+    }
+
+    /**
+     * The calls of the pipeline's background actions.
+     */
+    private class GatewayOrderClient implements OrderClient {
+        @Override
+        public String placeStopOrder(Order.OrderType side, BigDecimal amount, BigDecimal stopPrice) throws IOException {
+            return sendStopOrder(side, amount, stopPrice);
+        }
+
+        @Override
+        public void cancelOrder(String orderId, Order.OrderType side) throws IOException {
+            sendCancel(orderId, side);
+        }
+    }
+
+    private void journal(TradeJournal.Event event) {
+        if (tradeJournal == null) {
+            return;
+        }
+        try {
+            tradeJournal.append(event, TradeState.builder()
+                    .tradeStatus(tradeStatus)
+                    .orderSide(orderSide)
+                    .orderId(orderId)
+                    .askOrderPrice(askOrderPrice)
+                    .build());
+        } catch (IOException | RuntimeException e) {
+            logger.error("{} trade journal {} failed", currencyPair, event, e);
+        }
     }
 }
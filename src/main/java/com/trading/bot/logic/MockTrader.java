@@ -1,85 +1,48 @@
 package com.trading.bot.logic;
 
-import lombok.Builder;
-import lombok.Data;
-import org.knowm.xchange.Exchange;
+import com.trading.bot.backtest.TextTradeReport;
+import com.trading.bot.backtest.TradeReport;
+import com.trading.bot.simulation.Fill;
+import com.trading.bot.simulation.FillModel;
+import com.trading.bot.simulation.MatchingEngine;
+import org.knowm.xchange.currency.CurrencyPair;
 import org.knowm.xchange.dto.Order;
 import org.knowm.xchange.kucoin.dto.response.KucoinKline;
 
-import org.springframework.context.annotation.Profile;
-import org.springframework.stereotype.Service;
-
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.text.DecimalFormat;
-import java.time.*;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.UUID;
 
 import static org.knowm.xchange.dto.Order.OrderType.BID;
 
-@Profile("test")
-@Service
+/**
+ * Simulates the stop orders of an {@link ExchangeTrader} on a {@link MatchingEngine} fed with the klines
+ * the trader is fed, backtests create one instance per run.
+ */
 public class MockTrader extends ExchangeTrader {
 
-    private StopOrder stopOrderBID;
-    private StopOrder stopOrderASK;
+    private final MatchingEngine matchingEngine;
     public BigDecimal walletUSDT;
     private BigDecimal walletBase = BigDecimal.valueOf(0);
-    public List<String> listResult = new ArrayList<>();
+    private Fill bidFill;
+    private BigDecimal bidWalletUSDT;
+    public TradeReport report = new TextTradeReport();
+
+    /**
+     * Fills at the close of the triggering kline without slippage.
+     */
+    public MockTrader(CurrencyPair currencyPair, BigDecimal tradeLimit) {
+        this(currencyPair, tradeLimit, FillModel.close());
+    }
 
-    public MockTrader(Exchange exchange) {
-        super(exchange);
-        stopOrderBID = StopOrder.builder().price(BigDecimal.ZERO).build();
-        stopOrderASK = StopOrder.builder().price(BigDecimal.ZERO).build();
+    public MockTrader(CurrencyPair currencyPair, BigDecimal tradeLimit, FillModel fillModel) {
+        super(null, currencyPair, tradeLimit);
+        matchingEngine = new MatchingEngine(fillModel, this::onFill);
     }
 
     @Override
     public void loadBarSeries(KucoinKline kline) {
-        if (stopOrderBID.active
-                && stopOrderBID.price.compareTo(kline.getHigh()) < 0
-                && stopOrderBID.price.compareTo(kline.getLow()) > 0) {
-            stopOrderBID.setDate(kline.getTime());
-            stopOrderBID.setWalletUSDT(walletUSDT);
-
-            walletBase = walletUSDT.divide(kline.getClose(), 0, RoundingMode.DOWN);
-            walletUSDT = walletUSDT.subtract(walletBase.multiply(kline.getClose()));
-
-            orderId = "";
-            stopOrderBID.setActive(false);
-        }
-
-        if (stopOrderASK.active
-                && stopOrderASK.price.compareTo(kline.getHigh()) < 0
-                && stopOrderASK.price.compareTo(kline.getLow()) > 0) {
-            stopOrderASK.setDate(kline.getTime());
-
-            walletUSDT = walletUSDT.add(walletBase.multiply(kline.getClose()));
-            walletBase = BigDecimal.valueOf(0);
-
-            stopOrderASK.setWalletUSDT(walletUSDT);
-            orderId = "";
-            stopOrderASK.setActive(false);
-
-            listResult.add(ZonedDateTime.ofInstant(Instant.ofEpochSecond(stopOrderBID.date), ZoneOffset.UTC) + " " +
-                    ZonedDateTime.ofInstant(Instant.ofEpochSecond(stopOrderASK.date), ZoneOffset.UTC) + "   " +
-                    new DecimalFormat("#0.000").format(stopOrderBID.price.doubleValue()) + " " +
-                    new DecimalFormat("#0.000").format(stopOrderASK.price.doubleValue()) + "   " +
-                    new DecimalFormat("#0.00").format(stopOrderBID.walletUSDT.doubleValue()) + " " +
-                    new DecimalFormat("#0.00").format(stopOrderASK.walletUSDT.doubleValue()) + " " +
-                    new DecimalFormat("#0.00").format(stopOrderASK.walletUSDT.subtract(stopOrderBID.walletUSDT).doubleValue()));
-        }
-
-        if (barSeries.isEmpty() || kline.getTime() > barSeries.getLastBar().getEndTime().toEpochSecond()) {
-            barSeries.addBar(Duration.ofMinutes(5L),
-                    ZonedDateTime.ofInstant(Instant.ofEpochSecond(kline.getTime()), ZoneOffset.UTC),
-                    kline.getOpen(),
-                    kline.getHigh(),
-                    kline.getLow(),
-                    kline.getClose(),
-                    kline.getVolume());
-        }
+        matchingEngine.onBar(kline);
+        super.loadBarSeries(kline);
     }
 
     @Override
@@ -89,29 +52,40 @@ public class MockTrader extends ExchangeTrader {
 
     @Override
     public void placeStopOrder(Order.OrderType bid, BigDecimal stopOrderPrice) {
-        orderId = UUID.randomUUID().toString();
-        if (bid.equals(BID)) {
-            stopOrderBID = StopOrder.builder().price(stopOrderPrice).active(true).build();
-        } else {
-            stopOrderASK = StopOrder.builder().price(stopOrderPrice).active(true).build();
-        }
+        orderId = String.valueOf(matchingEngine.placeStop(getCurrencyPair(), bid, tradeLimit, stopOrderPrice));
     }
 
     @Override
     public void cancelOrder() {
+        if (!orderId.isEmpty()) {
+            matchingEngine.cancel(Long.parseLong(orderId));
+        }
         orderId = "";
-        stopOrderBID.setActive(false);
-        stopOrderASK.setActive(false);
     }
 
-    @Data
-    @Builder
-    private static class StopOrder {
-        private long date;
-        private BigDecimal price;
-        private BigDecimal walletUSDT;
-        private boolean active;
-    }
-}
+    /**
+     * A buy spends the whole wallet, a sell sells everything bought and reports the trade.
+     */
+    private void onFill(Fill fill) {
+        orderId = "";
+        if (fill.getSide() == BID) {
+            bidFill = fill;
+            bidWalletUSDT = walletUSDT;
+
+            walletBase = walletUSDT.divide(fill.getPrice(), 0, RoundingMode.DOWN);
+            walletUSDT = walletUSDT.subtract(walletBase.multiply(fill.getPrice()));
+            return;
+        }
 
+        walletUSDT = walletUSDT.add(walletBase.multiply(fill.getPrice()));
+        walletBase = BigDecimal.valueOf(0);
 
+        report.trade(bidFill.getTime(),
+                fill.getTime(),
+                bidFill.getOrderPrice().doubleValue(),
+                fill.getOrderPrice().doubleValue(),
+                bidWalletUSDT.doubleValue(),
+                walletUSDT.doubleValue(),
+                walletUSDT.subtract(bidWalletUSDT).doubleValue());
+    }
+}
@@ -1,5 +1,6 @@
 package com.trading.bot.logic;
 
+import org.knowm.xchange.currency.CurrencyPair;
 import org.knowm.xchange.dto.Order;
 import org.knowm.xchange.kucoin.dto.response.KucoinKline;
 
@@ -7,7 +8,9 @@ import java.io.IOException;
 import java.math.BigDecimal;
 
 public interface Trader {
+    CurrencyPair getCurrencyPair();
     void loadBarSeries(KucoinKline kucoinKlines);
+    int getBarCount();
     void next(KucoinKline lastKline) throws IOException;
     BigDecimal getBalance() throws IOException;
     void placeStopOrder(Order.OrderType bid, BigDecimal stopOrderPrice) throws IOException;
@@ -0,0 +1,68 @@
+package com.trading.bot.logic;
+
+import com.trading.bot.gateway.ExchangeGateway;
+import com.trading.bot.journal.TradeJournalService;
+import com.trading.bot.metrics.TraderMetrics;
+import com.trading.bot.order.OrderPipeline;
+import com.trading.bot.trace.DecisionTraceService;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Builds an isolated {@link ExchangeTrader} for every pair of {@code trader.pairs}.
+ * The buy limit can be overridden per pair with {@code trader.buylimit.<BASE>-<COUNTER>}, a pair holds a position
+ * from half its buy limit in base currency or from {@code trader.min-position.<BASE>-<COUNTER>},
+ * every trader resumes the state recorded in its pair's trade journal and sends its stop orders
+ * through the {@link OrderPipeline}. Orders reach the exchange only with {@code trader.place-orders=true}.
+ * Every tick of a pair is recorded in its trace of the {@link DecisionTraceService}.
+ */
+@Profile("prod")
+@Service
+public class TraderRegistry {
+    private final Map<CurrencyPair, Trader> traders = new LinkedHashMap<>();
+
+    public TraderRegistry(ExchangeGateway exchangeGateway,
+                          BalanceLedger balanceLedger,
+                          TraderMetrics traderMetrics,
+                          TradeJournalService tradeJournalService,
+                          OrderPipeline orderPipeline,
+                          DecisionTraceService decisionTraceService,
+                          Environment environment,
+                          @Value("${trader.pairs:SOL/USDT}") String[] pairs,
+                          @Value("${trader.buylimit}") BigDecimal tradeLimit,
+                          @Value("${trader.place-orders:false}") boolean placeOrders) throws IOException {
+        for (String pair : pairs) {
+            final CurrencyPair currencyPair = new CurrencyPair(pair.trim());
+            final BigDecimal pairLimit = environment.getProperty(
+                    "trader.buylimit." + currencyPair.base + "-" + currencyPair.counter, BigDecimal.class, tradeLimit);
+            final ExchangeTrader trader = new ExchangeTrader(exchangeGateway, currencyPair, pairLimit,
+                    balanceLedger, traderMetrics, tradeJournalService.getJournal(currencyPair), orderPipeline);
+            final BigDecimal minPosition = environment.getProperty(
+                    "trader.min-position." + currencyPair.base + "-" + currencyPair.counter, BigDecimal.class);
+            if (minPosition != null) {
+                trader.setMinPosition(minPosition);
+            }
+            trader.setPlaceOrders(placeOrders);
+            trader.setDecisionTrace(decisionTraceService.getTrace(currencyPair));
+            traders.put(currencyPair, trader);
+        }
+    }
+
+    public Collection<Trader> getTraders() {
+        return Collections.unmodifiableCollection(traders.values());
+    }
+
+    public Trader getTrader(CurrencyPair currencyPair) {
+        return traders.get(currencyPair);
+    }
+}
@@ -0,0 +1,84 @@
+package com.trading.bot.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.dto.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Meters of the live trading path, served by the actuator under {@code /actuator/metrics}:
+ * <ul>
+ *     <li>{@code trader.tick} duration of a whole tick per pair</li>
+ *     <li>{@code trader.exchange.call} duration of each exchange call per call, pair and side</li>
+ *     <li>{@code trader.order.action} placed and canceled orders per pair and side</li>
+ *     <li>{@code trader.tick.lag} milliseconds from candle close to the decision per pair</li>
+ *     <li>{@code trader.exchange.wait} wait for a rate limit token per endpoint and priority</li>
+ *     <li>{@code trader.exchange.queue} calls waiting for a token per endpoint and priority</li>
+ * </ul>
+ */
+@Component
+public class TraderMetrics {
+    public static final String ALL_PAIRS = "all";
+    private static final String NO_SIDE = "none";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<CurrencyPair, AtomicLong> tickLags = new ConcurrentHashMap<>();
+
+    public TraderMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /** Metrics that are recorded nowhere, for traders running outside the application context. */
+    public static TraderMetrics noop() {
+        return new TraderMetrics(new CompositeMeterRegistry());
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    public Timer tick(CurrencyPair pair) {
+        return meterRegistry.timer("trader.tick", "pair", tag(pair));
+    }
+
+    public Timer exchangeCall(String call, CurrencyPair pair, Order.OrderType side) {
+        return meterRegistry.timer("trader.exchange.call", "call", call, "pair", tag(pair), "side", tag(side));
+    }
+
+    public Counter orderAction(String action, CurrencyPair pair, Order.OrderType side) {
+        return meterRegistry.counter("trader.order.action", "action", action, "pair", tag(pair), "side", tag(side));
+    }
+
+    public void tickLag(CurrencyPair pair, long millis) {
+        tickLags.computeIfAbsent(pair, key -> meterRegistry.gauge("trader.tick.lag", Tags.of("pair", tag(key)), new AtomicLong()))
+                .set(millis);
+    }
+
+    public Timer exchangeWait(String endpoint, String priority) {
+        return meterRegistry.timer("trader.exchange.wait", "endpoint", endpoint, "priority", priority);
+    }
+
+    public void exchangeQueue(String endpoint, String priority, Supplier<Number> queued) {
+        Gauge.builder("trader.exchange.queue", queued)
+                .tags("endpoint", endpoint, "priority", priority)
+                .register(meterRegistry);
+    }
+
+    private static String tag(CurrencyPair pair) {
+        return pair == null ? ALL_PAIRS : pair.base + "-" + pair.counter;
+    }
+
+    private static String tag(Order.OrderType side) {
+        return side == null ? NO_SIDE : side.name();
+    }
+}
@@ -0,0 +1,21 @@
+package com.trading.bot.order;
+
+import org.knowm.xchange.dto.Order;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * The exchange calls of one pair's stop orders the {@link OrderPipeline} sends.
+ */
+public interface OrderClient {
+    /**
+     * @return id of the placed order
+     */
+    String placeStopOrder(Order.OrderType side, BigDecimal amount, BigDecimal stopPrice) throws IOException;
+
+    /**
+     * @param side side of the order to cancel, as it was placed
+     */
+    void cancelOrder(String orderId, Order.OrderType side) throws IOException;
+}
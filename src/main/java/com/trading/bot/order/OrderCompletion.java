@@ -0,0 +1,32 @@
+package com.trading.bot.order;
+
+import lombok.Builder;
+import lombok.Data;
+import org.knowm.xchange.dto.Order;
+
+import java.math.BigDecimal;
+
+/**
+ * Outcome of an order action of the {@link OrderPipeline}, polled by the trader that requested it.
+ */
+@Data
+@Builder
+public class OrderCompletion {
+    public enum Action { PLACE, REPLACE, CANCEL }
+
+    private Action action;
+    private Order.OrderType side;
+    private BigDecimal stopPrice;
+    /** The order resting after the action, empty when none is. */
+    private String orderId;
+    /** Order updates dropped for this one since the previous action. */
+    private int superseded;
+    private int attempts;
+    private long elapsedMillis;
+    /** Null when the action succeeded. */
+    private Exception error;
+
+    public boolean isFailed() {
+        return error != null;
+    }
+}
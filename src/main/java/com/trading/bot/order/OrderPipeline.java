@@ -0,0 +1,283 @@
+package com.trading.bot.order;
+
+import com.trading.bot.gateway.ExchangeGateway;
+import com.trading.bot.metrics.TraderMetrics;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.dto.Order;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.trading.bot.gateway.ExchangeGateway.Priority.LIVE;
+import static org.knowm.xchange.dto.Order.OrderType.ASK;
+
+/**
+ * Sends the stop order actions of the traders in the background, so a tick never waits for the exchange.
+ * Each pair has a {@link Slot} that runs one action at a time and keeps only the latest order wanted:
+ * updates submitted while an action runs replace each other and only the last one is sent.
+ * Moving a stop is one replace action on one thread, nothing of the pair runs in between. A sell stop protects
+ * a position, so its replacement is placed before the resting one is canceled: both rest for a moment, but only
+ * one of them can sell the position, and the position keeps its stop when the place fails. A buy stop is canceled
+ * before its replacement is placed, as two resting buys could both fill, so for the time of the two calls no buy
+ * stop rests and a place that fails leaves none. A sell stop whose cancel fails after its replacement was placed
+ * is left resting and reported as failed. Every call is abandoned after
+ * {@code order.pipeline.timeout-ms} and retried up to {@code order.pipeline.retries} times,
+ * except a place that timed out, which may have reached the exchange.
+ */
+@Profile("prod")
+@Service
+public class OrderPipeline {
+    protected final Logger logger = LoggerFactory.getLogger(getClass().getName());
+    private final TraderMetrics traderMetrics;
+    private final long timeoutMillis;
+    private final int retries;
+    private final long retryDelayMillis;
+    private final ExecutorService executor = Executors.newCachedThreadPool(
+            ExchangeGateway.threadFactory(LIVE, new CustomizableThreadFactory("order-")));
+    private final List<Slot> slots = new CopyOnWriteArrayList<>();
+
+    public OrderPipeline(TraderMetrics traderMetrics,
+                         @Value("${order.pipeline.timeout-ms:10000}") long timeoutMillis,
+                         @Value("${order.pipeline.retries:2}") int retries,
+                         @Value("${order.pipeline.retry-delay-ms:500}") long retryDelayMillis) {
+        this.traderMetrics = traderMetrics;
+        this.timeoutMillis = timeoutMillis;
+        this.retries = retries;
+        this.retryDelayMillis = retryDelayMillis;
+    }
+
+    /**
+     * @param orderId the order of the pair resting on the exchange, empty when none is
+     * @param side side of the resting order
+     */
+    public Slot open(CurrencyPair pair, OrderClient client, String orderId, Order.OrderType side) {
+        final Slot slot = new Slot(pair, client, orderId, side);
+        slots.add(slot);
+        return slot;
+    }
+
+    /**
+     * Waits until the submitted actions of every pair are done, a replay waits here before the clock moves on.
+     */
+    public boolean awaitIdle(long millis) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + millis;
+        for (Slot slot : slots) {
+            if (!slot.awaitIdle(Math.max(0, deadline - System.currentTimeMillis()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * The stop order of one pair. Submitting never blocks, the outcome of every action is {@link #poll() polled}
+     * by the trader on its next tick.
+     */
+    public class Slot {
+        private final CurrencyPair pair;
+        private final OrderClient client;
+        private final Queue<OrderCompletion> completions = new ConcurrentLinkedQueue<>();
+        private volatile String orderId;
+        private Order.OrderType orderSide;
+        private Target pending;
+        /** The target being sent, null while idle. */
+        private Target sending;
+        private int superseded;
+        private boolean running;
+
+        private Slot(CurrencyPair pair, OrderClient client, String orderId, Order.OrderType side) {
+            this.pair = pair;
+            this.client = client;
+            this.orderId = orderId;
+            this.orderSide = side;
+        }
+
+        /**
+         * Wants a stop order of {@code side} at {@code stopPrice} instead of the resting one, if any.
+         */
+        public void replace(Order.OrderType side, BigDecimal amount, BigDecimal stopPrice) {
+            submit(new Target(side, amount, stopPrice));
+        }
+
+        /**
+         * Wants no order resting.
+         */
+        public void cancel() {
+            submit(new Target(null, null, null));
+        }
+
+        /**
+         * @return the next outcome not polled yet, or null
+         */
+        public OrderCompletion poll() {
+            return completions.poll();
+        }
+
+        /**
+         * @return whether an order rests, or will once the submitted actions are done
+         */
+        public synchronized boolean hasOrder() {
+            final Target wanted = pending != null ? pending : sending;
+            return wanted == null ? !orderId.isEmpty() : wanted.side != null;
+        }
+
+        public synchronized boolean isIdle() {
+            return !running && pending == null;
+        }
+
+        /**
+         * Waits until every submitted action is done, for tests and shutdown.
+         */
+        public synchronized boolean awaitIdle(long millis) throws InterruptedException {
+            final long deadline = System.currentTimeMillis() + millis;
+            while (!isIdle() && System.currentTimeMillis() < deadline) {
+                wait(Math.max(1, deadline - System.currentTimeMillis()));
+            }
+            return isIdle();
+        }
+
+        private synchronized void submit(Target target) {
+            if (pending != null) {
+                superseded++;
+                traderMetrics.orderAction("superseded", pair, pending.side).increment();
+            }
+            pending = target;
+            if (!running) {
+                running = true;
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                final Target target;
+                final int dropped;
+                synchronized (this) {
+                    sending = null;
+                    if (pending == null) {
+                        running = false;
+                        notifyAll();
+                        return;
+                    }
+                    target = pending;
+                    sending = target;
+                    dropped = superseded;
+                    pending = null;
+                    superseded = 0;
+                }
+                completions.add(execute(target, dropped));
+            }
+        }
+
+        private OrderCompletion execute(Target target, int dropped) {
+            final long start = System.nanoTime();
+            final OrderCompletion.Action action = target.side == null ? OrderCompletion.Action.CANCEL
+                    : orderId.isEmpty() ? OrderCompletion.Action.PLACE : OrderCompletion.Action.REPLACE;
+            final int[] attempts = new int[1];
+            Exception error = null;
+            try {
+                final String restingId = orderId;
+                final Order.OrderType restingSide = orderSide;
+                if (target.side == ASK && restingSide == ASK && !restingId.isEmpty()) {
+                    place(target, attempts);
+                    cancel(restingId, restingSide, attempts);
+                } else {
+                    if (!restingId.isEmpty()) {
+                        cancel(restingId, restingSide, attempts);
+                        orderId = "";
+                        orderSide = null;
+                    }
+                    if (target.side != null) {
+                        place(target, attempts);
+                    }
+                }
+                traderMetrics.orderAction(action.name().toLowerCase(), pair, target.side).increment();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                error = e;
+            } catch (Exception e) {
+                logger.error("{} {} {} at {} failed", pair, action, target.side, target.stopPrice, e);
+                traderMetrics.orderAction("failed", pair, target.side).increment();
+                error = e;
+            }
+            return OrderCompletion.builder()
+                    .action(action)
+                    .side(target.side)
+                    .stopPrice(target.stopPrice)
+                    .orderId(orderId)
+                    .superseded(dropped)
+                    .attempts(attempts[0])
+                    .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                    .error(error)
+                    .build();
+        }
+
+        private void place(Target target, int[] attempts) throws Exception {
+            orderId = send(() -> client.placeStopOrder(target.side, target.amount, target.stopPrice), false, attempts);
+            orderSide = target.side;
+        }
+
+        private void cancel(String restingId, Order.OrderType restingSide, int[] attempts) throws Exception {
+            send(() -> {
+                client.cancelOrder(restingId, restingSide);
+                return null;
+            }, true, attempts);
+        }
+
+        private <T> T send(Callable<T> call, boolean retryTimeout, int[] attempts) throws Exception {
+            for (int attempt = 0; ; attempt++) {
+                attempts[0]++;
+                final Future<T> future = executor.submit(call);
+                try {
+                    return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    future.cancel(true);
+                    if (!retryTimeout || attempt >= retries) {
+                        throw new IOException("No answer after " + timeoutMillis + " ms");
+                    }
+                } catch (ExecutionException e) {
+                    if (attempt >= retries) {
+                        throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                    }
+                }
+                Thread.sleep(retryDelayMillis);
+            }
+        }
+    }
+
+    private static class Target {
+        /** Null for no order. */
+        private final Order.OrderType side;
+        private final BigDecimal amount;
+        private final BigDecimal stopPrice;
+
+        Target(Order.OrderType side, BigDecimal amount, BigDecimal stopPrice) {
+            this.side = side;
+            this.amount = amount;
+            this.stopPrice = stopPrice;
+        }
+    }
+}
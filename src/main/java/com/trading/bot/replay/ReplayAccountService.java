@@ -0,0 +1,32 @@
+package com.trading.bot.replay;
+
+import org.knowm.xchange.currency.Currency;
+import org.knowm.xchange.dto.account.AccountInfo;
+import org.knowm.xchange.dto.account.Balance;
+import org.knowm.xchange.dto.account.Wallet;
+import org.knowm.xchange.service.account.AccountService;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The trade wallet of the {@link ReplayExchange}.
+ */
+class ReplayAccountService implements AccountService {
+    private final ReplayExchange replayExchange;
+
+    ReplayAccountService(ReplayExchange replayExchange) {
+        this.replayExchange = replayExchange;
+    }
+
+    @Override
+    public AccountInfo getAccountInfo() {
+        final List<Balance> balances = new ArrayList<>();
+        for (Map.Entry<Currency, BigDecimal> entry : replayExchange.getBalances().entrySet()) {
+            balances.add(new Balance(entry.getKey(), entry.getValue(), entry.getValue()));
+        }
+        return new AccountInfo(Wallet.Builder.from(balances).id(ReplayExchange.TRADE_WALLET).build());
+    }
+}
@@ -0,0 +1,61 @@
+package com.trading.bot.replay;
+
+import com.trading.bot.simulation.FillModel;
+import org.knowm.xchange.currency.Currency;
+import org.knowm.xchange.kucoin.dto.KlineIntervalType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Replaces the KuCoin exchange and the system clock with a {@link ReplayExchange} of the recordings in
+ * {@code replay.data} and a {@link VirtualClock} starting at {@code replay.start}. The starting balances
+ * are read from {@code balances.properties} in the same directory, one {@code <CURRENCY>=<amount>} per line.
+ */
+@Configuration
+@Profile("replay")
+public class ReplayConfig {
+
+    @Bean
+    public VirtualClock clock(@Value("${replay.start}") String start) {
+        return new VirtualClock(LocalDateTime.parse(start).toInstant(ZoneOffset.UTC));
+    }
+
+    @Bean
+    public ReplayExchange getXChangeExchange(VirtualClock clock,
+                                             @Value("${replay.data:data/replay}") String data,
+                                             @Value("${replay.match-interval:min1}") KlineIntervalType matchInterval,
+                                             @Value("${replay.fill-price:TRIGGER}") FillModel.FillPrice fillPrice) throws IOException {
+        final Path directory = Paths.get(data);
+        return new ReplayExchange(clock, directory, matchInterval,
+                FillModel.builder().fillPrice(fillPrice).build(), loadBalances(directory.resolve("balances.properties")));
+    }
+
+    private static Map<Currency, BigDecimal> loadBalances(Path file) throws IOException {
+        final Map<Currency, BigDecimal> balances = new HashMap<>();
+        if (Files.exists(file)) {
+            final Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            for (String currency : properties.stringPropertyNames()) {
+                balances.put(Currency.getInstance(currency), new BigDecimal(properties.getProperty(currency).trim()));
+            }
+        }
+        return balances;
+    }
+}
@@ -0,0 +1,153 @@
+package com.trading.bot.replay;
+
+import com.trading.bot.logic.BalanceLedger;
+import com.trading.bot.order.OrderPipeline;
+import com.trading.bot.repository.KlineRepository;
+import com.trading.bot.scheduler.TraderScheduler;
+import lombok.Builder;
+import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.knowm.xchange.kucoin.dto.KlineIntervalType.min5;
+
+/**
+ * Moves the {@link VirtualClock} from candle to candle up to {@code replay.end} and fires the scheduler's tick
+ * {@value #CRON_DELAY_SECONDS} seconds after each close, like its cron. Before a tick the exchange matches the
+ * candles that closed and the ledger reconciles, after it the clock waits for the tick and its order actions.
+ * The first candle is replayed once the scheduler's warm-up is done, so every candle gets its tick.
+ * With {@code replay.speed} the clock runs that many times faster than real time, by default as fast as it can.
+ */
+@Profile("replay")
+@Service
+public class ReplayDriver {
+    private static final long CRON_DELAY_SECONDS = 30;
+    private static final long ORDER_TIMEOUT_MILLIS = 60000;
+
+    protected final Logger logger = LoggerFactory.getLogger(getClass().getName());
+    private final VirtualClock clock;
+    private final ReplayExchange replayExchange;
+    private final TraderScheduler traderScheduler;
+    private final OrderPipeline orderPipeline;
+    private final BalanceLedger balanceLedger;
+    private final long endTime;
+    private final double speed;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("replay-"));
+    private final long startTime;
+    private volatile long ticks;
+    private volatile long elapsedNanos;
+    private volatile boolean running;
+
+    public ReplayDriver(VirtualClock clock,
+                        ReplayExchange replayExchange,
+                        TraderScheduler traderScheduler,
+                        OrderPipeline orderPipeline,
+                        BalanceLedger balanceLedger,
+                        @Value("${replay.end}") String end,
+                        @Value("${replay.speed:0}") double speed) {
+        this.clock = clock;
+        this.replayExchange = replayExchange;
+        this.traderScheduler = traderScheduler;
+        this.orderPipeline = orderPipeline;
+        this.balanceLedger = balanceLedger;
+        this.endTime = LocalDateTime.parse(end).toEpochSecond(ZoneOffset.UTC);
+        this.speed = speed;
+        this.startTime = clock.instant().getEpochSecond();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        executor.execute(() -> {
+            try {
+                run();
+            } catch (IOException | RuntimeException e) {
+                logger.error("Replay failed at {}", clock.instant(), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Replays every candle closing up to {@code replay.end}.
+     */
+    public void run() throws IOException, InterruptedException {
+        running = true;
+        final long realStart = System.nanoTime();
+        try {
+            traderScheduler.idle().join();
+            for (long close = KlineRepository.closedBoundary(min5, clock) + min5.getSeconds(); close <= endTime; close += min5.getSeconds()) {
+                clock.set(Instant.ofEpochSecond(close + CRON_DELAY_SECONDS));
+                replayExchange.advance();
+                balanceLedger.reconcile();
+                traderScheduler.sell(close).join();
+                if (!orderPipeline.awaitIdle(ORDER_TIMEOUT_MILLIS)) {
+                    logger.warn("Order actions still running after {} ms at {}", ORDER_TIMEOUT_MILLIS, clock.instant());
+                }
+                ticks++;
+                elapsedNanos = System.nanoTime() - realStart;
+                pace(close);
+            }
+        } finally {
+            running = false;
+        }
+        logger.info("Replay done after {} ticks in {} ms: {}", ticks, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                replayExchange.getStatistics());
+    }
+
+    public Statistics getStatistics() {
+        final double virtualSeconds = clock.instant().getEpochSecond() - startTime;
+        return Statistics.builder()
+                .running(running)
+                .startTime(startTime)
+                .endTime(endTime)
+                .ticks(ticks)
+                .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(elapsedNanos))
+                .speedup(elapsedNanos == 0 ? 0 : virtualSeconds / (elapsedNanos / 1e9))
+                .exchange(replayExchange.getStatistics())
+                .build();
+    }
+
+    /**
+     * Sleeps until real time has caught up with {@code replay.speed}.
+     */
+    private void pace(long close) throws InterruptedException {
+        if (speed > 0) {
+            final long dueNanos = (long) ((close - startTime) / speed * 1e9);
+            TimeUnit.NANOSECONDS.sleep(dueNanos - elapsedNanos);
+        }
+    }
+
+    @Data
+    @Builder
+    public static class Statistics {
+        private boolean running;
+        private long startTime;
+        private long endTime;
+        private long ticks;
+        private long elapsedMillis;
+        /** Virtual time passed per real time passed. */
+        private double speedup;
+        private ReplayExchange.Statistics exchange;
+    }
+}
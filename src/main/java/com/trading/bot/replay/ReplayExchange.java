@@ -0,0 +1,227 @@
+package com.trading.bot.replay;
+
+import com.trading.bot.repository.KlineRepository;
+import com.trading.bot.simulation.Fill;
+import com.trading.bot.simulation.FillModel;
+import com.trading.bot.simulation.MatchingEngine;
+import lombok.Builder;
+import lombok.Data;
+import org.knowm.xchange.BaseExchange;
+import org.knowm.xchange.Exchange;
+import org.knowm.xchange.ExchangeSpecification;
+import org.knowm.xchange.currency.Currency;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.dto.Order;
+import org.knowm.xchange.kucoin.KucoinExchange;
+import org.knowm.xchange.kucoin.dto.KlineIntervalType;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.knowm.xchange.dto.Order.OrderType.BID;
+
+/**
+ * An {@link Exchange} answering from recorded files at the time of a {@link VirtualClock}, it stands in for KuCoin
+ * so the live traders, scheduler and gateway run unchanged without network. Klines are read from
+ * {@code <directory>/<BASE>-<COUNTER>-<interval>.csv}, a candle is served once it closed on the clock.
+ * Stop orders rest on a {@link MatchingEngine} fed with the recorded candles of {@code matchInterval}
+ * when the clock has moved and {@link #advance()} is called, fills move the balances of the trade wallet.
+ * Resting orders hold no funds, a fill the balances cannot pay is rejected.
+ */
+public class ReplayExchange extends BaseExchange {
+    static final String TRADE_WALLET = "trade";
+
+    private final Logger replayLogger = LoggerFactory.getLogger(getClass().getName());
+    private final VirtualClock clock;
+    private final Path directory;
+    private final KlineIntervalType matchInterval;
+    private final MatchingEngine matchingEngine;
+    private final Map<Currency, BigDecimal> balances;
+    private final Map<String, NavigableMap<Long, KucoinKline>> klines = new ConcurrentHashMap<>();
+    private final Map<CurrencyPair, Long> fedUntil = new HashMap<>();
+    private long klineRequests;
+    private long placed;
+    private long canceled;
+    private long fills;
+    private long rejected;
+
+    /**
+     * @param balances available balances of the trade wallet when the replay starts
+     */
+    public ReplayExchange(VirtualClock clock, Path directory, KlineIntervalType matchInterval, FillModel fillModel,
+                          Map<Currency, BigDecimal> balances) {
+        this.clock = clock;
+        this.directory = directory;
+        this.matchInterval = matchInterval;
+        this.matchingEngine = new MatchingEngine(fillModel, this::onFill);
+        this.balances = new HashMap<>(balances);
+        applySpecification(getDefaultExchangeSpecification());
+    }
+
+    @Override
+    protected void initServices() {
+        marketDataService = new ReplayMarketDataService(this, offlineKucoin());
+        accountService = new ReplayAccountService(this);
+        tradeService = new ReplayTradeService(this);
+    }
+
+    @Override
+    public ExchangeSpecification getDefaultExchangeSpecification() {
+        final ExchangeSpecification specification = new ExchangeSpecification(getClass());
+        specification.setExchangeName("Replay");
+        specification.setShouldLoadRemoteMetaData(false);
+        return specification;
+    }
+
+    @Override
+    public void remoteInit() {
+    }
+
+    /**
+     * Matches the resting orders against the candles of {@code matchInterval} closed since the last call.
+     */
+    public synchronized void advance() throws IOException {
+        final long closedTo = KlineRepository.closedBoundary(matchInterval, clock);
+        for (Map.Entry<CurrencyPair, Long> entry : fedUntil.entrySet()) {
+            for (KucoinKline kline : klines(entry.getKey(), matchInterval).subMap(entry.getValue(), true, closedTo, false).values()) {
+                matchingEngine.onBar(kline);
+            }
+            entry.setValue(closedTo);
+        }
+    }
+
+    public synchronized Statistics getStatistics() {
+        return Statistics.builder()
+                .time(clock.instant().getEpochSecond())
+                .klineRequests(klineRequests)
+                .ordersPlaced(placed)
+                .ordersCanceled(canceled)
+                .openOrders(matchingEngine.getOpenOrderCount())
+                .fills(fills)
+                .rejectedFills(rejected)
+                .balances(new HashMap<>(balances))
+                .build();
+    }
+
+    /**
+     * @return candles of [{@code startTime}, {@code endTime}) closed on the clock, newest first like KuCoin
+     */
+    synchronized List<KucoinKline> getKlines(CurrencyPair pair, long startTime, long endTime, KlineIntervalType interval) throws IOException {
+        klineRequests++;
+        final long closedTo = KlineRepository.closedBoundary(interval, clock);
+        final long to = Math.min(endTime, closedTo);
+        return startTime < to
+                ? new ArrayList<>(klines(pair, interval).subMap(startTime, true, to, false).descendingMap().values())
+                : new ArrayList<>();
+    }
+
+    synchronized Map<Currency, BigDecimal> getBalances() {
+        return new HashMap<>(balances);
+    }
+
+    synchronized String placeStopOrder(CurrencyPair pair, Order.OrderType side, BigDecimal amount, BigDecimal stopPrice) {
+        placed++;
+        fedUntil.putIfAbsent(pair, KlineRepository.closedBoundary(matchInterval, clock));
+        return String.valueOf(matchingEngine.placeStop(pair, side, amount, stopPrice));
+    }
+
+    synchronized boolean cancelOrder(String orderId) {
+        try {
+            final boolean found = matchingEngine.cancel(Long.parseLong(orderId));
+            if (found) {
+                canceled++;
+            }
+            return found;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private void onFill(Fill fill) {
+        final CurrencyPair pair = fill.getPair();
+        final BigDecimal counterAmount = fill.getAmount().multiply(fill.getPrice());
+        final Currency paid = fill.getSide() == BID ? pair.counter : pair.base;
+        final BigDecimal cost = fill.getSide() == BID ? counterAmount : fill.getAmount();
+        if (balances.getOrDefault(paid, BigDecimal.ZERO).compareTo(cost) < 0) {
+            rejected++;
+            replayLogger.warn("{} {} fill of {} at {} rejected, {} {} available", pair, fill.getSide(), fill.getAmount(),
+                    fill.getPrice(), balances.getOrDefault(paid, BigDecimal.ZERO), paid);
+            return;
+        }
+        fills++;
+        balances.merge(pair.base, fill.getSide() == BID ? fill.getAmount() : fill.getAmount().negate(), BigDecimal::add);
+        balances.merge(pair.counter, fill.getSide() == BID ? counterAmount.negate() : counterAmount, BigDecimal::add);
+    }
+
+    private NavigableMap<Long, KucoinKline> klines(CurrencyPair pair, KlineIntervalType interval) throws IOException {
+        final Path file = directory.resolve(pair.base + "-" + pair.counter + "-" + interval.name() + ".csv");
+        try {
+            return klines.computeIfAbsent(file.toString(), key -> {
+                try {
+                    return load(file, pair, interval);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Reads a recording with the header {@code time,open,close,high,low,volume,amount}.
+     */
+    private static NavigableMap<Long, KucoinKline> load(Path file, CurrencyPair pair, KlineIntervalType interval) throws IOException {
+        final NavigableMap<Long, KucoinKline> recorded = new TreeMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final KucoinKline kline = new KucoinKline(pair, interval, line.split(","));
+                recorded.put(kline.getTime(), kline);
+            }
+        }
+        return recorded;
+    }
+
+    /**
+     * A KuCoin exchange that is never connected, the market data service extends KuCoin's to serve its kline call.
+     */
+    private static KucoinExchange offlineKucoin() {
+        final KucoinExchange kucoin = new KucoinExchange();
+        final ExchangeSpecification specification = kucoin.getDefaultExchangeSpecification();
+        specification.setShouldLoadRemoteMetaData(false);
+        kucoin.applySpecification(specification);
+        return kucoin;
+    }
+
+    @Data
+    @Builder
+    public static class Statistics {
+        /** Epoch second of the virtual clock. */
+        private long time;
+        private long klineRequests;
+        private long ordersPlaced;
+        private long ordersCanceled;
+        private int openOrders;
+        private long fills;
+        /** Fills the balances could not pay. */
+        private long rejectedFills;
+        private Map<Currency, BigDecimal> balances;
+    }
+}
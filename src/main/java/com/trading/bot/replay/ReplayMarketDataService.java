@@ -0,0 +1,53 @@
+package com.trading.bot.replay;
+
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.dto.marketdata.OrderBook;
+import org.knowm.xchange.dto.marketdata.Ticker;
+import org.knowm.xchange.dto.marketdata.Trades;
+import org.knowm.xchange.exceptions.NotAvailableFromExchangeException;
+import org.knowm.xchange.kucoin.KucoinExchange;
+import org.knowm.xchange.kucoin.KucoinMarketDataService;
+import org.knowm.xchange.kucoin.dto.KlineIntervalType;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+import org.knowm.xchange.service.marketdata.params.Params;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * KuCoin's market data service answering the kline call from the {@link ReplayExchange}, every other call fails
+ * instead of reaching the network.
+ */
+class ReplayMarketDataService extends KucoinMarketDataService {
+    private final ReplayExchange replayExchange;
+
+    ReplayMarketDataService(ReplayExchange replayExchange, KucoinExchange kucoin) {
+        super(kucoin, kucoin.getResilienceRegistries());
+        this.replayExchange = replayExchange;
+    }
+
+    @Override
+    public List<KucoinKline> getKucoinKlines(CurrencyPair pair, Long startTime, Long endTime, KlineIntervalType interval) throws IOException {
+        return replayExchange.getKlines(pair, startTime, endTime, interval);
+    }
+
+    @Override
+    public Ticker getTicker(CurrencyPair currencyPair, Object... args) {
+        throw new NotAvailableFromExchangeException("getTicker");
+    }
+
+    @Override
+    public List<Ticker> getTickers(Params params) {
+        throw new NotAvailableFromExchangeException("getTickers");
+    }
+
+    @Override
+    public OrderBook getOrderBook(CurrencyPair currencyPair, Object... args) {
+        throw new NotAvailableFromExchangeException("getOrderBook");
+    }
+
+    @Override
+    public Trades getTrades(CurrencyPair currencyPair, Object... args) {
+        throw new NotAvailableFromExchangeException("getTrades");
+    }
+}
@@ -0,0 +1,27 @@
+package com.trading.bot.replay;
+
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.dto.trade.StopOrder;
+import org.knowm.xchange.service.trade.TradeService;
+
+/**
+ * Stop orders on the matching engine of the {@link ReplayExchange}.
+ */
+class ReplayTradeService implements TradeService {
+    private final ReplayExchange replayExchange;
+
+    ReplayTradeService(ReplayExchange replayExchange) {
+        this.replayExchange = replayExchange;
+    }
+
+    @Override
+    public String placeStopOrder(StopOrder stopOrder) {
+        return replayExchange.placeStopOrder((CurrencyPair) stopOrder.getInstrument(), stopOrder.getType(),
+                stopOrder.getOriginalAmount(), stopOrder.getStopPrice());
+    }
+
+    @Override
+    public boolean cancelOrder(String orderId) {
+        return replayExchange.cancelOrder(orderId);
+    }
+}
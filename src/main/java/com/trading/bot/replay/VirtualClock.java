@@ -0,0 +1,54 @@
+package com.trading.bot.replay;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A UTC clock that stands still until it is moved, the time of a replay. Its views in other zones read
+ * the same time and move with it.
+ */
+public class VirtualClock extends Clock {
+    private final AtomicLong millis;
+    private final ZoneId zone;
+
+    public VirtualClock(Instant start) {
+        this(new AtomicLong(start.toEpochMilli()), ZoneOffset.UTC);
+    }
+
+    private VirtualClock(AtomicLong millis, ZoneId zone) {
+        this.millis = millis;
+        this.zone = zone;
+    }
+
+    public void set(Instant instant) {
+        millis.set(instant.toEpochMilli());
+    }
+
+    public void advance(Duration duration) {
+        millis.addAndGet(duration.toMillis());
+    }
+
+    @Override
+    public long millis() {
+        return millis.get();
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis.get());
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return zone.equals(this.zone) ? this : new VirtualClock(millis, zone);
+    }
+}
@@ -0,0 +1,53 @@
+package com.trading.bot.repository;
+
+import com.trading.bot.gateway.ExchangeGateway;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.kucoin.KucoinMarketDataService;
+import org.knowm.xchange.kucoin.dto.KlineIntervalType;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.trading.bot.gateway.ExchangeGateway.Endpoint.MARKET_DATA;
+
+/**
+ * Fetches klines from KuCoin in pages of {@value #MAX_KLINES_PER_REQUEST} through the {@link ExchangeGateway},
+ * so concurrent fetches of the same page are sent once and all of them stay within the market data rate limit.
+ */
+@Service
+public class ExchangeKlineSource implements KlineSource {
+    /** KuCoin returns at most 1500 candles per request. */
+    private static final long MAX_KLINES_PER_REQUEST = 1500;
+
+    private final ExchangeGateway exchangeGateway;
+
+    public ExchangeKlineSource(ExchangeGateway exchangeGateway) {
+        this.exchangeGateway = exchangeGateway;
+    }
+
+    @Override
+    public List<KucoinKline> getKlines(CurrencyPair pair, long startTime, long endTime, KlineIntervalType interval) throws IOException {
+        final long step = MAX_KLINES_PER_REQUEST * interval.getSeconds();
+        final List<KucoinKline> result = new ArrayList<>();
+
+        for (long from = startTime; from < endTime; from += step) {
+            final long pageFrom = from;
+            final long to = Math.min(from + step, endTime);
+            // the page may be shared with other callers, it is read newest first and never changed
+            final List<KucoinKline> klines = exchangeGateway.call(MARKET_DATA, Arrays.asList("klines", pair, pageFrom, to, interval),
+                    exchange -> ((KucoinMarketDataService) exchange.getMarketDataService()).getKucoinKlines(pair, pageFrom, to, interval));
+            for (int i = klines.size() - 1; i >= 0; i--) {
+                final KucoinKline kline = klines.get(i);
+                if (kline.getTime() >= from && kline.getTime() < to) {
+                    result.add(kline);
+                }
+            }
+        }
+
+        return result;
+    }
+}
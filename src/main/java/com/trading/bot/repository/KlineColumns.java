@@ -0,0 +1,91 @@
+package com.trading.bot.repository;
+
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+
+import java.util.Arrays;
+
+/**
+ * Reusable primitive columns of consecutive klines, a read into them allocates nothing
+ * once they have grown to the longest read.
+ */
+public class KlineColumns {
+    private long[] time = new long[0];
+    private double[] open = new double[0];
+    private double[] high = new double[0];
+    private double[] low = new double[0];
+    private double[] close = new double[0];
+    private double[] volume = new double[0];
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public long getTime(int index) {
+        return time[index];
+    }
+
+    public double getOpen(int index) {
+        return open[index];
+    }
+
+    public double getHigh(int index) {
+        return high[index];
+    }
+
+    public double getLow(int index) {
+        return low[index];
+    }
+
+    public double getClose(int index) {
+        return close[index];
+    }
+
+    public double getVolume(int index) {
+        return volume[index];
+    }
+
+    /**
+     * @return the close column, valid up to {@link #size()}
+     */
+    public double[] getCloses() {
+        return close;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    void add(long time, double open, double high, double low, double close, double volume) {
+        if (size == this.time.length) {
+            grow(Math.max(16, size * 2));
+        }
+        this.time[size] = time;
+        this.open[size] = open;
+        this.high[size] = high;
+        this.low[size] = low;
+        this.close[size] = close;
+        this.volume[size] = volume;
+        size++;
+    }
+
+    void add(KucoinKline kline) {
+        add(kline.getTime(), kline.getOpen().doubleValue(), kline.getHigh().doubleValue(), kline.getLow().doubleValue(),
+                kline.getClose().doubleValue(), kline.getVolume().doubleValue());
+    }
+
+    void ensureCapacity(int capacity) {
+        if (capacity > time.length) {
+            grow(capacity);
+        }
+    }
+
+    private void grow(int capacity) {
+        time = Arrays.copyOf(time, capacity);
+        open = Arrays.copyOf(open, capacity);
+        high = Arrays.copyOf(high, capacity);
+        low = Arrays.copyOf(low, capacity);
+        close = Arrays.copyOf(close, capacity);
+        volume = Arrays.copyOf(volume, capacity);
+    }
+}
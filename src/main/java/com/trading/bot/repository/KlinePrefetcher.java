@@ -0,0 +1,179 @@
+package com.trading.bot.repository;
+
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.kucoin.dto.KlineIntervalType;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reads klines a day at a time while the following {@code kline.prefetch.depth} days are fetched
+ * in the background, so a backtest simulates one day while the next ones are on the wire.
+ * Fetches of all readers share {@code kline.prefetch.concurrency} threads, the source keeps them
+ * within the exchange rate limit. Days that are already stored are never prefetched, intervals the
+ * repository resamples are prefetched in its base interval.
+ */
+@Service
+public class KlinePrefetcher {
+    private static final long DAY = 86400L;
+
+    private final KlineRepository klineRepository;
+    private final KlineSource klineSource;
+    private final ExecutorService executor;
+    private final int depth;
+
+    public KlinePrefetcher(KlineRepository klineRepository,
+                           KlineSource klineSource,
+                           @Value("${kline.prefetch.concurrency:4}") int concurrency,
+                           @Value("${kline.prefetch.depth:3}") int depth) {
+        this.klineRepository = klineRepository;
+        this.klineSource = klineSource;
+        this.depth = depth;
+        this.executor = Executors.newFixedThreadPool(concurrency, new CustomizableThreadFactory("kline-prefetch-"));
+    }
+
+    /**
+     * @param startTime epoch second the first day starts at
+     * @param days number of days to read
+     */
+    public Days open(CurrencyPair pair, KlineIntervalType interval, long startTime, long days) {
+        return new Days(pair, interval, startTime, days);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Consecutive days of klines of one pair, read by a single thread.
+     */
+    public class Days implements Closeable, KlineSource {
+        private final CurrencyPair pair;
+        private final KlineIntervalType interval;
+        private final KlineIntervalType sourceInterval;
+        private final long startTime;
+        private final long days;
+        private final Map<Long, Future<List<KucoinKline>>> prefetched = new HashMap<>();
+        private long day;
+        private long prefetchedUntil;
+
+        private Days(CurrencyPair pair, KlineIntervalType interval, long startTime, long days) {
+            this.pair = pair;
+            this.interval = interval;
+            this.sourceInterval = klineRepository.getSourceInterval(interval);
+            this.startTime = startTime;
+            this.days = days;
+        }
+
+        public boolean hasNext() {
+            return day < days;
+        }
+
+        /**
+         * @return klines of the next day ordered from oldest to newest
+         */
+        public List<KucoinKline> next() throws IOException {
+            final long dayStart = advance();
+            return klineRepository.getKlines(pair, dayStart, dayStart + DAY, interval, this);
+        }
+
+        /**
+         * Replaces the content of {@code columns} with the klines of the next day ordered from oldest to newest.
+         */
+        public void next(KlineColumns columns) throws IOException {
+            final long dayStart = advance();
+            columns.clear();
+            klineRepository.getKlines(pair, dayStart, dayStart + DAY, interval, this, columns);
+        }
+
+        /**
+         * Serves the repository's gap fills, prefetched days from their fetch and other days from the source.
+         */
+        @Override
+        public List<KucoinKline> getKlines(CurrencyPair pair, long from, long to, KlineIntervalType interval) throws IOException {
+            if (interval != sourceInterval) {
+                return klineSource.getKlines(pair, from, to, interval);
+            }
+            final List<KucoinKline> result = new ArrayList<>();
+            while (from < to) {
+                final long dayStart = startTime + Math.floorDiv(from - startTime, DAY) * DAY;
+                final long pieceTo = Math.min(to, dayStart + DAY);
+                final Future<List<KucoinKline>> fetch = prefetched.remove(dayStart);
+                if (fetch == null) {
+                    result.addAll(klineSource.getKlines(pair, from, pieceTo, interval));
+                } else {
+                    for (KucoinKline kline : await(fetch)) {
+                        if (kline.getTime() >= from && kline.getTime() < pieceTo) {
+                            result.add(kline);
+                        }
+                    }
+                }
+                from = pieceTo;
+            }
+            return result;
+        }
+
+        @Override
+        public void close() {
+            for (Iterator<Future<List<KucoinKline>>> iterator = prefetched.values().iterator(); iterator.hasNext(); ) {
+                iterator.next().cancel(false);
+                iterator.remove();
+            }
+        }
+
+        private long advance() throws IOException {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final long dayStart = startTime + day * DAY;
+            day++;
+            prefetched.keySet().removeIf(prefetchedStart -> prefetchedStart < dayStart);
+            prefetch();
+            return dayStart;
+        }
+
+        /**
+         * Starts the fetches of the current day and the {@code depth} days after it.
+         */
+        private void prefetch() throws IOException {
+            for (long next = Math.max(prefetchedUntil, day - 1); next < Math.min(days, day + depth); next++) {
+                final long dayStart = startTime + next * DAY;
+                if (!klineRepository.isStored(pair, dayStart, dayStart + DAY, interval)) {
+                    prefetched.put(dayStart, executor.submit(() -> klineSource.getKlines(pair, dayStart, dayStart + DAY, sourceInterval)));
+                }
+                prefetchedUntil = next + 1;
+            }
+        }
+
+        private List<KucoinKline> await(Future<List<KucoinKline>> fetch) throws IOException {
+            try {
+                return fetch.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for prefetched klines");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("Kline prefetch failed", e.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.trading.bot.repository;
+
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.kucoin.dto.KlineIntervalType;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves klines from local {@link KlineStore}s and fetches from the {@link KlineSource} only
+ * the parts of a range that were never stored. Candles that are not closed yet are never stored.
+ * Only candles of {@code kline.base-interval} are fetched, longer intervals are resampled from the
+ * base store and kept in stores of their own, so every interval reads the same candles.
+ */
+@Service
+public class KlineRepository {
+    protected final Logger logger = LoggerFactory.getLogger(getClass().getName());
+    private final KlineSource klineSource;
+    private final Path storePath;
+    private final KlineIntervalType baseInterval;
+    private final Clock clock;
+    private final Map<String, KlineStore> stores = new ConcurrentHashMap<>();
+
+    /**
+     * @param clock decides which candles are closed
+     */
+    @Autowired
+    public KlineRepository(KlineSource klineSource,
+                           @Value("${kline.store.path:data/klines}") String storePath,
+                           @Value("${kline.base-interval:min1}") KlineIntervalType baseInterval,
+                           Clock clock) {
+        this.klineSource = klineSource;
+        this.storePath = Paths.get(storePath);
+        this.baseInterval = baseInterval;
+        this.clock = clock;
+    }
+
+    public KlineRepository(KlineSource klineSource, String storePath, KlineIntervalType baseInterval) {
+        this(klineSource, storePath, baseInterval, Clock.systemUTC());
+    }
+
+    /**
+     * Repository fetching every interval from the source as it is.
+     */
+    public KlineRepository(KlineSource klineSource, String storePath) {
+        this(klineSource, storePath, null);
+    }
+
+    /**
+     * @return the interval fetched from the source to serve {@code interval}
+     */
+    public KlineIntervalType getSourceInterval(KlineIntervalType interval) {
+        return isDerived(interval) ? baseInterval : interval;
+    }
+
+    /**
+     * @param startTime inclusive epoch second
+     * @param endTime exclusive epoch second
+     * @return klines ordered from oldest to newest
+     */
+    public List<KucoinKline> getKlines(CurrencyPair pair, long startTime, long endTime, KlineIntervalType interval) throws IOException {
+        return getKlines(pair, startTime, endTime, interval, klineSource);
+    }
+
+    /**
+     * Same as {@link #getKlines(CurrencyPair, long, long, KlineIntervalType)} but fills the gaps from {@code source}.
+     */
+    public List<KucoinKline> getKlines(CurrencyPair pair, long startTime, long endTime, KlineIntervalType interval,
+                                       KlineSource source) throws IOException {
+        final long closedTo = closedTo(endTime, interval);
+        final List<KucoinKline> result;
+
+        if (startTime < closedTo) {
+            final KlineStore store = fill(pair, startTime, closedTo, interval, source);
+            synchronized (store) {
+                result = store.read(startTime, closedTo);
+            }
+        } else {
+            result = new ArrayList<>();
+        }
+
+        if (endTime > closedTo) {
+            result.addAll(getOpenKlines(pair, Math.max(startTime, closedTo), endTime, interval, source));
+        }
+        return result;
+    }
+
+    /**
+     * Same as {@link #getKlines(CurrencyPair, long, long, KlineIntervalType, KlineSource)} but appends the klines
+     * to {@code columns}, stored klines are copied from the store without a {@link KucoinKline} per bar.
+     */
+    public void getKlines(CurrencyPair pair, long startTime, long endTime, KlineIntervalType interval,
+                          KlineSource source, KlineColumns columns) throws IOException {
+        final long closedTo = closedTo(endTime, interval);
+
+        if (startTime < closedTo) {
+            final KlineStore store = fill(pair, startTime, closedTo, interval, source);
+            synchronized (store) {
+                store.read(startTime, closedTo, columns);
+            }
+        }
+
+        if (endTime > closedTo) {
+            for (KucoinKline kline : getOpenKlines(pair, Math.max(startTime, closedTo), endTime, interval, source)) {
+                columns.add(kline);
+            }
+        }
+    }
+
+    /**
+     * Reads the stored part of a range from the local store only, nothing is fetched.
+     *
+     * @return klines ordered from oldest to newest, the parts of the range never stored are missing
+     */
+    public List<KucoinKline> getStoredKlines(CurrencyPair pair, long startTime, long endTime, KlineIntervalType interval) throws IOException {
+        final KlineStore store = getStore(pair, interval);
+        synchronized (store) {
+            return store.isEmpty() ? new ArrayList<>() : store.read(startTime, endTime);
+        }
+    }
+
+    /**
+     * @return whether the whole range is closed and stored, so reading it sends no request
+     */
+    public boolean isStored(CurrencyPair pair, long startTime, long endTime, KlineIntervalType interval) throws IOException {
+        if (endTime > closedBoundary(interval, clock)) {
+            return false;
+        }
+        final KlineStore store = getStore(pair, interval);
+        synchronized (store) {
+            if (!store.isEmpty() && store.getCoveredFrom() <= startTime && endTime <= store.getCoveredTo()) {
+                return true;
+            }
+        }
+        return isDerived(interval) && isStored(pair, startTime, endTime, baseInterval);
+    }
+
+    /**
+     * @return a hash of the time and close of every stored kline of a range, or -1 while the range
+     * is not completely stored and so may still change
+     */
+    public long fingerprint(CurrencyPair pair, long startTime, long endTime, KlineIntervalType interval) throws IOException {
+        if (!isStored(pair, startTime, endTime, interval)) {
+            return -1;
+        }
+        final KlineStore store = getStore(pair, interval);
+        synchronized (store) {
+            if (store.isEmpty() || startTime < store.getCoveredFrom() || store.getCoveredTo() < endTime) {
+                return fingerprint(pair, startTime, endTime, baseInterval);
+            }
+            final int from = store.indexOf(startTime);
+            final int to = store.indexOf(endTime);
+            long fingerprint = to - from;
+            for (int index = from; index < to; index++) {
+                fingerprint = 31 * fingerprint + store.getTime(index);
+                fingerprint = 31 * fingerprint + Double.doubleToLongBits(store.getClose(index));
+            }
+            return fingerprint & Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * @return epoch second where the candle that is not closed yet starts
+     */
+    public static long closedBoundary(KlineIntervalType interval) {
+        return closedBoundary(interval, Clock.systemUTC());
+    }
+
+    /**
+     * @return epoch second where the candle that is not closed at the time of {@code clock} starts
+     */
+    public static long closedBoundary(KlineIntervalType interval, Clock clock) {
+        final long now = clock.instant().getEpochSecond();
+        return now - Math.floorMod(now, interval.getSeconds());
+    }
+
+    public KlineStore getStore(CurrencyPair pair, KlineIntervalType interval) throws IOException {
+        final String key = pair.base.getCurrencyCode() + "-" + pair.counter.getCurrencyCode();
+        KlineStore store = stores.get(key + interval);
+        if (store == null) {
+            synchronized (stores) {
+                store = stores.get(key + interval);
+                if (store == null) {
+                    store = new KlineStore(storePath.resolve(key).resolve(interval.name()), pair, interval);
+                    stores.put(key + interval, store);
+                }
+            }
+        }
+        return store;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        for (KlineStore store : stores.values()) {
+            store.close();
+        }
+        stores.clear();
+    }
+
+    private KlineStore fill(CurrencyPair pair, long startTime, long closedTo, KlineIntervalType interval,
+                            KlineSource source) throws IOException {
+        final KlineStore store = getStore(pair, interval);
+        synchronized (store) {
+            fillGaps(store, isDerived(interval) ? resampling(source) : source, pair, startTime, closedTo, interval);
+        }
+        return store;
+    }
+
+    /**
+     * @return where the part of a range that is stored ends: the candle not closed yet is never stored, and
+     * neither is a derived candle that {@code endTime} cuts, as it would be resampled from part of its base candles
+     */
+    private long closedTo(long endTime, KlineIntervalType interval) {
+        final long closedTo = Math.min(endTime, closedBoundary(interval, clock));
+        return isDerived(interval) ? closedTo - Math.floorMod(closedTo, interval.getSeconds()) : closedTo;
+    }
+
+    /**
+     * Klines of a range that is not closed yet or ends inside a derived candle, they are never stored.
+     * A derived range is resampled from the base candles the repository serves.
+     */
+    private List<KucoinKline> getOpenKlines(CurrencyPair pair, long startTime, long endTime, KlineIntervalType interval,
+                                            KlineSource source) throws IOException {
+        if (!isDerived(interval)) {
+            return source.getKlines(pair, startTime, endTime, interval);
+        }
+        final List<KucoinKline> klines = KlineResampler.resample(
+                getKlines(pair, startTime - Math.floorMod(startTime, interval.getSeconds()), endTime, baseInterval, source), interval);
+        klines.removeIf(kline -> kline.getTime() < startTime);
+        return klines;
+    }
+
+    private boolean isDerived(KlineIntervalType interval) {
+        return baseInterval != null && KlineResampler.isDerivable(baseInterval, interval);
+    }
+
+    /**
+     * Source of a derived store: the range is read from the base store, filled from {@code source}, and resampled.
+     */
+    private KlineSource resampling(KlineSource source) {
+        return (pair, startTime, endTime, interval) ->
+                KlineResampler.resample(getKlines(pair, startTime, endTime, baseInterval, source), interval);
+    }
+
+    private void fillGaps(KlineStore store, KlineSource klineSource, CurrencyPair pair, long startTime, long endTime, KlineIntervalType interval) throws IOException {
+        final long seconds = interval.getSeconds();
+        final long from = startTime - Math.floorMod(startTime, seconds);
+
+        if (store.isEmpty()) {
+            store.append(klineSource.getKlines(pair, from, endTime, interval), from, endTime);
+            logger.info("Kline store {} {} filled {} - {}", pair, interval, from, endTime);
+            return;
+        }
+
+        if (from < store.getCoveredFrom()) {
+            final long to = store.getCoveredFrom();
+            store.prepend(klineSource.getKlines(pair, from, to, interval), from, to);
+            logger.info("Kline store {} {} prepended {} - {}", pair, interval, from, to);
+        }
+
+        if (endTime > store.getCoveredTo()) {
+            final long to = store.getCoveredTo();
+            store.append(klineSource.getKlines(pair, to, endTime, interval), to, endTime);
+            logger.info("Kline store {} {} appended {} - {}", pair, interval, to, endTime);
+        }
+    }
+}
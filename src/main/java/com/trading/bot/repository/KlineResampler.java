@@ -0,0 +1,155 @@
+package com.trading.bot.repository;
+
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.kucoin.dto.KlineIntervalType;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Derives candles of a longer interval from candles of a base interval: open of the first base candle,
+ * close of the last, the extremes of all and the sum of their volumes. An interval without base candles
+ * has no candle, like on the exchange. Used over stored ranges with {@link #resample(List, KlineIntervalType)}
+ * and on live candles with {@link #accept(KucoinKline)}, which keeps the candle being built per pair.
+ * The first live candle of a pair is handed over only when its first base candle starts the interval.
+ */
+public class KlineResampler implements Consumer<KucoinKline> {
+    private static final long DAY = 86400L;
+
+    private final KlineIntervalType interval;
+    private final long seconds;
+    private final long baseSeconds;
+    private final Consumer<KucoinKline> listener;
+    private final Map<CurrencyPair, Candle> candles = new ConcurrentHashMap<>();
+
+    public KlineResampler(KlineIntervalType baseInterval, KlineIntervalType interval, Consumer<KucoinKline> listener) {
+        if (!isDerivable(baseInterval, interval)) {
+            throw new IllegalArgumentException(interval + " cannot be derived from " + baseInterval);
+        }
+        this.interval = interval;
+        this.seconds = interval.getSeconds();
+        this.baseSeconds = baseInterval.getSeconds();
+        this.listener = listener;
+    }
+
+    /**
+     * @return whether candles of {@code interval} are whole multiples of {@code baseInterval} aligned to the UTC day,
+     * weekly candles start on Monday and are not
+     */
+    public static boolean isDerivable(KlineIntervalType baseInterval, KlineIntervalType interval) {
+        final long base = baseInterval.getSeconds();
+        final long target = interval.getSeconds();
+        return target > base && target % base == 0 && DAY % target == 0;
+    }
+
+    /**
+     * @param klines base candles ordered from oldest to newest
+     * @return candles of {@code interval} ordered from oldest to newest, the last one is partial
+     * when {@code klines} end inside its interval
+     */
+    public static List<KucoinKline> resample(List<KucoinKline> klines, KlineIntervalType interval) {
+        final long seconds = interval.getSeconds();
+        final List<KucoinKline> result = new ArrayList<>();
+        Candle candle = null;
+        for (KucoinKline kline : klines) {
+            final long start = kline.getTime() - Math.floorMod(kline.getTime(), seconds);
+            if (candle == null || candle.start != start) {
+                if (candle != null) {
+                    result.add(candle.toKline(interval));
+                }
+                candle = new Candle(kline.getPair());
+                candle.start = start;
+            }
+            candle.add(kline);
+        }
+        if (candle != null) {
+            result.add(candle.toKline(interval));
+        }
+        return result;
+    }
+
+    /**
+     * Adds the next closed base candle of its pair. The candle of the interval is handed over as soon as
+     * its last base candle is added, or when a base candle of a later interval shows a gap.
+     */
+    @Override
+    public void accept(KucoinKline kline) {
+        final Candle candle = candles.computeIfAbsent(kline.getPair(), Candle::new);
+        final long start = kline.getTime() - Math.floorMod(kline.getTime(), seconds);
+
+        synchronized (candle) {
+            if (candle.open != null && start != candle.start) {
+                if (start < candle.start) {
+                    return;
+                }
+                emit(candle);
+            }
+            if (candle.open == null && !candle.started) {
+                candle.started = true;
+                candle.partial = kline.getTime() != start;
+            }
+            candle.start = start;
+            candle.add(kline);
+            if (kline.getTime() + baseSeconds == start + seconds) {
+                emit(candle);
+            }
+        }
+    }
+
+    private void emit(Candle candle) {
+        if (!candle.partial) {
+            listener.accept(candle.toKline(interval));
+        }
+        candle.reset();
+    }
+
+    private static class Candle {
+        private final CurrencyPair pair;
+        private long start;
+        private BigDecimal open;
+        private BigDecimal high;
+        private BigDecimal low;
+        private BigDecimal close;
+        private BigDecimal volume;
+        private BigDecimal amount;
+        private boolean started;
+        /** Whether the base candles of the interval's start were missed, only the pair's first candle can be. */
+        private boolean partial;
+
+        Candle(CurrencyPair pair) {
+            this.pair = pair;
+        }
+
+        void add(KucoinKline kline) {
+            if (open == null) {
+                open = kline.getOpen();
+                high = kline.getHigh();
+                low = kline.getLow();
+                volume = BigDecimal.ZERO;
+                amount = BigDecimal.ZERO;
+            } else {
+                high = high.max(kline.getHigh());
+                low = low.min(kline.getLow());
+            }
+            close = kline.getClose();
+            volume = volume.add(kline.getVolume());
+            if (kline.getAmount() != null) {
+                amount = amount.add(kline.getAmount());
+            }
+        }
+
+        void reset() {
+            open = null;
+            partial = false;
+        }
+
+        KucoinKline toKline(KlineIntervalType interval) {
+            return new KucoinKline(pair, interval, new Object[]{start, open, close, high, low, volume, amount});
+        }
+    }
+}
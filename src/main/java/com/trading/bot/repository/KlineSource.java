@@ -0,0 +1,17 @@
+package com.trading.bot.repository;
+
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.kucoin.dto.KlineIntervalType;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+
+import java.io.IOException;
+import java.util.List;
+
+public interface KlineSource {
+    /**
+     * @param startTime inclusive epoch second
+     * @param endTime exclusive epoch second
+     * @return klines ordered from oldest to newest
+     */
+    List<KucoinKline> getKlines(CurrencyPair pair, long startTime, long endTime, KlineIntervalType interval) throws IOException;
+}
@@ -0,0 +1,264 @@
+package com.trading.bot.repository;
+
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.kucoin.dto.KlineIntervalType;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Append-only columnar store of klines for one pair and interval.
+ * Every column lives in its own memory-mapped file of 8 byte values, the meta file keeps
+ * the committed bar count and the time range that was already fetched from the exchange.
+ */
+public class KlineStore implements Closeable {
+    private static final long MAGIC = 0x4B4C494E45533031L;
+    private static final int META_SIZE = 32;
+    private static final int INITIAL_CAPACITY = 4096;
+
+    static final int TIME = 0;
+    static final int OPEN = 1;
+    static final int HIGH = 2;
+    static final int LOW = 3;
+    static final int CLOSE = 4;
+    static final int VOLUME = 5;
+    static final int AMOUNT = 6;
+    private static final String[] COLUMNS = {"time", "open", "high", "low", "close", "volume", "amount"};
+
+    private final CurrencyPair pair;
+    private final KlineIntervalType interval;
+    private final FileChannel metaChannel;
+    private final MappedByteBuffer meta;
+    private final FileChannel[] channels = new FileChannel[COLUMNS.length];
+    private final MappedByteBuffer[] columns = new MappedByteBuffer[COLUMNS.length];
+    private int capacity;
+    private int size;
+    private long coveredFrom;
+    private long coveredTo;
+
+    public KlineStore(Path directory, CurrencyPair pair, KlineIntervalType interval) throws IOException {
+        this.pair = pair;
+        this.interval = interval;
+        Files.createDirectories(directory);
+
+        metaChannel = FileChannel.open(directory.resolve("meta.bin"), CREATE, READ, WRITE);
+        meta = metaChannel.map(FileChannel.MapMode.READ_WRITE, 0, META_SIZE);
+        if (meta.getLong(0) == MAGIC) {
+            size = (int) meta.getLong(8);
+            coveredFrom = meta.getLong(16);
+            coveredTo = meta.getLong(24);
+        } else {
+            meta.putLong(0, MAGIC);
+            writeMeta(0, 0, 0);
+        }
+
+        for (int column = 0; column < COLUMNS.length; column++) {
+            channels[column] = FileChannel.open(directory.resolve(COLUMNS[column] + ".col"), CREATE, READ, WRITE);
+        }
+        map(Math.max(INITIAL_CAPACITY, size));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return coveredFrom == coveredTo;
+    }
+
+    /** Inclusive epoch second of the first fetched interval. */
+    public long getCoveredFrom() {
+        return coveredFrom;
+    }
+
+    /** Exclusive epoch second of the last fetched interval. */
+    public long getCoveredTo() {
+        return coveredTo;
+    }
+
+    public long getTime(int index) {
+        return columns[TIME].getLong(index << 3);
+    }
+
+    public double getOpen(int index) {
+        return columns[OPEN].getDouble(index << 3);
+    }
+
+    public double getHigh(int index) {
+        return columns[HIGH].getDouble(index << 3);
+    }
+
+    public double getLow(int index) {
+        return columns[LOW].getDouble(index << 3);
+    }
+
+    public double getClose(int index) {
+        return columns[CLOSE].getDouble(index << 3);
+    }
+
+    public double getVolume(int index) {
+        return columns[VOLUME].getDouble(index << 3);
+    }
+
+    /**
+     * @return index of the first bar with time greater or equal to {@code time}
+     */
+    public int indexOf(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (getTime(middle) < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Appends the bars of [{@code startTime}, {@code endTime}) to {@code columns}.
+     */
+    public void read(long startTime, long endTime, KlineColumns columns) {
+        final int from = indexOf(startTime);
+        final int to = indexOf(endTime);
+        columns.ensureCapacity(columns.size() + Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            columns.add(getTime(i), getOpen(i), getHigh(i), getLow(i), getClose(i), getVolume(i));
+        }
+    }
+
+    public List<KucoinKline> read(long startTime, long endTime) {
+        final int from = indexOf(startTime);
+        final int to = indexOf(endTime);
+        final List<KucoinKline> result = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            result.add(new KucoinKline(pair, interval, new Object[]{
+                    getTime(i),
+                    BigDecimal.valueOf(getOpen(i)),
+                    BigDecimal.valueOf(getClose(i)),
+                    BigDecimal.valueOf(getHigh(i)),
+                    BigDecimal.valueOf(getLow(i)),
+                    BigDecimal.valueOf(getVolume(i)),
+                    BigDecimal.valueOf(columns[AMOUNT].getDouble(i << 3))}));
+        }
+        return result;
+    }
+
+    /**
+     * Appends klines fetched for [{@code startTime}, {@code endTime}) which must start where the covered range ends.
+     */
+    public void append(List<KucoinKline> klines, long startTime, long endTime) {
+        if (!isEmpty() && startTime != coveredTo) {
+            throw new IllegalArgumentException("Append must continue the covered range at " + coveredTo);
+        }
+
+        int count = size;
+        for (KucoinKline kline : klines) {
+            if (count == 0 || kline.getTime() > getTime(count - 1)) {
+                if (count == capacity) {
+                    map(capacity * 2);
+                }
+                put(count++, kline);
+            }
+        }
+
+        writeMeta(count, isEmpty() ? startTime : coveredFrom, endTime);
+    }
+
+    /**
+     * Stores klines fetched for [{@code startTime}, {@code endTime}) in front of the covered range.
+     * Existing columns are shifted, so the store is first marked empty to stay consistent after a crash.
+     */
+    public void prepend(List<KucoinKline> klines, long startTime, long endTime) {
+        if (isEmpty()) {
+            append(klines, startTime, endTime);
+            return;
+        }
+        if (endTime != coveredFrom) {
+            throw new IllegalArgumentException("Prepend must end where the covered range starts at " + coveredFrom);
+        }
+
+        final long from = coveredFrom;
+        final long to = coveredTo;
+        final int shift = klines.size();
+        final int count = size;
+        writeMeta(0, 0, 0);
+
+        while (count + shift > capacity) {
+            map(capacity * 2);
+        }
+        for (MappedByteBuffer column : columns) {
+            final byte[] bytes = new byte[count << 3];
+            column.position(0);
+            column.get(bytes);
+            column.position(shift << 3);
+            column.put(bytes);
+        }
+        for (int i = 0; i < shift; i++) {
+            put(i, klines.get(i));
+        }
+
+        writeMeta(count + shift, startTime, to);
+    }
+
+    public void flush() {
+        for (MappedByteBuffer column : columns) {
+            column.force();
+        }
+        meta.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        for (FileChannel channel : channels) {
+            channel.close();
+        }
+        metaChannel.close();
+    }
+
+    private void put(int index, KucoinKline kline) {
+        final int offset = index << 3;
+        columns[TIME].putLong(offset, kline.getTime());
+        columns[OPEN].putDouble(offset, kline.getOpen().doubleValue());
+        columns[HIGH].putDouble(offset, kline.getHigh().doubleValue());
+        columns[LOW].putDouble(offset, kline.getLow().doubleValue());
+        columns[CLOSE].putDouble(offset, kline.getClose().doubleValue());
+        columns[VOLUME].putDouble(offset, kline.getVolume().doubleValue());
+        columns[AMOUNT].putDouble(offset, kline.getAmount().doubleValue());
+    }
+
+    private void writeMeta(int count, long from, long to) {
+        size = count;
+        coveredFrom = from;
+        coveredTo = to;
+        meta.putLong(16, from);
+        meta.putLong(24, to);
+        meta.putLong(8, count);
+    }
+
+    private void map(int newCapacity) {
+        try {
+            for (int column = 0; column < COLUMNS.length; column++) {
+                columns[column] = channels[column].map(FileChannel.MapMode.READ_WRITE, 0, (long) newCapacity << 3);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot map kline store for " + pair, e);
+        }
+        capacity = newCapacity;
+    }
+}
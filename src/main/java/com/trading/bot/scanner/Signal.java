@@ -0,0 +1,21 @@
+package com.trading.bot.scanner;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Indicator values of one pair after the last candle a scan fed it.
+ */
+@Data
+@Builder
+public class Signal {
+    private String pair;
+    /** Epoch second the last candle opened at. */
+    private long time;
+    private double close;
+    private double macd;
+    private double signal;
+    private double histogram;
+    private boolean entry;
+    private boolean exit;
+}
@@ -0,0 +1,266 @@
+package com.trading.bot.scanner;
+
+import com.trading.bot.configuration.MovingStrategy;
+import com.trading.bot.feed.BarAggregator;
+import com.trading.bot.feed.KlineFeed;
+import com.trading.bot.feed.KucoinWebSocketFeed;
+import com.trading.bot.indicator.MacdSignalEngine;
+import com.trading.bot.repository.KlineRepository;
+import com.trading.bot.repository.KlineSource;
+import lombok.Builder;
+import lombok.Data;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Clock;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.knowm.xchange.kucoin.dto.KlineIntervalType.min5;
+
+/**
+ * Evaluates the {@link MovingStrategy} entry and exit rules of every pair of {@code scanner.pairs} on each closed
+ * 5 minute candle. The candles are built from the trades of a {@link KlineFeed} by a {@link BarAggregator} and fed
+ * to the pair's {@link MacdSignalEngine} as they close, so a scan only reads the engines and calls nothing.
+ * Each pair reads its last {@link MovingStrategy#MAXIMUM_BAR_COUNT} candles from the {@link KlineSource} once,
+ * at start on {@code scanner.threads} threads, and signals from then on. Nothing of a pair is stored.
+ */
+@ConditionalOnProperty(name = "scanner.pairs")
+@Service
+public class SignalScanner {
+    private static final long CLOSE_DELAY_MILLIS = 250;
+
+    protected final Logger logger = LoggerFactory.getLogger(getClass().getName());
+    private final KlineSource klineSource;
+    private final KlineFeed klineFeed;
+    private final Clock clock;
+    private final BarAggregator barAggregator = new BarAggregator(min5, this::onKline);
+    private final ExecutorService executor;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("scanner-close-"));
+    private final Map<CurrencyPair, Symbol> symbols = new LinkedHashMap<>();
+    private volatile Scan lastScan = Scan.builder()
+            .entries(Collections.emptyList())
+            .exits(Collections.emptyList())
+            .build();
+
+    @Autowired
+    public SignalScanner(KlineSource klineSource,
+                         Clock clock,
+                         @Value("${scanner.pairs}") String[] pairs,
+                         @Value("${scanner.threads:0}") int threads,
+                         @Value("${trader.feed.api-url:https://api.kucoin.com}") String apiUrl) {
+        this(klineSource, new KucoinWebSocketFeed(apiUrl), clock, pairs, threads);
+    }
+
+    /**
+     * @param klineSource the last candles of every pair are read from once, when the scanner starts
+     * @param klineFeed trades of the pairs, the scanner is its only listener
+     */
+    public SignalScanner(KlineSource klineSource, KlineFeed klineFeed, Clock clock, String[] pairs, int threads) {
+        this.klineSource = klineSource;
+        this.klineFeed = klineFeed;
+        this.clock = clock;
+        this.executor = Executors.newFixedThreadPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors(),
+                new CustomizableThreadFactory("scanner-"));
+        for (String pair : pairs) {
+            final CurrencyPair currencyPair = new CurrencyPair(pair.trim());
+            symbols.put(currencyPair, new Symbol(currencyPair));
+        }
+    }
+
+    /**
+     * Subscribes the trades of every pair and warms them up in the background.
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        klineFeed.start(symbols.keySet(), barAggregator);
+
+        final long intervalMillis = barAggregator.getIntervalMillis();
+        timer.scheduleAtFixedRate(() -> barAggregator.closeUntil(clock.millis() - CLOSE_DELAY_MILLIS),
+                intervalMillis - Math.floorMod(clock.millis(), intervalMillis) + CLOSE_DELAY_MILLIS, intervalMillis, TimeUnit.MILLISECONDS);
+
+        warmUp(KlineRepository.closedBoundary(min5, clock));
+    }
+
+    /**
+     * Reads the last candles before {@code endTime} of every pair, candles the feed closes meanwhile are kept
+     * and fed after them.
+     */
+    public void warmUp(long endTime) {
+        for (Symbol symbol : symbols.values()) {
+            executor.execute(() -> symbol.warmUp(endTime));
+        }
+    }
+
+    /**
+     * A closed candle of the {@link BarAggregator}.
+     */
+    public void onKline(KucoinKline kline) {
+        final Symbol symbol = symbols.get(kline.getPair());
+        if (symbol != null) {
+            symbol.onKline(kline);
+        }
+    }
+
+    @Scheduled(cron = "40 */5 * * * *")
+    public void scan() {
+        scan(KlineRepository.closedBoundary(min5, clock));
+    }
+
+    /**
+     * Reads the signal of every pair whose last candle closed at {@code endTime}.
+     */
+    public Scan scan(long endTime) {
+        final long startNanos = System.nanoTime();
+        final List<Signal> entries = new ArrayList<>();
+        final List<Signal> exits = new ArrayList<>();
+        int failed = 0;
+        int behind = 0;
+        for (Symbol symbol : symbols.values()) {
+            final Signal signal;
+            synchronized (symbol) {
+                failed += symbol.failed ? 1 : 0;
+                if (symbol.time + min5.getSeconds() != endTime) {
+                    behind++;
+                    continue;
+                }
+                signal = symbol.signal();
+            }
+            if (signal != null && signal.isEntry()) {
+                entries.add(signal);
+            }
+            if (signal != null && signal.isExit()) {
+                exits.add(signal);
+            }
+        }
+
+        lastScan = Scan.builder()
+                .endTime(endTime)
+                .pairs(symbols.size())
+                .failed(failed)
+                .behind(behind)
+                .durationMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos))
+                .entries(entries)
+                .exits(exits)
+                .build();
+        return lastScan;
+    }
+
+    public Scan getLastScan() {
+        return lastScan;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+        klineFeed.stop();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Indicator state of one pair, fed by the feed and the warm-up under the symbol's lock.
+     */
+    private class Symbol {
+        private final CurrencyPair pair;
+        private final MacdSignalEngine engine = new MacdSignalEngine();
+        /** Candles closed before the warm-up is done, at most as many as the warm-up reads. */
+        private final Deque<KucoinKline> streamed = new ArrayDeque<>();
+        private boolean warm;
+        private boolean failed;
+        private long time;
+        private double close;
+
+        Symbol(CurrencyPair pair) {
+            this.pair = pair;
+        }
+
+        void warmUp(long endTime) {
+            List<KucoinKline> klines = Collections.emptyList();
+            try {
+                klines = klineSource.getKlines(pair, endTime - MovingStrategy.MAXIMUM_BAR_COUNT * min5.getSeconds(), endTime, min5);
+            } catch (IOException | RuntimeException e) {
+                logger.warn("{} warm-up failed, signals after {} streamed candles", pair, MovingStrategy.MAXIMUM_BAR_COUNT, e);
+            }
+            synchronized (this) {
+                failed = klines.isEmpty();
+                klines.forEach(this::next);
+                streamed.forEach(this::next);
+                streamed.clear();
+                warm = true;
+            }
+        }
+
+        synchronized void onKline(KucoinKline kline) {
+            if (warm) {
+                next(kline);
+                return;
+            }
+            if (streamed.size() == MovingStrategy.MAXIMUM_BAR_COUNT) {
+                streamed.removeFirst();
+            }
+            streamed.addLast(kline);
+        }
+
+        private void next(KucoinKline kline) {
+            if (kline.getTime() > time) {
+                close = kline.getClose().doubleValue();
+                time = kline.getTime();
+                engine.next(close);
+            }
+        }
+
+        /**
+         * @return the signal after the last candle, null while the pair has too few candles
+         */
+        Signal signal() {
+            if (engine.getBarCount() < MovingStrategy.MAXIMUM_BAR_COUNT) {
+                return null;
+            }
+            return Signal.builder()
+                    .pair(pair.toString())
+                    .time(time)
+                    .close(close)
+                    .macd(engine.getMacd())
+                    .signal(engine.getSignal())
+                    .histogram(engine.getHistogram())
+                    .entry(engine.shouldEnter())
+                    .exit(engine.shouldExit())
+                    .build();
+        }
+    }
+
+    @Data
+    @Builder
+    public static class Scan {
+        /** Exclusive epoch second of the candles the scan read. */
+        private long endTime;
+        private int pairs;
+        /** Pairs whose warm-up could not be read, they signal once the feed closed enough candles. */
+        private int failed;
+        /** Pairs without a candle closed at {@code endTime}, not evaluated. */
+        private int behind;
+        private long durationMillis;
+        private List<Signal> entries;
+        private List<Signal> exits;
+    }
+}
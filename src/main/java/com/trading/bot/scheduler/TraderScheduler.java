@@ -1,56 +1,251 @@
 package com.trading.bot.scheduler;
 
+import com.trading.bot.configuration.MovingStrategy;
+import com.trading.bot.gateway.ExchangeGateway;
 import com.trading.bot.logic.Trader;
-import org.knowm.xchange.Exchange;
-import org.knowm.xchange.kucoin.KucoinMarketDataService;
+import com.trading.bot.logic.TraderRegistry;
+import com.trading.bot.metrics.TraderMetrics;
+import com.trading.bot.repository.KlineRepository;
+import io.micrometer.core.instrument.Timer;
+import org.knowm.xchange.currency.CurrencyPair;
 import org.knowm.xchange.kucoin.dto.response.KucoinKline;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.time.*;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
-import static com.trading.bot.configuration.BotConfig.CURRENCY_PAIR;
 import static org.knowm.xchange.kucoin.dto.KlineIntervalType.min5;
 
+/**
+ * Ticks every trader on each closed 5 minute candle. Candles are read through the {@link KlineRepository},
+ * so the live trader sees the same candles as the backtests and a restart reads the warm-up from the store.
+ * A pair trades only once it {@link #isReady(CurrencyPair) is ready}. All times are read from the {@link Clock},
+ * with {@code trader.feed=replay} the cron does nothing and a replay drives {@link #sell(long)} on a virtual clock.
+ */
 @Profile("prod")
 @Service
 public class TraderScheduler {
+    private static final int WARM_UP_DAYS = 4;
+
     protected final Logger logger = LoggerFactory.getLogger(getClass().getName());
-    private final Exchange exchange;
-    private final Trader trader;
+    private final KlineRepository klineRepository;
+    private final TraderRegistry traderRegistry;
+    private final TraderMetrics traderMetrics;
+    private final ExecutorService executor;
+    private final Map<CurrencyPair, CompletableFuture<Void>> ticks = new ConcurrentHashMap<>();
+    private final boolean polling;
+    private final Clock clock;
+    private final Set<CurrencyPair> ready = ConcurrentHashMap.newKeySet();
+    private final Map<CurrencyPair, List<KucoinKline>> streamed = new ConcurrentHashMap<>();
 
-    public TraderScheduler(Trader trader, Exchange exchange) {
-        this.exchange = exchange;
-        this.trader = trader;
+    public TraderScheduler(TraderRegistry traderRegistry,
+                           TraderMetrics traderMetrics,
+                           KlineRepository klineRepository,
+                           Clock clock,
+                           @Value("${trader.threads:8}") int threads,
+                           @Value("${trader.feed:poll}") String feed) {
+        this.klineRepository = klineRepository;
+        this.traderRegistry = traderRegistry;
+        this.traderMetrics = traderMetrics;
+        this.clock = clock;
+        this.polling = "poll".equals(feed);
+        this.executor = Executors.newFixedThreadPool(threads,
+                ExchangeGateway.threadFactory(ExchangeGateway.Priority.LIVE, new CustomizableThreadFactory("trader-")));
     }
 
+    /**
+     * Loads the last {@value #WARM_UP_DAYS} days that are in the local store and returns at once,
+     * the gap since the store was last written is filled by a background warm-up of every pair.
+     */
     @PostConstruct
     public void postConstruct() throws IOException {
-        final long startDate = LocalDateTime.now(ZoneOffset.UTC).minusDays(4).toEpochSecond(ZoneOffset.UTC);
-        final long endDate = LocalDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.MINUTES).toEpochSecond(ZoneOffset.UTC);
+        final long startNanos = System.nanoTime();
+        final long endDate = KlineRepository.closedBoundary(min5, clock);
 
-        final List<KucoinKline> kucoinKlines = ((KucoinMarketDataService) exchange.getMarketDataService())
-                .getKucoinKlines(CURRENCY_PAIR, startDate, endDate, min5);
-        Collections.reverse(kucoinKlines);
-        kucoinKlines.forEach(trader::loadBarSeries);
+        for (Trader trader : traderRegistry.getTraders()) {
+            klineRepository.getStoredKlines(trader.getCurrencyPair(), warmUpStart(endDate), endDate, min5).forEach(trader::loadBarSeries);
+            logger.info("{} {} bars loaded from the store", trader.getCurrencyPair(), trader.getBarCount());
+            dispatch(trader, () -> warmUp(trader, endDate, startNanos));
+        }
     }
 
+    /**
+     * Ticks with the last closed candle. Does nothing unless candles are polled, when they are streamed
+     * {@link #onKline(KucoinKline)} is called as soon as each candle closes.
+     */
    @Scheduled(cron = "30 */5 * * * *")
-    public void sell() throws IOException {
-        final long startDate = LocalDateTime.now(ZoneOffset.UTC).minusMinutes(30).toEpochSecond(ZoneOffset.UTC);
-        List<KucoinKline> kucoinKlines = ((KucoinMarketDataService) exchange.getMarketDataService())
-                .getKucoinKlines(CURRENCY_PAIR, startDate, 0L, min5);
-        KucoinKline lastKline = kucoinKlines.get(1);
-       trader.loadBarSeries(lastKline);
+    public void sell() {
+        if (polling) {
+            sell(KlineRepository.closedBoundary(min5, clock));
+        }
+    }
+
+    /**
+     * Starts a tick for every pair without waiting for it, a pair whose previous tick is still running is skipped.
+     * A pair that is not ready yet retries its warm-up instead of trading.
+     *
+     * @param endDate epoch second the candle to tick with closes at
+     * @return completes when the started ticks are done
+     */
+    public CompletableFuture<Void> sell(long endDate) {
+        final List<CompletableFuture<Void>> started = new ArrayList<>();
+        for (Trader trader : traderRegistry.getTraders()) {
+            final CompletableFuture<Void> previous = ticks.get(trader.getCurrencyPair());
+            if (previous != null && !previous.isDone()) {
+                logger.warn("{} previous tick still running, skipped", trader.getCurrencyPair());
+                continue;
+            }
+            if (isReady(trader.getCurrencyPair())) {
+                started.add(dispatch(trader, () -> sell(trader, endDate)));
+            } else {
+                started.add(dispatch(trader, () -> warmUp(trader, endDate, System.nanoTime())));
+            }
+        }
+        return CompletableFuture.allOf(started.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * Queues a tick with a closed candle pushed by the kline stream, ticks of one pair run in candle order.
+     * Candles that close while a tick of their pair is still running are coalesced: they are all loaded into
+     * the series by the next tick, which trades only with the latest of them.
+     */
+    public void onKline(KucoinKline kline) {
+        final Trader trader = traderRegistry.getTrader(kline.getPair());
+        if (trader == null) {
+            return;
+        }
+        final List<KucoinKline> pending = streamed.computeIfAbsent(trader.getCurrencyPair(), pair -> new ArrayList<>());
+        synchronized (pending) {
+            pending.add(kline);
+            if (pending.size() > 1) {
+                logger.warn("{} previous tick still running, candle {} coalesced", trader.getCurrencyPair(), kline.getTime());
+                return;
+            }
+        }
+        dispatch(trader, () -> onKlines(trader, pending));
+    }
+
+    /**
+     * @return completes when every tick and warm-up dispatched so far is done, a replay waits here before it starts
+     */
+    public CompletableFuture<Void> idle() {
+        return CompletableFuture.allOf(ticks.values().toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * @return whether the pair's series is complete up to the last tick and covers the indicator lookback
+     */
+    public boolean isReady(CurrencyPair pair) {
+        return ready.contains(pair);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Runs the tick after the previous tick of the same pair, ticks of other pairs are not held back.
+     */
+    private CompletableFuture<Void> dispatch(Trader trader, Runnable tick) {
+        return ticks.compute(trader.getCurrencyPair(), (pair, previous) -> previous == null || previous.isDone()
+                ? CompletableFuture.runAsync(tick, executor)
+                : previous.thenRunAsync(tick, executor));
+    }
+
+    /**
+     * Ticks with the latest of the streamed candles, the older ones are only loaded into the series.
+     */
+    private void onKlines(Trader trader, List<KucoinKline> pending) {
+        final List<KucoinKline> klines;
+        synchronized (pending) {
+            klines = new ArrayList<>(pending);
+            pending.clear();
+        }
+        final KucoinKline last = klines.get(klines.size() - 1);
+        if (!isReady(trader.getCurrencyPair())) {
+            warmUp(trader, last.getTime() + last.getIntervalType().getSeconds(), System.nanoTime());
+            return;
+        }
+        final Timer.Sample tick = traderMetrics.start();
+        for (int i = 0; i < klines.size() - 1; i++) {
+            trader.loadBarSeries(klines.get(i));
+        }
+        next(trader, last);
+        tick.stop(traderMetrics.tick(trader.getCurrencyPair()));
+    }
+
+    /**
+     * Ticks with the candle closed at {@code endDate}, the store is topped up with the base candles since the last tick.
+     */
+    private void sell(Trader trader, long endDate) {
+        final Timer.Sample tick = traderMetrics.start();
+        try {
+            final Timer.Sample call = traderMetrics.start();
+            List<KucoinKline> kucoinKlines;
+            try {
+                kucoinKlines = klineRepository.getKlines(trader.getCurrencyPair(), endDate - min5.getSeconds(), endDate, min5);
+            } finally {
+                call.stop(traderMetrics.exchangeCall("getKlines", trader.getCurrencyPair(), null));
+            }
+            if (kucoinKlines.isEmpty()) {
+                logger.warn("{} no candle closed at {}", trader.getCurrencyPair(), endDate);
+                return;
+            }
+            next(trader, kucoinKlines.get(0));
+        } catch (IOException | RuntimeException e) {
+            logger.error("{} tick failed", trader.getCurrencyPair(), e);
+        } finally {
+            tick.stop(traderMetrics.tick(trader.getCurrencyPair()));
+        }
+    }
+
+    /**
+     * Fills the series up to {@code endDate} through the repository, which only fetches what is not stored yet.
+     */
+    private void warmUp(Trader trader, long endDate, long startNanos) {
+        try {
+            klineRepository.getKlines(trader.getCurrencyPair(), warmUpStart(endDate), endDate, min5).forEach(trader::loadBarSeries);
+        } catch (IOException | RuntimeException e) {
+            logger.error("{} warm-up failed, retried on the next tick", trader.getCurrencyPair(), e);
+            return;
+        }
+        if (trader.getBarCount() >= MovingStrategy.MAXIMUM_BAR_COUNT) {
+            ready.add(trader.getCurrencyPair());
+            logger.info("{} ready with {} bars after {} ms", trader.getCurrencyPair(), trader.getBarCount(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        } else {
+            logger.warn("{} only {} bars after warm-up, not ready", trader.getCurrencyPair(), trader.getBarCount());
+        }
+    }
+
+    private static long warmUpStart(long endDate) {
+        return endDate - Duration.ofDays(WARM_UP_DAYS).getSeconds();
+    }
 
-       trader.next(lastKline);
+    private void next(Trader trader, KucoinKline lastKline) {
+        try {
+            trader.loadBarSeries(lastKline);
 
+            trader.next(lastKline);
+            traderMetrics.tickLag(trader.getCurrencyPair(),
+                    clock.millis() - (lastKline.getTime() + lastKline.getIntervalType().getSeconds()) * 1000L);
+        } catch (IOException | RuntimeException e) {
+            logger.error("{} tick failed", trader.getCurrencyPair(), e);
+        }
     }
 }
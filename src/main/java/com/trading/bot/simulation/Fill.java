@@ -0,0 +1,23 @@
+package com.trading.bot.simulation;
+
+import lombok.Builder;
+import lombok.Data;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.dto.Order;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+public class Fill {
+    private long orderId;
+    private CurrencyPair pair;
+    private Order.OrderType side;
+    private SimulatedOrder.Type type;
+    private BigDecimal amount;
+    /** Trigger or limit price the order rested at. */
+    private BigDecimal orderPrice;
+    private BigDecimal price;
+    /** Epoch second of the bar that filled the order. */
+    private long time;
+}
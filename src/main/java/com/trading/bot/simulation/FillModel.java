@@ -0,0 +1,33 @@
+package com.trading.bot.simulation;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * How the {@link MatchingEngine} prices a fill. Slippage moves stop fills against the order in basis points,
+ * limit orders always fill at their limit or better.
+ */
+@Data
+@Builder
+public class FillModel {
+    @Builder.Default
+    private FillPrice fillPrice = FillPrice.TRIGGER;
+    @Builder.Default
+    private BigDecimal slippageBasisPoints = BigDecimal.ZERO;
+
+    public enum FillPrice {
+        /** The trigger price, or the open when the bar opened beyond it. */
+        TRIGGER,
+        /** The close of the bar that triggered the order. */
+        CLOSE,
+        /** The high of the bar for buys and its low for sells. */
+        WORST
+    }
+
+    /** Fills at the close without slippage, like the stop order backtest always did. */
+    public static FillModel close() {
+        return FillModel.builder().fillPrice(FillPrice.CLOSE).build();
+    }
+}
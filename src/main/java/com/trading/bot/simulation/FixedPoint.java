@@ -0,0 +1,85 @@
+package com.trading.bot.simulation;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Decimal values held in a {@code long} as units of {@code 10^-scale}. Sums and products of units are exact
+ * as long as they fit, {@link Math#addExact} and {@link Math#multiplyExact} make an overflow fail instead of wrap.
+ */
+public final class FixedPoint {
+    /** Largest scale a unit can have, {@code 10^18} is the largest power of ten in a {@code long}. */
+    public static final int MAX_SCALE = 18;
+    private static final long[] POWERS = new long[MAX_SCALE + 1];
+
+    static {
+        POWERS[0] = 1;
+        for (int i = 1; i < POWERS.length; i++) {
+            POWERS[i] = POWERS[i - 1] * 10;
+        }
+    }
+
+    private FixedPoint() {
+    }
+
+    public static long pow10(int scale) {
+        return POWERS[scale];
+    }
+
+    /**
+     * @return units of {@code value}, which is the double nearest to a decimal of at most {@code scale} places
+     * @throws ArithmeticException when {@code value} has more places than {@code scale} or does not fit
+     */
+    public static long toUnits(double value, int scale) {
+        final double scaled = value * POWERS[scale];
+        if (Math.abs(scaled) >= 0x1p53) {
+            return toUnits(BigDecimal.valueOf(value), scale);
+        }
+        final long units = Math.round(scaled);
+        if ((double) units / POWERS[scale] != value) {
+            throw new ArithmeticException(value + " has more than " + scale + " decimal places");
+        }
+        return units;
+    }
+
+    /**
+     * @throws ArithmeticException when {@code value} has more places than {@code scale} or does not fit
+     */
+    public static long toUnits(BigDecimal value, int scale) {
+        return value.setScale(scale).unscaledValue().longValueExact();
+    }
+
+    /**
+     * @return units of {@code value} rounded to {@code scale} places, a double is taken as its shortest decimal
+     * like {@link BigDecimal#valueOf(double)}
+     * @throws ArithmeticException when the value does not fit
+     */
+    public static long toUnits(double value, int scale, RoundingMode rounding) {
+        final double scaled = value * POWERS[scale];
+        if (Math.abs(scaled) < 0x1p53) {
+            final long units = Math.round(scaled);
+            if ((double) units / POWERS[scale] == value) {
+                return units;
+            }
+        }
+        return toUnits(BigDecimal.valueOf(value), scale, rounding);
+    }
+
+    /**
+     * @throws ArithmeticException when the value does not fit
+     */
+    public static long toUnits(BigDecimal value, int scale, RoundingMode rounding) {
+        return value.setScale(scale, rounding).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toDecimal(long units, int scale) {
+        return BigDecimal.valueOf(units, scale);
+    }
+
+    /**
+     * @return the double nearest to the value of {@code units}, the same as {@link BigDecimal#doubleValue()}
+     */
+    public static double toDouble(long units, int scale) {
+        return Math.abs(units) < 0x1p53 ? (double) units / POWERS[scale] : toDecimal(units, scale).doubleValue();
+    }
+}
@@ -0,0 +1,134 @@
+package com.trading.bot.simulation;
+
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.dto.Order;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.knowm.xchange.dto.Order.OrderType.BID;
+
+/**
+ * Simulated exchange for backtests: any number of resting stop and limit orders per pair and side,
+ * filled by the bars of their pair and priced by a {@link FillModel}. Orders triggered by a bar are
+ * filled in trigger order after the bar was matched, so orders placed by a fill wait for the next bar.
+ * Not thread safe, every backtest runs its own engine.
+ */
+public class MatchingEngine {
+    private static final BigDecimal BASIS_POINTS = BigDecimal.valueOf(10000);
+
+    private final FillModel fillModel;
+    private final Consumer<Fill> listener;
+    private final BigDecimal buySlippage;
+    private final BigDecimal sellSlippage;
+    private final Map<CurrencyPair, OrderBook> books = new HashMap<>();
+    private final Map<Long, SimulatedOrder> orders = new HashMap<>();
+    private final List<SimulatedOrder> triggered = new ArrayList<>();
+    private long nextOrderId = 1;
+
+    public MatchingEngine(FillModel fillModel, Consumer<Fill> listener) {
+        this.fillModel = fillModel;
+        this.listener = listener;
+        final BigDecimal slippage = fillModel.getSlippageBasisPoints().divide(BASIS_POINTS);
+        this.buySlippage = slippage.signum() == 0 ? null : BigDecimal.ONE.add(slippage);
+        this.sellSlippage = slippage.signum() == 0 ? null : BigDecimal.ONE.subtract(slippage);
+    }
+
+    /**
+     * @return id of an order buying when the price rises to or sells when it falls to {@code stopPrice}
+     */
+    public long placeStop(CurrencyPair pair, Order.OrderType side, BigDecimal amount, BigDecimal stopPrice) {
+        return place(pair, side, SimulatedOrder.Type.STOP, amount, stopPrice);
+    }
+
+    /**
+     * @return id of an order buying at or below or selling at or above {@code limitPrice}
+     */
+    public long placeLimit(CurrencyPair pair, Order.OrderType side, BigDecimal amount, BigDecimal limitPrice) {
+        return place(pair, side, SimulatedOrder.Type.LIMIT, amount, limitPrice);
+    }
+
+    /**
+     * @return whether the order was still open
+     */
+    public boolean cancel(long orderId) {
+        final SimulatedOrder order = orders.remove(orderId);
+        if (order == null) {
+            return false;
+        }
+        books.get(order.getPair()).cancel(order);
+        return true;
+    }
+
+    public int getOpenOrderCount() {
+        return orders.size();
+    }
+
+    /**
+     * Matches the closed bar {@code kline} against the open orders of its pair.
+     */
+    public void onBar(KucoinKline kline) {
+        final OrderBook book = books.get(kline.getPair());
+        if (book == null) {
+            return;
+        }
+        book.match(kline.getHigh(), kline.getLow(), triggered);
+        if (triggered.isEmpty()) {
+            return;
+        }
+        try {
+            for (SimulatedOrder order : triggered) {
+                orders.remove(order.getId());
+                listener.accept(Fill.builder()
+                        .orderId(order.getId())
+                        .pair(order.getPair())
+                        .side(order.getSide())
+                        .type(order.getType())
+                        .amount(order.getAmount())
+                        .orderPrice(order.getPrice())
+                        .price(fillPrice(order, kline))
+                        .time(kline.getTime())
+                        .build());
+            }
+        } finally {
+            triggered.clear();
+        }
+    }
+
+    private long place(CurrencyPair pair, Order.OrderType side, SimulatedOrder.Type type, BigDecimal amount, BigDecimal price) {
+        final SimulatedOrder order = new SimulatedOrder(nextOrderId++, pair, side, type, amount, price);
+        orders.put(order.getId(), order);
+        books.computeIfAbsent(pair, key -> new OrderBook()).add(order);
+        return order.getId();
+    }
+
+    private BigDecimal fillPrice(SimulatedOrder order, KucoinKline kline) {
+        final boolean buy = order.getSide() == BID;
+        final BigDecimal price;
+        switch (fillModel.getFillPrice()) {
+            case CLOSE:
+                price = kline.getClose();
+                break;
+            case WORST:
+                price = buy ? kline.getHigh() : kline.getLow();
+                break;
+            default:
+                // a stop is reached by the open when the bar gaps through it, a limit is then filled at the better open
+                price = buy == (order.getType() == SimulatedOrder.Type.STOP)
+                        ? order.getPrice().max(kline.getOpen())
+                        : order.getPrice().min(kline.getOpen());
+        }
+        if (order.getType() == SimulatedOrder.Type.LIMIT) {
+            return buy ? price.min(order.getPrice()) : price.max(order.getPrice());
+        }
+        if (buySlippage == null) {
+            return price;
+        }
+        return price.multiply(buy ? buySlippage : sellSlippage);
+    }
+}
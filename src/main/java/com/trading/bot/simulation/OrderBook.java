@@ -0,0 +1,87 @@
+package com.trading.bot.simulation;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import static org.knowm.xchange.dto.Order.OrderType.BID;
+
+/**
+ * Resting orders of one pair in four heaps ordered by the price that triggers them first, so a bar
+ * looks at the head of each heap and touches no order that it does not trigger.
+ * Canceled orders stay in their heap until they reach its head or too many of them piled up.
+ */
+class OrderBook {
+    private static final Comparator<SimulatedOrder> ASCENDING =
+            Comparator.comparing(SimulatedOrder::getPrice).thenComparingLong(SimulatedOrder::getId);
+    private static final Comparator<SimulatedOrder> DESCENDING =
+            Comparator.comparing(SimulatedOrder::getPrice).reversed().thenComparingLong(SimulatedOrder::getId);
+
+    /** Triggered by a high at or above the price. */
+    private final PriorityQueue<SimulatedOrder> buyStops = new PriorityQueue<>(ASCENDING);
+    private final PriorityQueue<SimulatedOrder> sellLimits = new PriorityQueue<>(ASCENDING);
+    /** Triggered by a low at or below the price. */
+    private final PriorityQueue<SimulatedOrder> sellStops = new PriorityQueue<>(DESCENDING);
+    private final PriorityQueue<SimulatedOrder> buyLimits = new PriorityQueue<>(DESCENDING);
+    private int canceled;
+
+    void add(SimulatedOrder order) {
+        heap(order).add(order);
+    }
+
+    void cancel(SimulatedOrder order) {
+        order.canceled = true;
+        if (++canceled > 64 && canceled > size() / 2) {
+            buyStops.removeIf(SimulatedOrder::isCanceled);
+            sellLimits.removeIf(SimulatedOrder::isCanceled);
+            sellStops.removeIf(SimulatedOrder::isCanceled);
+            buyLimits.removeIf(SimulatedOrder::isCanceled);
+            canceled = 0;
+        }
+    }
+
+    /**
+     * Removes the orders a bar from {@code low} to {@code high} triggers and adds them to {@code triggered}.
+     */
+    void match(BigDecimal high, BigDecimal low, List<SimulatedOrder> triggered) {
+        takeAtOrBelow(buyStops, high, triggered);
+        takeAtOrBelow(sellLimits, high, triggered);
+        takeAtOrAbove(sellStops, low, triggered);
+        takeAtOrAbove(buyLimits, low, triggered);
+    }
+
+    int size() {
+        return buyStops.size() + sellLimits.size() + sellStops.size() + buyLimits.size();
+    }
+
+    private PriorityQueue<SimulatedOrder> heap(SimulatedOrder order) {
+        if (order.getType() == SimulatedOrder.Type.STOP) {
+            return order.getSide() == BID ? buyStops : sellStops;
+        }
+        return order.getSide() == BID ? buyLimits : sellLimits;
+    }
+
+    private void takeAtOrBelow(PriorityQueue<SimulatedOrder> heap, BigDecimal bound, List<SimulatedOrder> triggered) {
+        SimulatedOrder head;
+        while ((head = heap.peek()) != null && (head.canceled || head.getPrice().compareTo(bound) <= 0)) {
+            take(heap, triggered);
+        }
+    }
+
+    private void takeAtOrAbove(PriorityQueue<SimulatedOrder> heap, BigDecimal bound, List<SimulatedOrder> triggered) {
+        SimulatedOrder head;
+        while ((head = heap.peek()) != null && (head.canceled || head.getPrice().compareTo(bound) >= 0)) {
+            take(heap, triggered);
+        }
+    }
+
+    private void take(PriorityQueue<SimulatedOrder> heap, List<SimulatedOrder> triggered) {
+        final SimulatedOrder order = heap.poll();
+        if (order.canceled) {
+            canceled--;
+        } else {
+            triggered.add(order);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.trading.bot.simulation;
+
+import lombok.Builder;
+import lombok.Data;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.springframework.core.env.Environment;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Decimal places of a pair's prices (its tick) and amounts (its lot) in the simulations, overridden per pair
+ * with {@code simulation.precision.<BASE>-<COUNTER>.price-scale} and {@code .amount-scale}.
+ * Amounts are whole units of the base currency by default, like the backtests always bought.
+ * The {@code FIXED_POINT} backtest holds values in {@code long} units of the {@link #getValueScale() value scale},
+ * which is at most {@link FixedPoint#MAX_SCALE} and leaves {@code 9.2 * 10^(18 - valueScale)} as the largest wallet.
+ */
+@Data
+@Builder
+public class PairPrecision {
+    @Builder.Default
+    private int priceScale = 8;
+    @Builder.Default
+    private int amountScale = 0;
+
+    public static PairPrecision of(Environment environment, CurrencyPair pair) {
+        final String prefix = "simulation.precision." + pair.base + "-" + pair.counter;
+        final PairPrecision defaults = PairPrecision.builder().build();
+        return PairPrecision.builder()
+                .priceScale(environment.getProperty(prefix + ".price-scale", Integer.class, defaults.priceScale))
+                .amountScale(environment.getProperty(prefix + ".amount-scale", Integer.class, defaults.amountScale))
+                .build();
+    }
+
+    /** Scale of the counter currency values, a price times an amount. */
+    public int getValueScale() {
+        return priceScale + amountScale;
+    }
+
+    /**
+     * @throws IllegalArgumentException when {@code value} cannot be held in {@link FixedPoint} units of the value scale
+     */
+    public void checkFixedPoint(BigDecimal value) {
+        if (priceScale < 0 || amountScale < 0 || getValueScale() > FixedPoint.MAX_SCALE) {
+            throw new IllegalArgumentException("Price scale " + priceScale + " and amount scale " + amountScale
+                    + " exceed " + FixedPoint.MAX_SCALE + " places of fixed point values");
+        }
+        try {
+            FixedPoint.toUnits(value, getValueScale(), RoundingMode.DOWN);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException(value + " does not fit in fixed point values of " + getValueScale() + " places");
+        }
+    }
+}
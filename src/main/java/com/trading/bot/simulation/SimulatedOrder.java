@@ -0,0 +1,34 @@
+package com.trading.bot.simulation;
+
+import lombok.Getter;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.dto.Order;
+
+import java.math.BigDecimal;
+
+/**
+ * A resting order of the {@link MatchingEngine}. A stop order triggers when the price reaches its price from
+ * the side it protects against, buy stops at or above and sell stops at or below it. A limit order fills when the
+ * price reaches its price from the other side.
+ */
+@Getter
+public class SimulatedOrder {
+    private final long id;
+    private final CurrencyPair pair;
+    private final Order.OrderType side;
+    private final Type type;
+    private final BigDecimal amount;
+    private final BigDecimal price;
+    boolean canceled;
+
+    public enum Type { STOP, LIMIT }
+
+    SimulatedOrder(long id, CurrencyPair pair, Order.OrderType side, Type type, BigDecimal amount, BigDecimal price) {
+        this.id = id;
+        this.pair = pair;
+        this.side = side;
+        this.type = type;
+        this.amount = amount;
+        this.price = price;
+    }
+}
@@ -0,0 +1,315 @@
+package com.trading.bot.trace;
+
+import com.trading.bot.indicator.MacdSignalEngine;
+import lombok.Builder;
+import lombok.Data;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The last {@code capacity} decisions of one trader in preallocated primitive columns. A tick opens a record with
+ * {@link #begin}, fills in what it did and {@link #commit closes} it, none of which allocates. There is one writer,
+ * the tick of the pair, readers take a {@link #snapshot(int)} at any time and skip the record being overwritten.
+ * The columns are atomic arrays: the writer stores with {@code lazySet} after marking the slot, readers load every
+ * field with a volatile read before checking the slot's sequence again, so a record changed meanwhile is detected.
+ */
+public class DecisionTrace {
+    private static final int MACD_UNDER_SIGNAL = 1;
+    private static final int MACD_OVER_SIGNAL = 1 << 1;
+    private static final int HISTOGRAM_RISING = 1 << 2;
+    private static final int HISTOGRAM_FALLING = 1 << 3;
+    private static final int ENTER = 1 << 4;
+    private static final int EXIT = 1 << 5;
+    private static final int IN_POSITION = 1 << 6;
+    private static final DecisionTrace DISABLED = new DecisionTrace(0);
+
+    /** What a tick did. */
+    public enum Action {
+        NONE,
+        /** The buy stop filled, the trader now holds the position. */
+        BOUGHT,
+        /** The sell stop filled, the trader is out of the position. */
+        SOLD,
+        PLACE_BID,
+        PLACE_ASK,
+        CANCEL
+    }
+
+    private final int capacity;
+    /** Sequence of the record in every slot, -1 while it is written. */
+    private final AtomicLongArray sequences;
+    private final AtomicLongArray barTimes;
+    /** Doubles are stored as their raw long bits. */
+    private final AtomicLongArray closes;
+    private final AtomicLongArray macds;
+    private final AtomicLongArray signals;
+    private final AtomicLongArray histograms;
+    private final AtomicIntegerArray flags;
+    private final AtomicIntegerArray actions;
+    private final AtomicLongArray stopPrices;
+    private final AtomicLongArray balanceCallNanos;
+    private final AtomicLongArray orderCallNanos;
+    private final AtomicLongArray completedOrderMillis;
+    private final AtomicLongArray tickNanos;
+    private volatile long committed;
+    private long next;
+    private int slot = -1;
+
+    public DecisionTrace(int capacity) {
+        this.capacity = capacity;
+        sequences = new AtomicLongArray(capacity);
+        barTimes = new AtomicLongArray(capacity);
+        closes = new AtomicLongArray(capacity);
+        macds = new AtomicLongArray(capacity);
+        signals = new AtomicLongArray(capacity);
+        histograms = new AtomicLongArray(capacity);
+        flags = new AtomicIntegerArray(capacity);
+        actions = new AtomicIntegerArray(capacity);
+        stopPrices = new AtomicLongArray(capacity);
+        balanceCallNanos = new AtomicLongArray(capacity);
+        orderCallNanos = new AtomicLongArray(capacity);
+        completedOrderMillis = new AtomicLongArray(capacity);
+        tickNanos = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, -1);
+        }
+    }
+
+    /** A trace that records nothing, for traders without one. */
+    public static DecisionTrace disabled() {
+        return DISABLED;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return records committed so far, including those already overwritten
+     */
+    public long getCommitted() {
+        return committed;
+    }
+
+    /**
+     * Opens the record of the tick with the candle starting at {@code barTime}, with the indicator values
+     * and rule outcomes of {@code signalEngine} after that candle.
+     */
+    public void begin(long barTime, double close, MacdSignalEngine signalEngine, boolean inPosition) {
+        if (capacity == 0) {
+            return;
+        }
+        slot = (int) (next % capacity);
+        sequences.set(slot, -1);
+        final double macd = signalEngine.getMacd();
+        final double signal = signalEngine.getSignal();
+        final double histogram = signalEngine.getHistogram();
+        final double previousHistogram = signalEngine.getPreviousHistogram();
+        barTimes.lazySet(slot, barTime);
+        put(closes, slot, close);
+        put(macds, slot, macd);
+        put(signals, slot, signal);
+        put(histograms, slot, histogram);
+        flags.lazySet(slot, (macd < signal ? MACD_UNDER_SIGNAL : 0)
+                | (macd > signal ? MACD_OVER_SIGNAL : 0)
+                | (histogram > previousHistogram ? HISTOGRAM_RISING : 0)
+                | (histogram < previousHistogram ? HISTOGRAM_FALLING : 0)
+                | (signalEngine.shouldEnter() ? ENTER : 0)
+                | (signalEngine.shouldExit() ? EXIT : 0)
+                | (inPosition ? IN_POSITION : 0));
+        actions.lazySet(slot, Action.NONE.ordinal());
+        put(stopPrices, slot, Double.NaN);
+        balanceCallNanos.lazySet(slot, 0);
+        orderCallNanos.lazySet(slot, 0);
+        completedOrderMillis.lazySet(slot, -1);
+        tickNanos.lazySet(slot, 0);
+    }
+
+    public void action(Action action) {
+        if (slot >= 0) {
+            actions.lazySet(slot, action.ordinal());
+        }
+    }
+
+    public void stopPrice(double stopPrice) {
+        if (slot >= 0) {
+            put(stopPrices, slot, stopPrice);
+        }
+    }
+
+    public void balanceCall(long nanos) {
+        if (slot >= 0) {
+            balanceCallNanos.lazySet(slot, balanceCallNanos.get(slot) + nanos);
+        }
+    }
+
+    /** Place and cancel calls made on the tick. */
+    public void orderCall(long nanos) {
+        if (slot >= 0) {
+            orderCallNanos.lazySet(slot, orderCallNanos.get(slot) + nanos);
+        }
+    }
+
+    /** An order action sent in the background that was applied on this tick. */
+    public void completedOrder(long elapsedMillis) {
+        if (slot >= 0) {
+            completedOrderMillis.lazySet(slot, Math.max(completedOrderMillis.get(slot), elapsedMillis));
+        }
+    }
+
+    /**
+     * Closes the open record, it becomes visible to readers.
+     */
+    public void commit(long nanos) {
+        if (slot < 0) {
+            return;
+        }
+        tickNanos.lazySet(slot, nanos);
+        sequences.set(slot, next);
+        committed = ++next;
+        slot = -1;
+    }
+
+    /**
+     * @return up to {@code limit} of the last committed records, oldest first, none for a negative limit
+     */
+    public List<Record> snapshot(int limit) {
+        final long end = committed;
+        final long start = Math.max(0, end - Math.max(0, Math.min(limit, capacity)));
+        final List<Record> records = new ArrayList<>((int) (end - start));
+        for (long sequence = start; sequence < end; sequence++) {
+            final int index = (int) (sequence % capacity);
+            if (sequences.get(index) != sequence) {
+                continue;
+            }
+            final int recordFlags = flags.get(index);
+            final Record record = Record.builder()
+                    .sequence(sequence)
+                    .barTime(barTimes.get(index))
+                    .close(get(closes, index))
+                    .macd(get(macds, index))
+                    .signal(get(signals, index))
+                    .histogram(get(histograms, index))
+                    .macdUnderSignal((recordFlags & MACD_UNDER_SIGNAL) != 0)
+                    .macdOverSignal((recordFlags & MACD_OVER_SIGNAL) != 0)
+                    .histogramRising((recordFlags & HISTOGRAM_RISING) != 0)
+                    .histogramFalling((recordFlags & HISTOGRAM_FALLING) != 0)
+                    .enter((recordFlags & ENTER) != 0)
+                    .exit((recordFlags & EXIT) != 0)
+                    .inPosition((recordFlags & IN_POSITION) != 0)
+                    .action(Action.values()[actions.get(index)])
+                    .stopPrice(get(stopPrices, index))
+                    .balanceCallNanos(balanceCallNanos.get(index))
+                    .orderCallNanos(orderCallNanos.get(index))
+                    .completedOrderMillis(completedOrderMillis.get(index))
+                    .tickNanos(tickNanos.get(index))
+                    .build();
+            if (sequences.get(index) == sequence) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    private static void put(AtomicLongArray column, int index, double value) {
+        column.lazySet(index, Double.doubleToRawLongBits(value));
+    }
+
+    private static double get(AtomicLongArray column, int index) {
+        return Double.longBitsToDouble(column.get(index));
+    }
+
+    /**
+     * Writes the committed records, oldest first.
+     */
+    public void write(DataOutput out) throws IOException {
+        final List<Record> records = snapshot(capacity);
+        out.writeInt(records.size());
+        for (Record record : records) {
+            out.writeLong(record.getSequence());
+            out.writeLong(record.getBarTime());
+            out.writeDouble(record.getClose());
+            out.writeDouble(record.getMacd());
+            out.writeDouble(record.getSignal());
+            out.writeDouble(record.getHistogram());
+            out.writeByte((record.isMacdUnderSignal() ? MACD_UNDER_SIGNAL : 0)
+                    | (record.isMacdOverSignal() ? MACD_OVER_SIGNAL : 0)
+                    | (record.isHistogramRising() ? HISTOGRAM_RISING : 0)
+                    | (record.isHistogramFalling() ? HISTOGRAM_FALLING : 0)
+                    | (record.isEnter() ? ENTER : 0)
+                    | (record.isExit() ? EXIT : 0)
+                    | (record.isInPosition() ? IN_POSITION : 0));
+            out.writeByte(record.getAction().ordinal());
+            out.writeDouble(record.getStopPrice());
+            out.writeLong(record.getBalanceCallNanos());
+            out.writeLong(record.getOrderCallNanos());
+            out.writeLong(record.getCompletedOrderMillis());
+            out.writeLong(record.getTickNanos());
+        }
+    }
+
+    public static List<Record> read(DataInput in) throws IOException {
+        final int count = in.readInt();
+        final List<Record> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final Record.RecordBuilder record = Record.builder()
+                    .sequence(in.readLong())
+                    .barTime(in.readLong())
+                    .close(in.readDouble())
+                    .macd(in.readDouble())
+                    .signal(in.readDouble())
+                    .histogram(in.readDouble());
+            final int recordFlags = in.readByte();
+            records.add(record
+                    .macdUnderSignal((recordFlags & MACD_UNDER_SIGNAL) != 0)
+                    .macdOverSignal((recordFlags & MACD_OVER_SIGNAL) != 0)
+                    .histogramRising((recordFlags & HISTOGRAM_RISING) != 0)
+                    .histogramFalling((recordFlags & HISTOGRAM_FALLING) != 0)
+                    .enter((recordFlags & ENTER) != 0)
+                    .exit((recordFlags & EXIT) != 0)
+                    .inPosition((recordFlags & IN_POSITION) != 0)
+                    .action(Action.values()[in.readByte()])
+                    .stopPrice(in.readDouble())
+                    .balanceCallNanos(in.readLong())
+                    .orderCallNanos(in.readLong())
+                    .completedOrderMillis(in.readLong())
+                    .tickNanos(in.readLong())
+                    .build());
+        }
+        return records;
+    }
+
+    @Data
+    @Builder
+    public static class Record {
+        private long sequence;
+        /** Epoch second the candle of the tick starts at. */
+        private long barTime;
+        private double close;
+        private double macd;
+        private double signal;
+        private double histogram;
+        private boolean macdUnderSignal;
+        private boolean macdOverSignal;
+        private boolean histogramRising;
+        private boolean histogramFalling;
+        private boolean enter;
+        private boolean exit;
+        /** Whether the trader held the position when the tick started. */
+        private boolean inPosition;
+        private Action action;
+        /** Price of the stop order placed on the tick, NaN without one. */
+        private double stopPrice;
+        private long balanceCallNanos;
+        private long orderCallNanos;
+        /** Longest background order action applied on the tick, -1 without one. */
+        private long completedOrderMillis;
+        private long tickNanos;
+    }
+}
@@ -0,0 +1,96 @@
+package com.trading.bot.trace;
+
+import org.knowm.xchange.currency.CurrencyPair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One {@link DecisionTrace} of {@code trader.trace.capacity} records per pair. All traces can be dumped in one
+ * binary file, read back with {@link #read(InputStream)}, and are dumped to {@code trader.trace.dump-path}
+ * on shutdown when it is set.
+ */
+@Profile("prod")
+@Service
+public class DecisionTraceService {
+    private static final int DUMP_MAGIC = 0x44545231;
+
+    protected final Logger logger = LoggerFactory.getLogger(getClass().getName());
+    private final int capacity;
+    private final String dumpPath;
+    private final Map<CurrencyPair, DecisionTrace> traces = new ConcurrentHashMap<>();
+
+    public DecisionTraceService(@Value("${trader.trace.capacity:4096}") int capacity,
+                                @Value("${trader.trace.dump-path:}") String dumpPath) {
+        this.capacity = capacity;
+        this.dumpPath = dumpPath;
+    }
+
+    public DecisionTrace getTrace(CurrencyPair pair) {
+        return traces.computeIfAbsent(pair, key -> new DecisionTrace(capacity));
+    }
+
+    /**
+     * @return the trace of the pair, null when the pair has none
+     */
+    public DecisionTrace findTrace(CurrencyPair pair) {
+        return traces.get(pair);
+    }
+
+    public void dump(OutputStream outputStream) throws IOException {
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+        final Map<CurrencyPair, DecisionTrace> dumped = new LinkedHashMap<>(traces);
+        out.writeInt(DUMP_MAGIC);
+        out.writeInt(dumped.size());
+        for (Map.Entry<CurrencyPair, DecisionTrace> entry : dumped.entrySet()) {
+            out.writeUTF(entry.getKey().toString());
+            entry.getValue().write(out);
+        }
+        out.flush();
+    }
+
+    public static Map<CurrencyPair, List<DecisionTrace.Record>> read(InputStream inputStream) throws IOException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream));
+        if (in.readInt() != DUMP_MAGIC) {
+            throw new IOException("Not a decision trace dump");
+        }
+        final int pairs = in.readInt();
+        final Map<CurrencyPair, List<DecisionTrace.Record>> records = new LinkedHashMap<>();
+        for (int i = 0; i < pairs; i++) {
+            records.put(new CurrencyPair(in.readUTF()), DecisionTrace.read(in));
+        }
+        return records;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (dumpPath.isEmpty()) {
+            return;
+        }
+        final Path path = Paths.get(dumpPath);
+        try (OutputStream outputStream = Files.newOutputStream(path)) {
+            dump(outputStream);
+            logger.info("Decision traces dumped to {}", path);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Decision trace dump to {} failed", path, e);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.trading.bot.backtest;
+
+import com.trading.bot.repository.FileKlineSource;
+import com.trading.bot.repository.KlinePrefetcher;
+import com.trading.bot.repository.KlineRepository;
+import com.trading.bot.repository.KlineSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.kucoin.dto.KlineIntervalType;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BacktestJobServiceTest {
+    private static final CurrencyPair PAIR = new CurrencyPair("SOL", "USDT");
+    private static final LocalDateTime START = LocalDateTime.parse("2023-11-02T00:00:00");
+    private static final LocalDateTime END = LocalDateTime.parse("2023-11-07T00:00:00");
+    private static final BigDecimal WALLET = new BigDecimal("1800");
+
+    @TempDir
+    Path storePath;
+    private BacktestJobService service;
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void concurrentJobsDoNotShareState() throws Exception {
+        final BacktestRunner runner = runner(new FileKlineSource());
+        service = new BacktestJobService(runner, 4, 8, 100);
+        final TextTradeReport expected = new TextTradeReport();
+        runner.stopOrder(PAIR, START, END, WALLET, expected);
+
+        final List<BacktestJob> jobs = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            jobs.add(service.submitStopOrder(PAIR, START, END, WALLET));
+        }
+        for (BacktestJob job : jobs) {
+            awaitFinished(job);
+            assertEquals(BacktestJob.State.DONE, job.getState());
+            assertEquals(5, job.getStatus().getDaysDone());
+            assertEquals(expected.getLines(), job.getResults());
+        }
+        assertTrue(expected.getLines().size() > 5);
+    }
+
+    @Test
+    void cancelsQueuedAndRunningJobs() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        service = new BacktestJobService(runner(blockingSource(release)), 1, 8, 100);
+
+        final BacktestJob running = service.submitStopOrder(PAIR, START, END, WALLET);
+        final BacktestJob queued = service.submitStopOrder(PAIR, START, END, WALLET);
+        while (running.getState() != BacktestJob.State.RUNNING) {
+            Thread.sleep(1);
+        }
+
+        service.cancel(queued.getId());
+        assertEquals(BacktestJob.State.CANCELED, queued.getState());
+
+        service.cancel(running.getId());
+        release.countDown();
+        awaitFinished(running);
+        assertEquals(BacktestJob.State.CANCELED, running.getState());
+        assertFalse(running.getStatus().getDaysDone() > 0);
+    }
+
+    @Test
+    void canceledQueuedJobFreesItsPlaceInTheQueue() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        service = new BacktestJobService(runner(blockingSource(release)), 1, 1, 100);
+
+        final BacktestJob running = service.submitStopOrder(PAIR, START, END, WALLET);
+        while (running.getState() != BacktestJob.State.RUNNING) {
+            Thread.sleep(1);
+        }
+        final BacktestJob queued = service.submitStopOrder(PAIR, START, END, WALLET);
+        service.cancel(queued.getId());
+        final BacktestJob next = service.submitStopOrder(PAIR, START, END, WALLET);
+
+        release.countDown();
+        awaitFinished(running);
+        awaitFinished(next);
+        assertEquals(BacktestJob.State.CANCELED, queued.getState());
+        assertEquals(BacktestJob.State.DONE, next.getState());
+    }
+
+    /**
+     * @return a source whose reads wait for {@code release}
+     */
+    private static KlineSource blockingSource(CountDownLatch release) {
+        return new FileKlineSource() {
+            @Override
+            public List<KucoinKline> getKlines(CurrencyPair pair, long startTime, long endTime, KlineIntervalType interval) throws IOException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getKlines(pair, startTime, endTime, interval);
+            }
+        };
+    }
+
+    private BacktestRunner runner(KlineSource source) {
+        return new BacktestRunner(new KlinePrefetcher(new KlineRepository(source, storePath.toString()), source, 2, 2), BigDecimal.ONE);
+    }
+
+    private static void awaitFinished(BacktestJob job) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!job.isFinished() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+}
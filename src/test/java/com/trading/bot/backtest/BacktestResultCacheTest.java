@@ -0,0 +1,178 @@
+package com.trading.bot.backtest;
+
+import com.trading.bot.repository.FileKlineSource;
+import com.trading.bot.repository.KlinePrefetcher;
+import com.trading.bot.repository.KlineRepository;
+import com.trading.bot.repository.KlineSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BacktestResultCacheTest {
+    private static final CurrencyPair PAIR = new CurrencyPair("SOL", "USDT");
+    private static final LocalDateTime START = LocalDateTime.parse("2023-11-02T00:00:00");
+    private static final LocalDateTime END = LocalDateTime.parse("2023-11-07T00:00:00");
+    private static final long MISSING_TIME = 1699056000L;
+
+    @TempDir
+    Path tempDir;
+    private final List<KlinePrefetcher> prefetchers = new ArrayList<>();
+    private KlineRepository repository;
+    private int runs;
+
+    @AfterEach
+    void tearDown() {
+        prefetchers.forEach(KlinePrefetcher::shutdown);
+    }
+
+    @Test
+    void repeatedBacktestIsReplayed() throws IOException {
+        final BacktestRunner runner = runner(new FileKlineSource(), "store");
+        final BacktestResultCache cache = new BacktestResultCache(repository, 1 << 20, "");
+
+        final List<String> first = purchase(cache, runner, "95");
+        final List<String> second = purchase(cache, runner, "95.00");
+
+        assertTrue(first.size() > 5);
+        assertEquals(first, second);
+        assertEquals(1, runs);
+        assertEquals(1, cache.getStatistics().getHits());
+        assertEquals(0.5, cache.getStatistics().getHitRate());
+
+        purchase(cache, runner, "99");
+        assertEquals(2, runs);
+    }
+
+    @Test
+    void leastRecentlyUsedResultIsEvicted() throws IOException {
+        final BacktestRunner runner = runner(new FileKlineSource(), "store");
+        final BacktestResultCache probe = new BacktestResultCache(repository, 1 << 20, "");
+        purchase(probe, runner, "95");
+        final BacktestResultCache cache = new BacktestResultCache(repository, probe.getStatistics().getBytes() * 5 / 2, "");
+
+        purchase(cache, runner, "95", "1800");
+        purchase(cache, runner, "95", "1900");
+        purchase(cache, runner, "95", "1800");
+        purchase(cache, runner, "95", "2000");
+        runs = 0;
+        purchase(cache, runner, "95", "1800");
+        purchase(cache, runner, "95", "1900");
+
+        assertEquals(1, runs);
+        assertEquals(2, cache.getStatistics().getEvictions());
+        assertTrue(cache.getStatistics().getBytes() <= probe.getStatistics().getBytes() * 5 / 2);
+    }
+
+    @Test
+    void resultsAreReadBackFromDisk() throws IOException {
+        final BacktestRunner runner = runner(new FileKlineSource(), "store");
+        final String path = tempDir.resolve("cache").toString();
+        final List<String> first = purchase(new BacktestResultCache(repository, 1 << 20, path), runner, "95");
+
+        final BacktestResultCache restarted = new BacktestResultCache(repository, 1 << 20, path);
+        assertEquals(first, purchase(restarted, runner, "95"));
+        assertEquals(1, runs);
+        assertEquals(1, restarted.getStatistics().getDiskHits());
+
+        restarted.invalidate();
+        purchase(restarted, runner, "95");
+        assertEquals(2, runs);
+        assertEquals(1, Files.list(tempDir.resolve("cache")).count());
+    }
+
+    @Test
+    void changedKlinesAreNotServedFromTheCache() throws IOException {
+        final String path = tempDir.resolve("cache").toString();
+        final BacktestRunner runner = runner(new FileKlineSource(), "store");
+        final KlineRepository stored = repository;
+        final List<String> first = purchase(new BacktestResultCache(stored, 1 << 20, path), runner, "95");
+
+        final FileKlineSource source = new FileKlineSource();
+        final BacktestRunner gapRunner = runner((pair, startTime, endTime, interval) -> {
+            final List<KucoinKline> klines = source.getKlines(pair, startTime, endTime, interval);
+            klines.removeIf(kline -> kline.getTime() == MISSING_TIME);
+            return klines;
+        }, "gap-store");
+        final BacktestResultCache cache = new BacktestResultCache(repository, 1 << 20, path);
+        purchase(cache, gapRunner, "95");
+
+        assertEquals(2, runs);
+        assertEquals(0, cache.getStatistics().getDiskHits());
+        assertEquals(first, purchase(new BacktestResultCache(stored, 1 << 20, path), runner, "95"));
+        assertEquals(2, runs);
+    }
+
+    @Test
+    void changedCloseInsideTheRangeIsNotServedFromTheCache() throws IOException {
+        final String path = tempDir.resolve("cache").toString();
+        final BacktestRunner runner = runner(new FileKlineSource(), "store");
+        purchase(new BacktestResultCache(repository, 1 << 20, path), runner, "95");
+
+        final FileKlineSource source = new FileKlineSource();
+        final BacktestRunner changedRunner = runner((pair, startTime, endTime, interval) -> {
+            final List<KucoinKline> klines = source.getKlines(pair, startTime, endTime, interval);
+            klines.replaceAll(kline -> kline.getTime() != MISSING_TIME ? kline : new KucoinKline(pair, interval,
+                    new Object[]{kline.getTime(), kline.getOpen(), kline.getClose().add(new BigDecimal("0.001")),
+                            kline.getHigh(), kline.getLow(), kline.getVolume(), kline.getAmount()}));
+            return klines;
+        }, "changed-store");
+        final BacktestResultCache cache = new BacktestResultCache(repository, 1 << 20, path);
+        purchase(cache, changedRunner, "95");
+
+        assertEquals(2, runs);
+        assertEquals(0, cache.getStatistics().getDiskHits());
+    }
+
+    @Test
+    void rangesThatAreNotStoredAreNotCached() throws IOException {
+        final BacktestRunner runner = runner(new FileKlineSource(), "store");
+        final KlineRepository empty = new KlineRepository((pair, startTime, endTime, interval) -> new ArrayList<>(),
+                tempDir.resolve("empty").toString());
+        final BacktestResultCache cache = new BacktestResultCache(empty, 1 << 20, "");
+
+        purchase(cache, runner, "95");
+        purchase(cache, runner, "95");
+
+        assertEquals(2, runs);
+        assertEquals(2, cache.getStatistics().getUncacheable());
+        assertEquals(0, cache.getStatistics().getEntries());
+    }
+
+    /**
+     * @return a runner over its own store, which is left in {@link #repository}
+     */
+    private BacktestRunner runner(KlineSource source, String store) {
+        repository = new KlineRepository(source, tempDir.resolve(store).toString());
+        final KlinePrefetcher prefetcher = new KlinePrefetcher(repository, source, 1, 1);
+        prefetchers.add(prefetcher);
+        return new BacktestRunner(prefetcher, BigDecimal.ONE);
+    }
+
+    private List<String> purchase(BacktestResultCache cache, BacktestRunner runner, String stopLoss) throws IOException {
+        return purchase(cache, runner, stopLoss, "1800");
+    }
+
+    private List<String> purchase(BacktestResultCache cache, BacktestRunner runner, String stopLoss, String walletUSDT) throws IOException {
+        final TextTradeReport report = new TextTradeReport();
+        final BigDecimal loss = new BigDecimal(stopLoss);
+        final BigDecimal wallet = new BigDecimal(walletUSDT);
+        cache.run(runner.purchaseKey(PAIR, START, END, wallet, loss, BacktestRunner.Engine.COLUMNAR), report, cached -> {
+            runs++;
+            runner.purchase(PAIR, START, END, wallet, loss, BacktestRunner.Engine.COLUMNAR, cached);
+        });
+        return report.getLines();
+    }
+}
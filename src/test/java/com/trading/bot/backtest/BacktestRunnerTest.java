@@ -0,0 +1,102 @@
+package com.trading.bot.backtest;
+
+import com.trading.bot.repository.FileKlineSource;
+import com.trading.bot.repository.KlinePrefetcher;
+import com.trading.bot.repository.KlineRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BacktestRunnerTest {
+    private static final CurrencyPair PAIR = new CurrencyPair("SOL", "USDT");
+    private static final LocalDateTime START = LocalDateTime.parse("2023-11-02T00:00:00");
+    private static final LocalDateTime END = LocalDateTime.parse("2023-11-07T00:00:00");
+
+    @TempDir
+    Path storePath;
+    private KlinePrefetcher prefetcher;
+    private BacktestRunner runner;
+
+    @BeforeEach
+    void setUp() {
+        final FileKlineSource source = new FileKlineSource();
+        prefetcher = new KlinePrefetcher(new KlineRepository(source, storePath.toString()), source, 1, 1);
+        runner = new BacktestRunner(prefetcher, BigDecimal.ONE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        prefetcher.shutdown();
+    }
+
+    @Test
+    void columnarEngineReportsTheSameTrades() throws IOException {
+        for (String stopLoss : new String[]{"95", "99", "99.5", "99.8", "100"}) {
+            final TextTradeReport bar = new TextTradeReport();
+            final TextTradeReport columnar = new TextTradeReport();
+            runner.purchase(PAIR, START, END, new BigDecimal("1800"), new BigDecimal(stopLoss), BacktestRunner.Engine.BAR, bar);
+            runner.purchase(PAIR, START, END, new BigDecimal("1800"), new BigDecimal(stopLoss), BacktestRunner.Engine.COLUMNAR, columnar);
+
+            assertTrue(bar.getLines().size() > 5);
+            assertEquals(bar.getLines(), columnar.getLines(), "stop loss " + stopLoss);
+        }
+    }
+
+    @Test
+    void fixedPointEngineReportsTheSameTrades() throws IOException {
+        assertSameTrades(runner);
+    }
+
+    @Test
+    void fixedPointEngineReportsTheSameTradesInFractionalLots() throws IOException {
+        final BacktestRunner lotRunner = new BacktestRunner(prefetcher, BigDecimal.ONE, new MockEnvironment()
+                .withProperty("simulation.precision.SOL-USDT.price-scale", "3")
+                .withProperty("simulation.precision.SOL-USDT.amount-scale", "4"));
+        assertSameTrades(lotRunner);
+    }
+
+    @Test
+    void fixedPointEngineRoundsInputsWithMorePlaces() throws IOException {
+        final BacktestRunner tickRunner = new BacktestRunner(prefetcher, BigDecimal.ONE, new MockEnvironment()
+                .withProperty("simulation.precision.SOL-USDT.price-scale", "2"));
+        final TextTradeReport fixedPoint = new TextTradeReport();
+        tickRunner.purchase(PAIR, START, END, new BigDecimal("1800.256"), new BigDecimal("99"), BacktestRunner.Engine.FIXED_POINT, fixedPoint);
+
+        assertTrue(fixedPoint.getLines().size() > 5);
+    }
+
+    @Test
+    void fixedPointEngineRejectsWalletsBeyondItsUnits() {
+        final BacktestRunner lotRunner = new BacktestRunner(prefetcher, BigDecimal.ONE, new MockEnvironment()
+                .withProperty("simulation.precision.SOL-USDT.amount-scale", "8"));
+
+        lotRunner.checkPurchase(PAIR, new BigDecimal("922"), BacktestRunner.Engine.FIXED_POINT);
+        assertThrows(IllegalArgumentException.class,
+                () -> lotRunner.checkPurchase(PAIR, new BigDecimal("923"), BacktestRunner.Engine.FIXED_POINT));
+        lotRunner.checkPurchase(PAIR, new BigDecimal("923"), BacktestRunner.Engine.COLUMNAR);
+    }
+
+    private static void assertSameTrades(BacktestRunner runner) throws IOException {
+        for (String stopLoss : new String[]{"95", "99", "99.5", "99.8", "100"}) {
+            final TextTradeReport columnar = new TextTradeReport();
+            final TextTradeReport fixedPoint = new TextTradeReport();
+            runner.purchase(PAIR, START, END, new BigDecimal("1800.25"), new BigDecimal(stopLoss), BacktestRunner.Engine.COLUMNAR, columnar);
+            runner.purchase(PAIR, START, END, new BigDecimal("1800.25"), new BigDecimal(stopLoss), BacktestRunner.Engine.FIXED_POINT, fixedPoint);
+
+            assertTrue(columnar.getLines().size() > 5);
+            assertEquals(columnar.getLines(), fixedPoint.getLines(), "stop loss " + stopLoss);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.trading.bot.backtest;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.text.DecimalFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NdjsonTradeReportTest {
+
+    @Test
+    void writesTradeAndDayRecords() {
+        final StringWriter writer = new StringWriter();
+        final NdjsonTradeReport report = new NdjsonTradeReport(writer);
+
+        report.trade(1698884700L, 1698888900L, 37.3989, 37.51, 1800, 1805.33, 4.8);
+        report.trade(1698891300L, 1698896400L, 38.397, 38.443, 1805.33, 1807.49, -2.104);
+        report.day(0, 1698883200L, 1807.49);
+
+        assertEquals("{\"type\":\"trade\",\"entryTime\":\"2023-11-02T00:25:00Z\",\"exitTime\":\"2023-11-02T01:35:00Z\","
+                        + "\"entryPrice\":37.399,\"exitPrice\":37.510,\"walletBefore\":1800.00,\"walletAfter\":1805.33,\"profit\":4.80}\n"
+                        + "{\"type\":\"trade\",\"entryTime\":\"2023-11-02T02:15:00Z\",\"exitTime\":\"2023-11-02T03:40:00Z\","
+                        + "\"entryPrice\":38.397,\"exitPrice\":38.443,\"walletBefore\":1805.33,\"walletAfter\":1807.49,\"profit\":-2.10}\n"
+                        + "{\"type\":\"day\",\"day\":0,\"date\":\"2023-11-02\",\"trades\":2,\"walletUSDT\":1807.49}\n",
+                writer.toString());
+    }
+
+    @Test
+    void formatsLikeDecimalFormatAndInstant() {
+        final DecimalFormat priceFormat = new DecimalFormat("#0.000");
+        final Random random = new Random(42);
+        final StringBuilder out = new StringBuilder();
+
+        for (int i = 0; i < 10000; i++) {
+            final double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(6));
+            out.setLength(0);
+            NdjsonTradeReport.appendFixed(out, value, 3);
+            final String expected = priceFormat.format(value);
+            // DecimalFormat keeps the sign of values rounded to zero, the report writes a plain zero
+            assertEquals("-0.000".equals(expected) ? "0.000" : expected, out.toString(), String.valueOf(value));
+
+            final long epochSecond = random.nextInt(Integer.MAX_VALUE) * 60L;
+            out.setLength(0);
+            NdjsonTradeReport.appendDateTime(out, epochSecond);
+            assertEquals(Instant.ofEpochSecond(epochSecond).toString(), out.toString());
+
+            out.setLength(0);
+            NdjsonTradeReport.appendDate(out, epochSecond / 86400L);
+            assertEquals(LocalDate.ofEpochDay(epochSecond / 86400L).toString(), out.toString());
+        }
+    }
+}
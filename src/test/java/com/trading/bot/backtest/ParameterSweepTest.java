@@ -0,0 +1,109 @@
+package com.trading.bot.backtest;
+
+import com.trading.bot.configuration.MovingStrategy;
+import com.trading.bot.repository.FileKlineSource;
+import com.trading.bot.repository.KlinePrefetcher;
+import com.trading.bot.repository.KlineRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.knowm.xchange.kucoin.dto.KlineIntervalType.min5;
+
+class ParameterSweepTest {
+    private static final CurrencyPair PAIR = new CurrencyPair("SOL", "USDT");
+    private static final LocalDateTime START = LocalDateTime.parse("2023-11-02T00:00:00");
+    private static final LocalDateTime END = LocalDateTime.parse("2023-11-07T00:00:00");
+    private static final BigDecimal WALLET = new BigDecimal("1800");
+
+    @TempDir
+    Path storePath;
+    private KlinePrefetcher prefetcher;
+    private BacktestRunner runner;
+    private ParameterSweep sweep;
+
+    @BeforeEach
+    void setUp() {
+        final FileKlineSource source = new FileKlineSource();
+        prefetcher = new KlinePrefetcher(new KlineRepository(source, storePath.toString()), source, 1, 1);
+        runner = new BacktestRunner(prefetcher, BigDecimal.ONE);
+        sweep = new ParameterSweep(2, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        prefetcher.shutdown();
+        sweep.shutdown();
+    }
+
+    @Test
+    void matchesThePurchaseBacktest() throws IOException {
+        final List<KucoinKline> klines = FileKlineSource.load(PAIR, min5).stream()
+                .filter(kline -> kline.getTime() < END.toEpochSecond(ZoneOffset.UTC))
+                .collect(Collectors.toList());
+        final int startIndex = (int) klines.stream()
+                .filter(kline -> kline.getTime() < START.toEpochSecond(ZoneOffset.UTC))
+                .count();
+        final List<BigDecimal> stopLosses = Arrays.asList(
+                new BigDecimal("95"), new BigDecimal("99"), new BigDecimal("99.5"), new BigDecimal("99.8"), new BigDecimal("100"));
+
+        final List<SweepResult> results = sweep.sweep(klines, startIndex, Duration.ofMinutes(5L), WALLET,
+                new int[]{MovingStrategy.SMA_BAR_COUNT}, new int[]{MovingStrategy.MACD_SHORT_BAR_COUNT},
+                new int[]{MovingStrategy.MACD_LONG_BAR_COUNT}, new int[]{MovingStrategy.SIGNAL_BAR_COUNT}, stopLosses);
+
+        assertEquals(stopLosses.size(), results.size());
+        for (SweepResult result : results) {
+            final Trades trades = new Trades();
+            runner.purchase(PAIR, START, END, WALLET, result.getStopLoss(), BacktestRunner.Engine.BAR, trades);
+
+            assertTrue(trades.count > 5);
+            assertEquals(trades.count, result.getTrades(), "stop loss " + result.getStopLoss());
+            assertEquals(trades.walletUSDT, result.getWalletUSDT().doubleValue(), 1e-6, "stop loss " + result.getStopLoss());
+        }
+    }
+
+    @Test
+    void rejectsTooManyCombinations() {
+        final List<BigDecimal> stopLosses = new ArrayList<>(ParameterRange.decimals("90:99"));
+
+        final IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> sweep.sweep(
+                new ArrayList<>(), 0, Duration.ofMinutes(5L), WALLET,
+                new int[]{2}, new int[]{10, 12}, new int[]{26, 28}, new int[]{8, 9, 10}, stopLosses));
+        assertTrue(e.getMessage().contains("120"), e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> ParameterRange.decimals("1:1000000", 100));
+    }
+
+    /** Counts the trades and keeps the wallet after the last one. */
+    private static class Trades implements TradeReport {
+        private int count;
+        private double walletUSDT = WALLET.doubleValue();
+
+        @Override
+        public void trade(long entryTime, long exitTime, double entryPrice, double exitPrice,
+                          double walletBefore, double walletAfter, double profit) {
+            count++;
+            walletUSDT = walletAfter;
+        }
+
+        @Override
+        public void day(int day, long dayStart, double walletUSDT) {
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.trading.bot.configuration;
+
+import com.trading.bot.repository.FileKlineSource;
+import org.junit.jupiter.api.Test;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseBarSeries;
+import org.ta4j.core.Strategy;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.knowm.xchange.kucoin.dto.KlineIntervalType.min5;
+
+class StrategyRegistryTest {
+    private static final int[][] VARIANTS = {{2, 12, 26, 9}, {2, 12, 26, 5}, {2, 12, 30, 9}};
+
+    @Test
+    void variantsShareTheirCommonIndicators() {
+        final StrategyRegistry registry = new StrategyRegistry(new BaseBarSeries());
+        for (int[] variant : VARIANTS) {
+            registry.register(variant[0], variant[1], variant[2], variant[3]);
+        }
+
+        assertSame(registry.getStrategy("2/12/26/9"), registry.register(2, 12, 26, 9));
+        assertEquals(3, registry.getStrategies().size());
+        assertEquals(21, registry.getIndicatorFactory().getRequests());
+        assertEquals(13, registry.getIndicatorFactory().size());
+    }
+
+    @Test
+    void sharedStrategiesDecideLikeSeparateOnes() throws IOException {
+        final BarSeries series = new BaseBarSeries();
+        final StrategyRegistry registry = new StrategyRegistry(series);
+        final Strategy[] separate = new Strategy[VARIANTS.length];
+        for (int i = 0; i < VARIANTS.length; i++) {
+            registry.register(VARIANTS[i][0], VARIANTS[i][1], VARIANTS[i][2], VARIANTS[i][3]);
+            separate[i] = MovingStrategy.buildStrategy(series, VARIANTS[i][0], VARIANTS[i][1], VARIANTS[i][2], VARIANTS[i][3]);
+        }
+
+        for (KucoinKline kline : FileKlineSource.load(new CurrencyPair("SOL", "USDT"), min5)) {
+            series.addBar(Duration.ofMinutes(5L),
+                    ZonedDateTime.ofInstant(Instant.ofEpochSecond(kline.getTime()), ZoneOffset.UTC),
+                    kline.getOpen(),
+                    kline.getHigh(),
+                    kline.getLow(),
+                    kline.getClose(),
+                    kline.getVolume());
+            final int index = series.getEndIndex();
+            registry.evaluate(index);
+            for (int i = 0; i < VARIANTS.length; i++) {
+                final Strategy shared = registry.getStrategy(StrategyRegistry.name(
+                        VARIANTS[i][0], VARIANTS[i][1], VARIANTS[i][2], VARIANTS[i][3]));
+                assertEquals(separate[i].shouldEnter(index), shared.shouldEnter(index), "entry at bar " + index);
+                assertEquals(separate[i].shouldExit(index), shared.shouldExit(index), "exit at bar " + index);
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.trading.bot.feed;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.knowm.xchange.kucoin.dto.KlineIntervalType.min5;
+
+class BarAggregatorTest {
+    private static final CurrencyPair PAIR = new CurrencyPair("SOL", "USDT");
+    private static final long START = 1698796800000L;
+    private static final long INTERVAL = 300000L;
+
+    private final List<KucoinKline> klines = new ArrayList<>();
+    private final List<Long> closedAt = new ArrayList<>();
+    private InProcessKlineFeed feed;
+    private BarAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        aggregator = new BarAggregator(min5, kline -> {
+            klines.add(kline);
+            closedAt.add(System.nanoTime());
+        });
+        feed = new InProcessKlineFeed();
+        feed.start(Collections.singletonList(PAIR), aggregator);
+    }
+
+    @Test
+    void closesCandleOnFirstTradeOfNextInterval() {
+        subscribeBefore(START);
+        feed.publish(PAIR, START + 1000, new BigDecimal("40.0"), new BigDecimal("2"));
+        feed.publish(PAIR, START + 2000, new BigDecimal("41.5"), new BigDecimal("1"));
+        feed.publish(PAIR, START + 3000, new BigDecimal("39.5"), new BigDecimal("1"));
+        feed.publish(PAIR, START + INTERVAL - 1, new BigDecimal("40.5"), new BigDecimal("4"));
+        assertTrue(klines.isEmpty());
+
+        feed.publish(PAIR, START + INTERVAL, new BigDecimal("40.7"), new BigDecimal("1"));
+
+        assertEquals(1, klines.size());
+        final KucoinKline kline = klines.get(0);
+        assertEquals(START / 1000, kline.getTime());
+        assertEquals(0, new BigDecimal("40.0").compareTo(kline.getOpen()));
+        assertEquals(0, new BigDecimal("41.5").compareTo(kline.getHigh()));
+        assertEquals(0, new BigDecimal("39.5").compareTo(kline.getLow()));
+        assertEquals(0, new BigDecimal("40.5").compareTo(kline.getClose()));
+        assertEquals(0, new BigDecimal("8").compareTo(kline.getVolume()));
+    }
+
+    @Test
+    void closesQuietIntervalsAtBoundaryWithinMilliseconds() {
+        subscribeBefore(START);
+        feed.publish(PAIR, START + 1000, new BigDecimal("40.0"), new BigDecimal("2"));
+
+        final long boundary = System.nanoTime();
+        aggregator.closeUntil(START + 3 * INTERVAL);
+
+        assertEquals(3, klines.size());
+        assertEquals((START + 2 * INTERVAL) / 1000, klines.get(2).getTime());
+        assertEquals(0, new BigDecimal("40.0").compareTo(klines.get(2).getOpen()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(klines.get(2).getVolume()));
+        final long latencyNanos = closedAt.get(2) - boundary;
+        assertTrue(latencyNanos < 5_000_000L, "closed " + latencyNanos + " ns after the boundary");
+    }
+
+    @Test
+    void dropsLateTrades() {
+        subscribeBefore(START + INTERVAL);
+        feed.publish(PAIR, START + INTERVAL + 1000, new BigDecimal("40.0"), new BigDecimal("2"));
+        feed.publish(PAIR, START + 1000, new BigDecimal("10.0"), new BigDecimal("2"));
+        aggregator.closeUntil(START + 2 * INTERVAL);
+
+        assertEquals(1, klines.size());
+        assertEquals(0, new BigDecimal("40.0").compareTo(klines.get(0).getLow()));
+    }
+
+    @Test
+    void dropsTheIntervalTheFeedStartedIn() {
+        feed.publish(PAIR, START + INTERVAL / 2, new BigDecimal("40.0"), new BigDecimal("2"));
+        feed.publish(PAIR, START + INTERVAL + 1000, new BigDecimal("41.0"), new BigDecimal("1"));
+        assertTrue(klines.isEmpty());
+
+        aggregator.closeUntil(START + 2 * INTERVAL);
+
+        assertEquals(1, klines.size());
+        assertEquals((START + INTERVAL) / 1000, klines.get(0).getTime());
+        assertEquals(0, new BigDecimal("41.0").compareTo(klines.get(0).getOpen()));
+    }
+
+    /**
+     * Trades once in the interval before {@code start}, which is dropped as the feed started inside it.
+     */
+    private void subscribeBefore(long start) {
+        feed.publish(PAIR, start - 1000, new BigDecimal("40.0"), new BigDecimal("1"));
+        assertTrue(klines.isEmpty());
+    }
+}
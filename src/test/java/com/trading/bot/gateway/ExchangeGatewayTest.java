@@ -0,0 +1,98 @@
+package com.trading.bot.gateway;
+
+import com.trading.bot.metrics.TraderMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.trading.bot.gateway.ExchangeGateway.Endpoint.MARKET_DATA;
+import static com.trading.bot.gateway.ExchangeGateway.Priority.LIVE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExchangeGatewayTest {
+    private final ExecutorService backtests = Executors.newFixedThreadPool(8);
+    private final ExecutorService live = Executors.newFixedThreadPool(2,
+            ExchangeGateway.threadFactory(LIVE, new CustomizableThreadFactory("live-")));
+
+    @AfterEach
+    void tearDown() {
+        backtests.shutdownNow();
+        live.shutdownNow();
+    }
+
+    @Test
+    void sendsIdenticalCallsInFlightOnce() throws Exception {
+        final ExchangeGateway gateway = gateway(100, 100);
+        final AtomicInteger sent = new AtomicInteger();
+        final CompletableFuture<Void> joined = new CompletableFuture<>();
+
+        final List<Future<Integer>> calls = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            calls.add(backtests.submit(() -> gateway.call(MARKET_DATA, "klines", exchange -> {
+                joined.join();
+                return sent.incrementAndGet();
+            })));
+        }
+        while (gateway.getStatistics().get(MARKET_DATA).getCoalesced() < 4) {
+            Thread.sleep(1);
+        }
+        joined.complete(null);
+
+        for (Future<Integer> call : calls) {
+            assertEquals(1, (int) call.get());
+        }
+        assertEquals(1, gateway.getStatistics().get(MARKET_DATA).getRequests());
+        assertEquals(2, (int) gateway.call(MARKET_DATA, "klines", exchange -> sent.incrementAndGet()));
+    }
+
+    @Test
+    void spacesCallsBeyondTheBurst() throws Exception {
+        final ExchangeGateway gateway = gateway(20, 5);
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < 15; i++) {
+            gateway.call(MARKET_DATA, null, exchange -> null);
+        }
+        final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // 5 at once, then 10 at 50 ms each
+        assertTrue(millis >= 450, millis + " ms");
+        assertTrue(gateway.getStatistics().get(MARKET_DATA).getMaxWaitMillis() >= 40);
+    }
+
+    @Test
+    void sendsLiveCallsBeforeWaitingBacktestCalls() throws Exception {
+        final ExchangeGateway gateway = gateway(10, 1);
+        final List<String> order = Collections.synchronizedList(new ArrayList<>());
+        gateway.call(MARKET_DATA, null, exchange -> null);
+
+        for (int i = 0; i < 4; i++) {
+            backtests.submit(() -> gateway.call(MARKET_DATA, null, exchange -> order.add("backtest")));
+        }
+        while (gateway.getStatistics().get(MARKET_DATA).getQueuedBacktest() < 4) {
+            Thread.sleep(1);
+        }
+        live.submit(() -> gateway.call(MARKET_DATA, null, exchange -> order.add("live"))).get();
+
+        assertEquals(0, order.indexOf("live"), order.toString());
+    }
+
+    private static ExchangeGateway gateway(double requestsPerSecond, double burst) {
+        final MockEnvironment environment = new MockEnvironment()
+                .withProperty("exchange.gateway.market-data.requests-per-second", String.valueOf(requestsPerSecond))
+                .withProperty("exchange.gateway.market-data.burst", String.valueOf(burst));
+        return new ExchangeGateway(null, TraderMetrics.noop(), environment);
+    }
+}
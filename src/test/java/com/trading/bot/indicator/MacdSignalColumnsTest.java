@@ -0,0 +1,46 @@
+package com.trading.bot.indicator;
+
+import com.trading.bot.repository.FileKlineSource;
+import org.junit.jupiter.api.Test;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.knowm.xchange.kucoin.dto.KlineIntervalType.min5;
+
+class MacdSignalColumnsTest {
+
+    @Test
+    void matchesEngineBitForBitAcrossChunks() throws IOException {
+        final List<KucoinKline> klines = FileKlineSource.load(new CurrencyPair("SOL", "USDT"), min5);
+        final MacdSignalEngine engine = new MacdSignalEngine(3, 12, 26, 9);
+        final MacdSignalColumns columns = new MacdSignalColumns(3, 12, 26, 9);
+        final Random random = new Random(7);
+        final double[] chunk = new double[300];
+
+        for (int from = 0; from < klines.size(); ) {
+            final int length = Math.min(klines.size() - from, 1 + random.nextInt(chunk.length));
+            for (int i = 0; i < length; i++) {
+                chunk[i] = klines.get(from + i).getClose().doubleValue();
+            }
+            columns.compute(chunk, length);
+
+            for (int i = 0; i < length; i++) {
+                engine.next(chunk[i]);
+                final String bar = "bar " + (from + i);
+                assertEquals(engine.getSma(), columns.getSma(i), 0.0, bar);
+                assertEquals(engine.getMacd(), columns.getMacd(i), 0.0, bar);
+                assertEquals(engine.getSignal(), columns.getSignal(i), 0.0, bar);
+                assertEquals(engine.getHistogram(), columns.getHistogram(i), 0.0, bar);
+                assertEquals(engine.shouldEnter(), columns.isEntry(i), bar);
+                assertEquals(engine.shouldExit(), columns.isExit(i), bar);
+            }
+            from += length;
+        }
+        assertEquals(klines.size(), columns.getBarCount());
+    }
+}
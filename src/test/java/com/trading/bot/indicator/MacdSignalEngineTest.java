@@ -0,0 +1,54 @@
+package com.trading.bot.indicator;
+
+import com.trading.bot.configuration.MovingStrategy;
+import com.trading.bot.repository.FileKlineSource;
+import org.junit.jupiter.api.Test;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseBarSeries;
+import org.ta4j.core.Strategy;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.knowm.xchange.kucoin.dto.KlineIntervalType.min5;
+
+class MacdSignalEngineTest {
+
+    @Test
+    void matchesTa4jStrategyOnRecordedKlines() throws IOException {
+        final List<KucoinKline> klines = FileKlineSource.load(new CurrencyPair("SOL", "USDT"), min5);
+        final BarSeries barSeries = new BaseBarSeries();
+        final Strategy strategy = MovingStrategy.buildStrategy(barSeries);
+        final MacdSignalEngine engine = new MacdSignalEngine();
+        int entries = 0;
+        int exits = 0;
+
+        for (KucoinKline kline : klines) {
+            barSeries.addBar(Duration.ofMinutes(5L),
+                    ZonedDateTime.ofInstant(Instant.ofEpochSecond(kline.getTime()), ZoneOffset.UTC),
+                    kline.getOpen(),
+                    kline.getHigh(),
+                    kline.getLow(),
+                    kline.getClose(),
+                    kline.getVolume());
+            engine.next(kline.getClose().doubleValue());
+
+            final int index = barSeries.getEndIndex();
+            assertEquals(strategy.shouldEnter(index), engine.shouldEnter(), "entry at bar " + index);
+            assertEquals(strategy.shouldExit(index), engine.shouldExit(), "exit at bar " + index);
+            entries += engine.shouldEnter() ? 1 : 0;
+            exits += engine.shouldExit() ? 1 : 0;
+        }
+
+        assertTrue(entries > 0);
+        assertTrue(exits > 0);
+    }
+}
@@ -0,0 +1,80 @@
+package com.trading.bot.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.knowm.xchange.dto.Order;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.knowm.xchange.dto.Order.OrderType.ASK;
+import static org.knowm.xchange.dto.Order.OrderType.BID;
+
+class TradeJournalTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysLastStateAfterReopen() throws IOException {
+        final Path path = directory.resolve("SOL-USDT.journal");
+        final TradeState placed = state(BID, ASK, "6565f4c2b0d6a80007a5f1e3", "37.4251");
+        try (TradeJournal journal = new TradeJournal(path, 16)) {
+            assertNull(journal.getState());
+            journal.append(TradeJournal.Event.ORDER_PLACED, state(ASK, BID, "6565f4c2b0d6a80007a5f1e2", "0"));
+            journal.append(TradeJournal.Event.STATUS, state(BID, BID, "6565f4c2b0d6a80007a5f1e2", "0"));
+            journal.append(TradeJournal.Event.ORDER_PLACED, placed);
+        }
+
+        try (TradeJournal journal = new TradeJournal(path, 16)) {
+            assertEquals(placed, journal.getState());
+            assertEquals(1, journal.size());
+        }
+    }
+
+    @Test
+    void compactsWhenFull() throws IOException {
+        final Path path = directory.resolve("SOL-USDT.journal");
+        try (TradeJournal journal = new TradeJournal(path, 4)) {
+            for (int i = 0; i < 10; i++) {
+                journal.append(TradeJournal.Event.ORDER_PLACED, state(BID, ASK, "order-" + i, "30." + i));
+            }
+            assertEquals(4, journal.size());
+            assertEquals(4L * TradeJournal.RECORD_SIZE, path.toFile().length());
+        }
+
+        try (TradeJournal journal = new TradeJournal(path, 4)) {
+            assertEquals(state(BID, ASK, "order-9", "30.9"), journal.getState());
+        }
+    }
+
+    @Test
+    void ignoresTornRecord() throws IOException {
+        final Path path = directory.resolve("SOL-USDT.journal");
+        try (TradeJournal journal = new TradeJournal(path, 16)) {
+            journal.append(TradeJournal.Event.ORDER_PLACED, state(BID, ASK, "order-1", "31.5"));
+            journal.append(TradeJournal.Event.ORDER_PLACED, state(BID, ASK, "order-2", "31.7"));
+        }
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.seek(TradeJournal.RECORD_SIZE + 40);
+            file.write(0x7F);
+        }
+
+        try (TradeJournal journal = new TradeJournal(path, 16)) {
+            assertEquals(state(BID, ASK, "order-1", "31.5"), journal.getState());
+        }
+    }
+
+    private static TradeState state(Order.OrderType status, Order.OrderType side,
+                                    String orderId, String askOrderPrice) {
+        return TradeState.builder()
+                .tradeStatus(status)
+                .orderSide(side)
+                .orderId(orderId)
+                .askOrderPrice(new BigDecimal(askOrderPrice))
+                .build();
+    }
+}
@@ -0,0 +1,130 @@
+package com.trading.bot.logic;
+
+import com.trading.bot.gateway.ExchangeGateway;
+import com.trading.bot.metrics.TraderMetrics;
+import com.trading.bot.replay.ReplayExchange;
+import com.trading.bot.replay.VirtualClock;
+import com.trading.bot.simulation.FillModel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.knowm.xchange.currency.Currency;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.dto.trade.StopOrder;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.math.BigDecimal;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.knowm.xchange.dto.Order.OrderType.ASK;
+import static org.knowm.xchange.dto.Order.OrderType.BID;
+import static org.knowm.xchange.kucoin.dto.KlineIntervalType.min5;
+
+class BalanceLedgerTest {
+    private static final CurrencyPair SOL = new CurrencyPair("SOL", "USDT");
+    private static final CurrencyPair BTC = new CurrencyPair("BTC", "USDT");
+    /** Opens at 39.977 and trades up to 40.164. */
+    private static final long BAR = 1698797100L;
+
+    private VirtualClock clock;
+    private ReplayExchange exchange;
+    private ExchangeGateway gateway;
+    private BalanceLedger ledger;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        clock = new VirtualClock(Instant.ofEpochSecond(BAR));
+        exchange = new ReplayExchange(clock, Paths.get(getClass().getResource("/klines").toURI()), min5,
+                FillModel.builder().build(), Collections.singletonMap(Currency.USDT, new BigDecimal("100")));
+        final MockEnvironment environment = new MockEnvironment();
+        for (String endpoint : new String[]{"market-data", "account", "trade"}) {
+            environment.setProperty("exchange.gateway." + endpoint + ".requests-per-second", "1000000");
+            environment.setProperty("exchange.gateway." + endpoint + ".burst", "1000000");
+        }
+        gateway = new ExchangeGateway(exchange, TraderMetrics.noop(), environment);
+        ledger = new BalanceLedger(gateway, TraderMetrics.noop(), 30000, 60000);
+        ledger.reconcile();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ledger.stop();
+    }
+
+    @Test
+    void reportedFillIsConfirmedByTheReconcile() throws Exception {
+        placeAndTrigger(new BigDecimal("40.100"));
+
+        ledger.onFill(SOL, BID, BigDecimal.ONE, new BigDecimal("40.100"));
+        assertEquals(0, BigDecimal.ONE.compareTo(ledger.getAvailable(Currency.SOL)));
+        assertEquals(0, new BigDecimal("59.900").compareTo(ledger.getAvailable(Currency.USDT)));
+
+        ledger.reconcile();
+        assertEquals(0, ledger.getStatistics().getDrifts());
+        assertEquals(1, ledger.getStatistics().getFills());
+        assertEquals(0, BigDecimal.ONE.compareTo(ledger.getAvailable(Currency.SOL)));
+    }
+
+    @Test
+    void unreportedFillIsFoundAsDrift() throws Exception {
+        placeAndTrigger(new BigDecimal("40.100"));
+        assertEquals(0, BigDecimal.ZERO.compareTo(ledger.getAvailable(Currency.SOL)));
+
+        ledger.reconcile();
+
+        assertEquals(1, ledger.getStatistics().getDrifts());
+        assertEquals(0, BigDecimal.ONE.compareTo(ledger.getStatistics().getLastDrift().get(Currency.SOL)));
+        assertEquals(0, new BigDecimal("-40.100").compareTo(ledger.getStatistics().getLastDrift().get(Currency.USDT)));
+        assertEquals(0, BigDecimal.ONE.compareTo(ledger.getAvailable(Currency.SOL)));
+    }
+
+    @Test
+    void fillIsKeptUntilItSettled() throws Exception {
+        ledger.onFill(SOL, BID, BigDecimal.ONE, new BigDecimal("40.100"));
+        ledger.reconcile();
+
+        assertEquals(0, ledger.getStatistics().getDrifts());
+        assertEquals(0, BigDecimal.ONE.compareTo(ledger.getAvailable(Currency.SOL)));
+
+        final BalanceLedger settled = new BalanceLedger(gateway, TraderMetrics.noop(), 30000, 0);
+        settled.reconcile();
+        settled.onFill(SOL, BID, BigDecimal.ONE, new BigDecimal("40.100"));
+        settled.reconcile();
+        settled.stop();
+
+        assertEquals(1, settled.getStatistics().getDrifts());
+        assertEquals(0, BigDecimal.ZERO.compareTo(settled.getAvailable(Currency.SOL)));
+    }
+
+    @Test
+    void reservedFundsAreNotCountedTwice() throws Exception {
+        ledger.reserve(SOL, BID, BigDecimal.ONE, new BigDecimal("60"));
+        assertEquals(0, new BigDecimal("60").compareTo(ledger.getStatistics().getReserved().get(Currency.USDT)));
+
+        assertTrue(ledger.canReserve(SOL, BID, BigDecimal.ONE, new BigDecimal("90")));
+        assertFalse(ledger.canReserve(BTC, BID, new BigDecimal("0.001"), new BigDecimal("41000")));
+        assertFalse(ledger.canReserve(SOL, ASK, BigDecimal.ONE, new BigDecimal("40")));
+
+        ledger.release(SOL);
+        assertTrue(ledger.canReserve(BTC, BID, new BigDecimal("0.001"), new BigDecimal("41000")));
+
+        ledger.reserve(SOL, BID, BigDecimal.ONE, new BigDecimal("60"));
+        ledger.onFill(SOL, BID, BigDecimal.ONE, new BigDecimal("60"));
+        assertTrue(ledger.getStatistics().getReserved().isEmpty());
+    }
+
+    /**
+     * Places a buy stop on the exchange and lets the next candle trigger it.
+     */
+    private void placeAndTrigger(BigDecimal stopPrice) throws Exception {
+        exchange.getTradeService().placeStopOrder(new StopOrder(BID, BigDecimal.ONE, SOL, "", null, stopPrice));
+        clock.set(Instant.ofEpochSecond(BAR + min5.getSeconds()));
+        exchange.advance();
+        assertEquals(1, exchange.getStatistics().getFills());
+    }
+}
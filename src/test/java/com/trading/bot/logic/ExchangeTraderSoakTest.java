@@ -0,0 +1,56 @@
+package com.trading.bot.logic;
+
+import com.trading.bot.configuration.MovingStrategy;
+import org.junit.jupiter.api.Test;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+import org.ta4j.core.Strategy;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.knowm.xchange.kucoin.dto.KlineIntervalType.min5;
+
+class ExchangeTraderSoakTest {
+    private static final CurrencyPair PAIR = new CurrencyPair("SOL", "USDT");
+    private static final int BARS_PER_YEAR = 365 * 288;
+
+    @Test
+    void heapStaysFlatOverAYearOfBars() {
+        final ExchangeTrader trader = new ExchangeTrader(null, PAIR, BigDecimal.ONE);
+        final Strategy strategy = MovingStrategy.buildStrategy(trader.barSeries);
+        final Random random = new Random(42);
+        long time = 1672531200L;
+        double price = 40;
+        long heapAfterWarmUp = 0;
+
+        for (int bar = 0; bar < BARS_PER_YEAR; bar++) {
+            final double close = Math.max(1, price * (1 + random.nextGaussian() * 0.004));
+            trader.loadBarSeries(new KucoinKline(PAIR, min5, new Object[]{
+                    time, price, close, Math.max(price, close) * 1.001, Math.min(price, close) * 0.999, 1000, 40000}));
+            strategy.shouldEnter(trader.barSeries.getEndIndex());
+            strategy.shouldExit(trader.barSeries.getEndIndex());
+            price = close;
+            time += 300;
+
+            if (bar == BARS_PER_YEAR / 12) {
+                heapAfterWarmUp = usedHeap();
+            }
+        }
+
+        assertEquals(MovingStrategy.MAXIMUM_BAR_COUNT, trader.barSeries.getBarCount());
+        assertEquals(BARS_PER_YEAR, trader.signalEngine.getBarCount());
+        assertTrue(usedHeap() - heapAfterWarmUp < 16L * 1024 * 1024,
+                "heap grew by " + (usedHeap() - heapAfterWarmUp) + " bytes");
+    }
+
+    private static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
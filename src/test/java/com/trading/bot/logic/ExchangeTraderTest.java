@@ -0,0 +1,75 @@
+package com.trading.bot.logic;
+
+import com.trading.bot.trace.DecisionTrace;
+import org.junit.jupiter.api.Test;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.dto.Order;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.knowm.xchange.kucoin.dto.KlineIntervalType.min5;
+
+class ExchangeTraderTest {
+    private static final CurrencyPair BTC = new CurrencyPair("BTC", "USDT");
+
+    @Test
+    void holdsPositionsSmallerThanOneUnit() throws IOException {
+        final StubTrader trader = new StubTrader(BTC, new BigDecimal("0.001"));
+        final DecisionTrace trace = new DecisionTrace(8);
+        trader.setDecisionTrace(trace);
+
+        trader.balance = new BigDecimal("0.001");
+        trader.next(kline(0, 37000));
+        trader.balance = new BigDecimal("0.0004");
+        trader.next(kline(1, 36900));
+
+        final List<DecisionTrace.Record> records = trace.snapshot(8);
+        assertEquals(DecisionTrace.Action.BOUGHT, records.get(0).getAction());
+        assertEquals(DecisionTrace.Action.SOLD, records.get(1).getAction());
+    }
+
+    @Test
+    void minimumPositionCanBeSetPerPair() throws IOException {
+        final StubTrader trader = new StubTrader(BTC, new BigDecimal("0.001"));
+        final DecisionTrace trace = new DecisionTrace(8);
+        trader.setDecisionTrace(trace);
+        trader.setMinPosition(new BigDecimal("0.0001"));
+
+        trader.balance = new BigDecimal("0.0004");
+        trader.next(kline(0, 37000));
+
+        assertEquals(DecisionTrace.Action.BOUGHT, trace.snapshot(8).get(0).getAction());
+    }
+
+    static KucoinKline kline(int bar, double close) {
+        return new KucoinKline(BTC, min5, new Object[]{1698796800L + 300L * bar, close, close, close, close, 1, close});
+    }
+
+    /** A trader whose balance is set by the test and whose orders go nowhere. */
+    static class StubTrader extends ExchangeTrader {
+        BigDecimal balance = BigDecimal.ZERO;
+
+        StubTrader(CurrencyPair currencyPair, BigDecimal tradeLimit) {
+            super(null, currencyPair, tradeLimit);
+        }
+
+        @Override
+        public BigDecimal getBalance() {
+            return balance;
+        }
+
+        @Override
+        public void placeStopOrder(Order.OrderType side, BigDecimal stopOrderPrice) {
+            orderId = "order";
+        }
+
+        @Override
+        public void cancelOrder() {
+            orderId = "";
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.trading.bot.metrics;
+
+import com.trading.bot.gateway.ExchangeGateway;
+import com.trading.bot.logic.ExchangeTrader;
+import com.trading.bot.replay.ReplayExchange;
+import com.trading.bot.replay.VirtualClock;
+import com.trading.bot.simulation.FillModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.knowm.xchange.currency.Currency;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.math.BigDecimal;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.knowm.xchange.dto.Order.OrderType.BID;
+import static org.knowm.xchange.kucoin.dto.KlineIntervalType.min5;
+
+class TraderMetricsTest {
+    private static final CurrencyPair PAIR = new CurrencyPair("SOL", "USDT");
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final TraderMetrics metrics = new TraderMetrics(registry);
+
+    @Test
+    void tagsMetersByPairAndSide() {
+        metrics.start().stop(metrics.tick(PAIR));
+        metrics.start().stop(metrics.exchangeCall("getAccountInfo", null, null));
+        metrics.orderAction("place", PAIR, BID).increment();
+        metrics.tickLag(PAIR, 1500);
+
+        assertEquals(1, registry.get("trader.tick").tag("pair", "SOL-USDT").timer().count());
+        assertEquals(1, registry.get("trader.exchange.call")
+                .tags("call", "getAccountInfo", "pair", TraderMetrics.ALL_PAIRS, "side", "none").timer().count());
+        assertEquals(1, registry.get("trader.order.action").tags("action", "place", "pair", "SOL-USDT", "side", "BID").counter().count());
+        assertEquals(1500, registry.get("trader.tick.lag").tag("pair", "SOL-USDT").gauge().value());
+    }
+
+    @Test
+    void recordsOrderCallsOnlyWhenOrdersArePlaced() throws Exception {
+        final VirtualClock clock = new VirtualClock(Instant.ofEpochSecond(1698797100L));
+        final ReplayExchange exchange = new ReplayExchange(clock, Paths.get(getClass().getResource("/klines").toURI()), min5,
+                FillModel.builder().build(), Collections.singletonMap(Currency.USDT, new BigDecimal("100")));
+        final MockEnvironment environment = new MockEnvironment();
+        environment.setProperty("exchange.gateway.trade.requests-per-second", "1000000");
+        environment.setProperty("exchange.gateway.trade.burst", "1000000");
+        final ExchangeTrader trader = new ExchangeTrader(new ExchangeGateway(exchange, metrics, environment), PAIR, BigDecimal.ONE,
+                null, metrics, null);
+
+        trader.placeStopOrder(BID, new BigDecimal("40.1"));
+        assertNull(registry.find("trader.exchange.call").tag("call", "placeStopOrder").timer());
+        assertNull(registry.find("trader.order.action").tag("action", "placeStopOrder").counter());
+        assertEquals(0, exchange.getStatistics().getOrdersPlaced());
+
+        trader.setPlaceOrders(true);
+        trader.placeStopOrder(BID, new BigDecimal("40.1"));
+        trader.cancelOrder();
+
+        assertEquals(1, registry.get("trader.exchange.call").tags("call", "placeStopOrder", "side", "BID").timer().count());
+        assertEquals(1, registry.get("trader.order.action").tags("action", "placeStopOrder", "side", "BID").counter().count());
+        assertEquals(1, registry.get("trader.order.action").tags("action", "cancelOrder", "side", "BID").counter().count());
+        assertEquals(1, registry.get("trader.exchange.call").tags("call", "cancelOrder", "side", "BID").timer().count());
+        assertEquals(1, exchange.getStatistics().getOrdersPlaced());
+        assertEquals(1, exchange.getStatistics().getOrdersCanceled());
+    }
+}
@@ -0,0 +1,164 @@
+package com.trading.bot.order;
+
+import com.trading.bot.metrics.TraderMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.dto.Order;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.knowm.xchange.dto.Order.OrderType.ASK;
+import static org.knowm.xchange.dto.Order.OrderType.BID;
+
+class OrderPipelineTest {
+    private static final CurrencyPair PAIR = new CurrencyPair("SOL", "USDT");
+
+    private final OrderPipeline pipeline = new OrderPipeline(TraderMetrics.noop(), 200, 2, 1);
+
+    @AfterEach
+    void tearDown() {
+        pipeline.shutdown();
+    }
+
+    @Test
+    void submitsWithoutWaitingAndCollapsesSupersededUpdates() throws InterruptedException {
+        final RecordingClient client = new RecordingClient();
+        client.blockPlace = new CountDownLatch(1);
+        final OrderPipeline.Slot slot = pipeline.open(PAIR, client, "", null);
+
+        slot.replace(ASK, BigDecimal.ONE, new BigDecimal("40.0"));
+        client.placeStarted.await(1, TimeUnit.SECONDS);
+        slot.replace(ASK, BigDecimal.ONE, new BigDecimal("40.1"));
+        slot.replace(ASK, BigDecimal.ONE, new BigDecimal("40.2"));
+        slot.replace(ASK, BigDecimal.ONE, new BigDecimal("40.3"));
+        assertTrue(slot.hasOrder());
+        assertNull(slot.poll());
+
+        client.blockPlace.countDown();
+        assertTrue(slot.awaitIdle(1000));
+
+        assertEquals(Arrays.asList("place 40.0", "place 40.3", "cancel 1 ASK"), client.calls);
+        final OrderCompletion place = slot.poll();
+        assertEquals(OrderCompletion.Action.PLACE, place.getAction());
+        assertEquals("1", place.getOrderId());
+        final OrderCompletion replace = slot.poll();
+        assertEquals(OrderCompletion.Action.REPLACE, replace.getAction());
+        assertEquals("2", replace.getOrderId());
+        assertEquals(2, replace.getSuperseded());
+        assertNull(slot.poll());
+    }
+
+    @Test
+    void cancelsTheRestingOrder() throws InterruptedException {
+        final RecordingClient client = new RecordingClient();
+        final OrderPipeline.Slot slot = pipeline.open(PAIR, client, "7", ASK);
+
+        slot.cancel();
+        assertFalse(slot.hasOrder());
+        assertTrue(slot.awaitIdle(1000));
+
+        assertEquals(Collections.singletonList("cancel 7 ASK"), client.calls);
+        final OrderCompletion cancel = slot.poll();
+        assertEquals(OrderCompletion.Action.CANCEL, cancel.getAction());
+        assertEquals("", cancel.getOrderId());
+        assertFalse(cancel.isFailed());
+    }
+
+    @Test
+    void retriesFailedAndTimedOutCancels() throws InterruptedException {
+        final RecordingClient client = new RecordingClient();
+        client.failCancels.set(1);
+        client.hangCancels.set(1);
+        final OrderPipeline.Slot slot = pipeline.open(PAIR, client, "7", BID);
+
+        slot.replace(BID, BigDecimal.ONE, new BigDecimal("41"));
+        assertTrue(slot.awaitIdle(2000));
+
+        assertEquals(Arrays.asList("cancel 7 BID", "place 41"), client.calls);
+        final OrderCompletion replace = slot.poll();
+        assertFalse(replace.isFailed());
+        assertEquals(4, replace.getAttempts());
+        assertEquals("1", replace.getOrderId());
+    }
+
+    @Test
+    void reportsAPlaceThatTimedOutWithoutRetrying() throws InterruptedException {
+        final RecordingClient client = new RecordingClient();
+        client.blockPlace = new CountDownLatch(1);
+        final OrderPipeline.Slot slot = pipeline.open(PAIR, client, "7", BID);
+
+        slot.replace(BID, BigDecimal.ONE, new BigDecimal("41"));
+        assertTrue(slot.awaitIdle(2000));
+
+        final OrderCompletion replace = slot.poll();
+        assertTrue(replace.isFailed());
+        assertEquals(2, replace.getAttempts());
+        assertEquals("", replace.getOrderId());
+        assertFalse(slot.hasOrder());
+    }
+
+    @Test
+    void keepsTheRestingSellStopWhenItsReplacementFails() throws InterruptedException {
+        final RecordingClient client = new RecordingClient();
+        client.blockPlace = new CountDownLatch(1);
+        final OrderPipeline.Slot slot = pipeline.open(PAIR, client, "7", ASK);
+
+        slot.replace(ASK, BigDecimal.ONE, new BigDecimal("41"));
+        assertTrue(slot.awaitIdle(2000));
+
+        final OrderCompletion replace = slot.poll();
+        assertTrue(replace.isFailed());
+        assertEquals("7", replace.getOrderId());
+        assertTrue(slot.hasOrder());
+        assertTrue(client.calls.isEmpty());
+    }
+
+    private static class RecordingClient implements OrderClient {
+        private final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch placeStarted = new CountDownLatch(1);
+        private final AtomicInteger failCancels = new AtomicInteger();
+        private final AtomicInteger hangCancels = new AtomicInteger();
+        private final AtomicInteger placed = new AtomicInteger();
+        private volatile CountDownLatch blockPlace = new CountDownLatch(0);
+
+        @Override
+        public String placeStopOrder(Order.OrderType side, BigDecimal amount, BigDecimal stopPrice) throws IOException {
+            placeStarted.countDown();
+            await(blockPlace);
+            calls.add("place " + stopPrice);
+            return String.valueOf(placed.incrementAndGet());
+        }
+
+        @Override
+        public void cancelOrder(String orderId, Order.OrderType side) throws IOException {
+            if (failCancels.getAndDecrement() > 0) {
+                throw new IOException("rejected");
+            }
+            if (hangCancels.getAndDecrement() > 0) {
+                await(new CountDownLatch(1));
+            }
+            calls.add("cancel " + orderId + " " + side);
+        }
+
+        private static void await(CountDownLatch latch) throws IOException {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                throw new IOException("interrupted", e);
+            }
+        }
+    }
+}
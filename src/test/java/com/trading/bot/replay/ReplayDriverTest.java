@@ -0,0 +1,93 @@
+package com.trading.bot.replay;
+
+import com.trading.bot.gateway.ExchangeGateway;
+import com.trading.bot.journal.TradeJournalService;
+import com.trading.bot.logic.BalanceLedger;
+import com.trading.bot.logic.TraderRegistry;
+import com.trading.bot.metrics.TraderMetrics;
+import com.trading.bot.order.OrderPipeline;
+import com.trading.bot.repository.ExchangeKlineSource;
+import com.trading.bot.repository.KlineRepository;
+import com.trading.bot.scheduler.TraderScheduler;
+import com.trading.bot.simulation.FillModel;
+import com.trading.bot.trace.DecisionTrace;
+import com.trading.bot.trace.DecisionTraceService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.knowm.xchange.currency.Currency;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.knowm.xchange.kucoin.dto.KlineIntervalType.min5;
+
+class ReplayDriverTest {
+    private static final CurrencyPair PAIR = new CurrencyPair("SOL", "USDT");
+    private static final String START = "2023-11-03T00:00:00";
+    private static final String END = "2023-11-07T00:00:00";
+
+    @TempDir
+    Path tempDir;
+    private OrderPipeline orderPipeline;
+    private TradeJournalService journals;
+    private TraderScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+        orderPipeline.shutdown();
+        journals.close();
+    }
+
+    @Test
+    void replaysTheLivePathOnTheVirtualClock() throws Exception {
+        final VirtualClock clock = new VirtualClock(LocalDateTime.parse(START).toInstant(ZoneOffset.UTC));
+        final ReplayExchange exchange = new ReplayExchange(clock, Paths.get(getClass().getResource("/klines").toURI()), min5,
+                FillModel.builder().build(), Collections.singletonMap(Currency.USDT, new BigDecimal("1000")));
+        final MockEnvironment environment = new MockEnvironment();
+        for (String endpoint : new String[]{"market-data", "account", "trade"}) {
+            environment.setProperty("exchange.gateway." + endpoint + ".requests-per-second", "1000000");
+            environment.setProperty("exchange.gateway." + endpoint + ".burst", "1000000");
+        }
+        final TraderMetrics metrics = TraderMetrics.noop();
+        final ExchangeGateway gateway = new ExchangeGateway(exchange, metrics, environment);
+        final KlineRepository repository = new KlineRepository(new ExchangeKlineSource(gateway),
+                tempDir.resolve("store").toString(), min5, clock);
+        final BalanceLedger ledger = new BalanceLedger(gateway, metrics, 30000, 0);
+        orderPipeline = new OrderPipeline(metrics, 10000, 2, 1);
+        journals = new TradeJournalService(tempDir.resolve("journal").toString(), 64, 100);
+        final DecisionTraceService traces = new DecisionTraceService(2048, "");
+        final TraderRegistry registry = new TraderRegistry(gateway, ledger, metrics, journals, orderPipeline, traces,
+                environment, new String[]{"SOL/USDT"}, BigDecimal.ONE, true);
+        scheduler = new TraderScheduler(registry, metrics, repository, clock, 1, "replay");
+        final ReplayDriver driver = new ReplayDriver(clock, exchange, scheduler, orderPipeline, ledger, END, 0);
+
+        scheduler.postConstruct();
+        driver.run();
+
+        final ReplayDriver.Statistics statistics = driver.getStatistics();
+        assertEquals(4 * 288, statistics.getTicks());
+        assertTrue(scheduler.isReady(PAIR));
+        assertTrue(statistics.getSpeedup() > 1000, "speedup " + statistics.getSpeedup());
+        assertTrue(statistics.getExchange().getOrdersPlaced() > 0);
+        assertTrue(statistics.getExchange().getFills() > 0);
+        assertEquals(0, statistics.getExchange().getRejectedFills());
+        assertNotEquals(new BigDecimal("1000"), statistics.getExchange().getBalances().get(Currency.USDT));
+
+        final List<DecisionTrace.Record> decisions = traces.getTrace(PAIR).snapshot(2048);
+        assertEquals(4 * 288, traces.getTrace(PAIR).getCommitted());
+        assertTrue(decisions.stream().anyMatch(record -> record.getAction() == DecisionTrace.Action.PLACE_BID && record.isEnter()));
+        assertTrue(decisions.stream().anyMatch(record -> record.getAction() == DecisionTrace.Action.BOUGHT));
+    }
+}
@@ -0,0 +1,26 @@
+package com.trading.bot.replay;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VirtualClockTest {
+
+    @Test
+    void zonedViewMovesWithTheClock() {
+        final VirtualClock clock = new VirtualClock(Instant.parse("2023-11-03T00:00:00Z"));
+        final Clock kyiv = clock.withZone(ZoneId.of("Europe/Kiev"));
+
+        clock.advance(Duration.ofMinutes(5));
+
+        assertEquals(clock.instant(), kyiv.instant());
+        assertEquals(ZoneId.of("Europe/Kiev"), kyiv.getZone());
+        assertEquals(LocalDateTime.parse("2023-11-03T02:05:00"), LocalDateTime.now(kyiv));
+    }
+}
@@ -0,0 +1,45 @@
+package com.trading.bot.repository;
+
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.kucoin.dto.KlineIntervalType;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serves recorded klines from {@code klines/<BASE>-<COUNTER>-<interval>.csv} on the test classpath.
+ */
+public class FileKlineSource implements KlineSource {
+    public int requests;
+
+    @Override
+    public List<KucoinKline> getKlines(CurrencyPair pair, long startTime, long endTime, KlineIntervalType interval) throws IOException {
+        requests++;
+        final List<KucoinKline> result = new ArrayList<>();
+        for (KucoinKline kline : load(pair, interval)) {
+            if (kline.getTime() >= startTime && kline.getTime() < endTime) {
+                result.add(kline);
+            }
+        }
+        return result;
+    }
+
+    public static List<KucoinKline> load(CurrencyPair pair, KlineIntervalType interval) throws IOException {
+        final String resource = "/klines/" + pair.base + "-" + pair.counter + "-" + interval.name() + ".csv";
+        final List<KucoinKline> klines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                FileKlineSource.class.getResourceAsStream(resource), StandardCharsets.UTF_8))) {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                klines.add(new KucoinKline(pair, interval, line.split(",")));
+            }
+        }
+        return klines;
+    }
+}
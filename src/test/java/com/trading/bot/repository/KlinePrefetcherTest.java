@@ -0,0 +1,125 @@
+package com.trading.bot.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.kucoin.dto.KlineIntervalType;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.knowm.xchange.kucoin.dto.KlineIntervalType.min15;
+import static org.knowm.xchange.kucoin.dto.KlineIntervalType.min5;
+
+class KlinePrefetcherTest {
+    private static final CurrencyPair PAIR = new CurrencyPair("SOL", "USDT");
+    private static final long START = 1698796800L;
+    private static final long DAY = 86400L;
+    private static final int DAYS = 6;
+    private static final long DELAY_MILLIS = 100;
+
+    @TempDir
+    Path storePath;
+    private final DelayedKlineSource source = new DelayedKlineSource();
+    private KlinePrefetcher prefetcher;
+
+    @AfterEach
+    void tearDown() {
+        prefetcher.shutdown();
+    }
+
+    @Test
+    void overlapsFetchingWithSimulation() throws Exception {
+        final KlineRepository sequentialRepository = new KlineRepository(source, storePath.resolve("sequential").toString());
+        final List<Long> sequential = new ArrayList<>();
+        final long sequentialStart = System.nanoTime();
+        for (int day = 0; day < DAYS; day++) {
+            simulate(sequentialRepository.getKlines(PAIR, START + day * DAY, START + (day + 1) * DAY, min5), sequential);
+        }
+        final long sequentialMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sequentialStart);
+
+        final KlineRepository repository = new KlineRepository(source, storePath.resolve("prefetched").toString());
+        prefetcher = new KlinePrefetcher(repository, source, 4, 3);
+        final List<Long> prefetched = new ArrayList<>();
+        final long prefetchedStart = System.nanoTime();
+        try (KlinePrefetcher.Days days = prefetcher.open(PAIR, min5, START, DAYS)) {
+            while (days.hasNext()) {
+                simulate(days.next(), prefetched);
+            }
+        }
+        final long prefetchedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - prefetchedStart);
+
+        assertEquals(sequential, prefetched);
+        assertEquals(DAYS * 288, prefetched.size());
+        // sequential is fetch plus compute for every day, prefetched is about one fetch plus the compute
+        assertTrue(sequentialMillis >= 2 * DAYS * DELAY_MILLIS);
+        assertTrue(prefetchedMillis < (DAYS + 3) * DELAY_MILLIS, prefetchedMillis + " ms");
+    }
+
+    @Test
+    void doesNotPrefetchStoredDays() throws Exception {
+        final KlineRepository repository = new KlineRepository(source, storePath.toString());
+        prefetcher = new KlinePrefetcher(repository, source, 4, 3);
+        repository.getKlines(PAIR, START, START + DAYS * DAY, min5);
+        final int requests = source.requests.get();
+
+        try (KlinePrefetcher.Days days = prefetcher.open(PAIR, min5, START, DAYS)) {
+            while (days.hasNext()) {
+                assertEquals(288, days.next().size());
+            }
+        }
+        assertEquals(requests, source.requests.get());
+    }
+
+    @Test
+    void prefetchesBaseIntervalOfResampledDays() throws Exception {
+        final KlineRepository repository = new KlineRepository(source, storePath.toString(), min5);
+        prefetcher = new KlinePrefetcher(repository, source, 4, 3);
+
+        try (KlinePrefetcher.Days days = prefetcher.open(PAIR, min15, START, DAYS)) {
+            for (long day = 0; days.hasNext(); day++) {
+                final List<KucoinKline> klines = days.next();
+                assertEquals(96, klines.size());
+                assertEquals(START + day * DAY, (long) klines.get(0).getTime());
+            }
+        }
+        assertEquals(DAYS, source.requests.get());
+        assertTrue(repository.isStored(PAIR, START, START + DAYS * DAY, min5));
+    }
+
+    private static void simulate(List<KucoinKline> klines, List<Long> times) throws InterruptedException {
+        for (KucoinKline kline : klines) {
+            times.add(kline.getTime());
+        }
+        Thread.sleep(DELAY_MILLIS);
+    }
+
+    /**
+     * Stand-in for the exchange that answers every request after {@link #DELAY_MILLIS}.
+     */
+    private static class DelayedKlineSource implements KlineSource {
+        private final FileKlineSource klines = new FileKlineSource();
+        private final AtomicInteger requests = new AtomicInteger();
+
+        @Override
+        public List<KucoinKline> getKlines(CurrencyPair pair, long startTime, long endTime, KlineIntervalType interval) throws IOException {
+            requests.incrementAndGet();
+            try {
+                Thread.sleep(DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (klines) {
+                return klines.getKlines(pair, startTime, endTime, interval);
+            }
+        }
+    }
+}
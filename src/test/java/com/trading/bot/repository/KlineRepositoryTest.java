@@ -0,0 +1,135 @@
+package com.trading.bot.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.kucoin.dto.KlineIntervalType;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.knowm.xchange.kucoin.dto.KlineIntervalType.*;
+
+class KlineRepositoryTest {
+    private static final CurrencyPair PAIR = new CurrencyPair("SOL", "USDT");
+    private static final long START = 1698796800L;
+    private static final long DAY = 86400L;
+
+    @TempDir
+    Path storePath;
+    private FileKlineSource source;
+    private KlineRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        source = new FileKlineSource();
+        repository = new KlineRepository(source, storePath.toString());
+    }
+
+    @Test
+    void servesStoredRangeWithoutFetching() throws IOException {
+        final List<KucoinKline> first = repository.getKlines(PAIR, START + DAY, START + 3 * DAY, min5);
+        final List<KucoinKline> second = repository.getKlines(PAIR, START + DAY + 3600, START + 2 * DAY, min5);
+
+        assertEquals(576, first.size());
+        assertEquals(276, second.size());
+        assertEquals(1, source.requests);
+        assertEquals(first.get(12).getTime(), second.get(0).getTime());
+    }
+
+    @Test
+    void fetchesOnlyMissingGaps() throws IOException {
+        repository.getKlines(PAIR, START + 2 * DAY, START + 3 * DAY, min5);
+        repository.getKlines(PAIR, START + DAY, START + 4 * DAY, min5);
+        assertEquals(3, source.requests);
+
+        final List<KucoinKline> klines = repository.getKlines(PAIR, START + DAY, START + 4 * DAY, min5);
+        assertEquals(3, source.requests);
+        assertSameKlines(source.getKlines(PAIR, START + DAY, START + 4 * DAY, min5), klines);
+    }
+
+    @Test
+    void reopensPersistedStore() throws IOException {
+        repository.getKlines(PAIR, START, START + DAY, min5);
+        repository.close();
+
+        final KlineRepository reopened = new KlineRepository(source, storePath.toString());
+        final List<KucoinKline> klines = reopened.getKlines(PAIR, START, START + DAY, min5);
+
+        assertEquals(1, source.requests);
+        assertEquals(288, klines.size());
+        assertSameKlines(source.getKlines(PAIR, START, START + DAY, min5), klines);
+    }
+
+    @Test
+    void readsStoredKlinesWithoutFetching() throws IOException {
+        assertTrue(repository.getStoredKlines(PAIR, START, START + 2 * DAY, min5).isEmpty());
+        repository.getKlines(PAIR, START, START + DAY, min5);
+
+        final List<KucoinKline> klines = repository.getStoredKlines(PAIR, START, START + 2 * DAY, min5);
+        assertEquals(1, source.requests);
+        assertSameKlines(source.getKlines(PAIR, START, START + DAY, min5), klines);
+    }
+
+    @Test
+    void resamplesLongerIntervalsFromBaseStore() throws IOException {
+        final CountingSource counting = new CountingSource();
+        final KlineRepository resampling = new KlineRepository(counting, storePath.resolve("resampled").toString(), min5);
+
+        final List<KucoinKline> klines = resampling.getKlines(PAIR, START + DAY, START + 3 * DAY, min15);
+        assertSameKlines(source.getKlines(PAIR, START + DAY, START + 3 * DAY, min15), klines);
+        assertEquals(Collections.singletonList(min5), counting.intervals);
+
+        resampling.getKlines(PAIR, START + DAY, START + 2 * DAY, min5);
+        resampling.getKlines(PAIR, START + 2 * DAY, START + 3 * DAY, hour1);
+        assertEquals(1, counting.intervals.size());
+        assertTrue(resampling.isStored(PAIR, START + DAY, START + 3 * DAY, hour1));
+
+        resampling.getKlines(PAIR, START, START + 3 * DAY, min15);
+        assertEquals(Arrays.asList(min5, min5), counting.intervals);
+        resampling.close();
+    }
+
+    @Test
+    void storesNoDerivedCandleCutByTheEndOfARange() throws IOException {
+        final KlineRepository resampling = new KlineRepository(new FileKlineSource(), storePath.resolve("resampled").toString(), min5);
+
+        final List<KucoinKline> cut = resampling.getKlines(PAIR, START + DAY + 420, START + DAY + 3900, min15);
+        assertEquals(START + DAY + 3600, cut.get(cut.size() - 1).getTime());
+        assertEquals(START + DAY + 900, cut.get(0).getTime());
+
+        final List<KucoinKline> klines = resampling.getKlines(PAIR, START + DAY, START + 2 * DAY, min15);
+        assertSameKlines(source.getKlines(PAIR, START + DAY, START + 2 * DAY, min15), klines);
+        resampling.close();
+    }
+
+    static void assertSameKlines(List<KucoinKline> expected, List<KucoinKline> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getTime(), actual.get(i).getTime());
+            assertEquals(0, expected.get(i).getOpen().compareTo(actual.get(i).getOpen()));
+            assertEquals(0, expected.get(i).getHigh().compareTo(actual.get(i).getHigh()));
+            assertEquals(0, expected.get(i).getLow().compareTo(actual.get(i).getLow()));
+            assertEquals(0, expected.get(i).getClose().compareTo(actual.get(i).getClose()));
+            assertEquals(0, expected.get(i).getVolume().compareTo(actual.get(i).getVolume()));
+        }
+    }
+
+    private static class CountingSource extends FileKlineSource {
+        private final List<KlineIntervalType> intervals = new ArrayList<>();
+
+        @Override
+        public List<KucoinKline> getKlines(CurrencyPair pair, long startTime, long endTime, KlineIntervalType interval) throws IOException {
+            intervals.add(interval);
+            return super.getKlines(pair, startTime, endTime, interval);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.trading.bot.repository;
+
+import org.junit.jupiter.api.Test;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.knowm.xchange.kucoin.dto.KlineIntervalType.*;
+
+class KlineResamplerTest {
+    private static final CurrencyPair PAIR = new CurrencyPair("SOL", "USDT");
+
+    @Test
+    void resamplesRecordedCandles() throws IOException {
+        final List<KucoinKline> klines = KlineResampler.resample(FileKlineSource.load(PAIR, min5), min15);
+
+        KlineRepositoryTest.assertSameKlines(FileKlineSource.load(PAIR, min15), klines);
+    }
+
+    @Test
+    void emitsLiveCandleWithItsLastBaseCandle() throws IOException {
+        final List<KucoinKline> base = FileKlineSource.load(PAIR, min5);
+        final List<KucoinKline> emitted = new ArrayList<>();
+        final KlineResampler resampler = new KlineResampler(min5, min15, emitted::add);
+
+        resampler.accept(base.get(0));
+        resampler.accept(base.get(1));
+        assertTrue(emitted.isEmpty());
+        resampler.accept(base.get(2));
+        assertEquals(1, emitted.size());
+
+        // a gap closes the candle being built when the next interval starts
+        resampler.accept(base.get(3));
+        resampler.accept(base.get(6));
+        assertEquals(2, emitted.size());
+        assertEquals(base.get(3).getTime(), emitted.get(1).getTime());
+        assertEquals(0, base.get(3).getClose().compareTo(emitted.get(1).getClose()));
+
+        for (int i = 7; i < base.size(); i++) {
+            resampler.accept(base.get(i));
+        }
+        final List<KucoinKline> expected = KlineResampler.resample(base.subList(6, base.size()), min15);
+        KlineRepositoryTest.assertSameKlines(expected, emitted.subList(2, emitted.size()));
+    }
+
+    @Test
+    void dropsTheFirstCandleWhenStartedInsideIt() throws IOException {
+        final List<KucoinKline> base = FileKlineSource.load(PAIR, min5);
+        final List<KucoinKline> emitted = new ArrayList<>();
+        final KlineResampler resampler = new KlineResampler(min5, min15, emitted::add);
+
+        for (int i = 1; i < 6; i++) {
+            resampler.accept(base.get(i));
+        }
+
+        assertEquals(1, emitted.size());
+        assertEquals(base.get(3).getTime(), emitted.get(0).getTime());
+    }
+
+    @Test
+    void derivesOnlyAlignedMultiples() {
+        assertTrue(KlineResampler.isDerivable(min1, min5));
+        assertTrue(KlineResampler.isDerivable(min1, hour8));
+        assertTrue(KlineResampler.isDerivable(min5, day1));
+        assertFalse(KlineResampler.isDerivable(min5, min3));
+        assertFalse(KlineResampler.isDerivable(min5, min5));
+        assertFalse(KlineResampler.isDerivable(min1, week1));
+        assertThrows(IllegalArgumentException.class, () -> new KlineResampler(min15, min5, kline -> { }));
+    }
+}
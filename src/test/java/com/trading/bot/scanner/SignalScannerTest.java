@@ -0,0 +1,119 @@
+package com.trading.bot.scanner;
+
+import com.trading.bot.configuration.MovingStrategy;
+import com.trading.bot.feed.InProcessKlineFeed;
+import com.trading.bot.indicator.MacdSignalEngine;
+import com.trading.bot.replay.VirtualClock;
+import com.trading.bot.repository.FileKlineSource;
+import com.trading.bot.repository.KlineSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.knowm.xchange.kucoin.dto.KlineIntervalType.min5;
+
+class SignalScannerTest {
+    private static final CurrencyPair SOL = new CurrencyPair("SOL", "USDT");
+    private static final long START = 1698796800L;
+    private static final long DAY = 86400L;
+    private static final int PAIRS = 600;
+
+    private SignalScanner scanner;
+
+    @AfterEach
+    void tearDown() {
+        scanner.shutdown();
+    }
+
+    @Test
+    void scansEveryPairFromTheFeed() throws Exception {
+        final List<KucoinKline> recorded = FileKlineSource.load(SOL, min5);
+        final AtomicInteger requests = new AtomicInteger();
+        // every pair trades like the recording
+        final KlineSource source = (pair, startTime, endTime, interval) -> {
+            requests.incrementAndGet();
+            final List<KucoinKline> klines = new ArrayList<>();
+            for (KucoinKline kline : recorded) {
+                if (kline.getTime() >= startTime && kline.getTime() < endTime) {
+                    klines.add(new KucoinKline(pair, interval, new Object[]{kline.getTime(), kline.getOpen(), kline.getClose(),
+                            kline.getHigh(), kline.getLow(), kline.getVolume(), kline.getAmount()}));
+                }
+            }
+            return klines;
+        };
+        final CurrencyPair[] pairs = new CurrencyPair[PAIRS];
+        final String[] names = new String[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            pairs[i] = new CurrencyPair("C" + i, "USDT");
+            names[i] = pairs[i].toString();
+        }
+        final long firstEnd = START + 3 * DAY;
+        final InProcessKlineFeed feed = new InProcessKlineFeed();
+        scanner = new SignalScanner(source, feed, new VirtualClock(Instant.ofEpochSecond(firstEnd)), names, 4);
+        scanner.start();
+        awaitWarmUp(firstEnd);
+
+        final MacdSignalEngine expected = new MacdSignalEngine();
+        int entries = 0;
+        int exits = 0;
+        for (KucoinKline kline : recorded) {
+            if (kline.getTime() < firstEnd - MovingStrategy.MAXIMUM_BAR_COUNT * min5.getSeconds()) {
+                continue;
+            }
+            expected.next(kline.getClose().doubleValue());
+            if (kline.getTime() >= firstEnd && kline.getTime() < START + 6 * DAY - 300) {
+                entries += expected.shouldEnter() ? 1 : 0;
+                exits += expected.shouldExit() ? 1 : 0;
+            }
+        }
+
+        int scannedEntries = 0;
+        int scannedExits = 0;
+        long slowestScanNanos = 0;
+        for (KucoinKline kline : recorded) {
+            if (kline.getTime() < firstEnd - min5.getSeconds()) {
+                continue;
+            }
+            // the one trade of each pair's candle closes its previous candle, the candle the feed starts in is dropped
+            for (CurrencyPair pair : pairs) {
+                feed.publish(pair, kline.getTime() * 1000, kline.getClose(), BigDecimal.ONE);
+            }
+            if (kline.getTime() <= firstEnd) {
+                continue;
+            }
+            final long scanStart = System.nanoTime();
+            final SignalScanner.Scan scan = scanner.scan(kline.getTime());
+            slowestScanNanos = Math.max(slowestScanNanos, System.nanoTime() - scanStart);
+            assertEquals(0, scan.getFailed());
+            assertEquals(0, scan.getBehind());
+            assertTrue(scan.getEntries().size() == 0 || scan.getEntries().size() == PAIRS);
+            assertTrue(scan.getExits().size() == 0 || scan.getExits().size() == PAIRS);
+            scannedEntries += scan.getEntries().size() / PAIRS;
+            scannedExits += scan.getExits().size() / PAIRS;
+        }
+
+        assertEquals(entries, scannedEntries);
+        assertEquals(exits, scannedExits);
+        assertTrue(entries > 0 && exits > 0);
+        assertEquals(PAIRS, requests.get());
+        assertTrue(slowestScanNanos < TimeUnit.MILLISECONDS.toNanos(50), "slowest scan " + slowestScanNanos + " ns");
+    }
+
+    private void awaitWarmUp(long endTime) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (scanner.scan(endTime).getBehind() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, scanner.getLastScan().getBehind());
+    }
+}
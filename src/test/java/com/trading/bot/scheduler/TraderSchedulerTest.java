@@ -0,0 +1,196 @@
+package com.trading.bot.scheduler;
+
+import com.trading.bot.configuration.MovingStrategy;
+import com.trading.bot.logic.Trader;
+import com.trading.bot.logic.TraderRegistry;
+import com.trading.bot.metrics.TraderMetrics;
+import com.trading.bot.replay.VirtualClock;
+import com.trading.bot.repository.FileKlineSource;
+import com.trading.bot.repository.KlineRepository;
+import com.trading.bot.repository.KlineSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.dto.Order;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.knowm.xchange.kucoin.dto.KlineIntervalType.min5;
+
+class TraderSchedulerTest {
+    private static final CurrencyPair PAIR = new CurrencyPair("SOL", "USDT");
+    private static final long NOW = 1699142400L;
+
+    @TempDir
+    Path tempDir;
+    private TraderScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void startsWithoutWaitingForTheWarmUpAndTradesOnlyWhenReady() throws Exception {
+        final StubTrader trader = new StubTrader();
+        final CountDownLatch network = new CountDownLatch(1);
+        final FileKlineSource recorded = new FileKlineSource();
+        scheduler = scheduler((pair, startTime, endTime, interval) -> {
+            try {
+                network.await();
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+            return recorded.getKlines(pair, startTime, endTime, interval);
+        }, trader);
+
+        final long start = System.nanoTime();
+        scheduler.postConstruct();
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        assertFalse(scheduler.isReady(PAIR));
+
+        scheduler.sell(NOW);
+        scheduler.onKline(kline(0));
+        Thread.sleep(100);
+        assertTrue(trader.ticks.isEmpty());
+        assertFalse(scheduler.isReady(PAIR));
+
+        network.countDown();
+        awaitReady();
+        assertTrue(trader.getBarCount() >= MovingStrategy.MAXIMUM_BAR_COUNT);
+    }
+
+    @Test
+    void candlesClosingDuringASlowTickAreCoalesced() throws Exception {
+        final StubTrader trader = new StubTrader();
+        scheduler = scheduler(new FileKlineSource(), trader);
+        scheduler.postConstruct();
+        awaitReady();
+        final int warmBars = trader.bars.size();
+
+        trader.blocked = new CountDownLatch(1);
+        scheduler.onKline(kline(0));
+        assertTrue(trader.ticking.await(5, TimeUnit.SECONDS));
+        for (int bar = 1; bar <= 50; bar++) {
+            scheduler.onKline(kline(bar));
+        }
+        trader.blocked.countDown();
+        await(() -> trader.ticks.size() == 2);
+        Thread.sleep(50);
+
+        assertEquals(2, trader.ticks.size());
+        assertEquals(NOW + 50 * 300, trader.ticks.get(1).getTime());
+        assertEquals(warmBars + 51, trader.bars.size());
+    }
+
+    private void awaitReady() throws InterruptedException {
+        await(() -> scheduler.isReady(PAIR));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    private TraderScheduler scheduler(KlineSource source, Trader trader) throws IOException {
+        final VirtualClock clock = new VirtualClock(Instant.ofEpochSecond(NOW));
+        final KlineRepository repository = new KlineRepository(source, tempDir.resolve("store").toString(), min5, clock);
+        return new TraderScheduler(new StubRegistry(trader), TraderMetrics.noop(), repository, clock, 2, "stream");
+    }
+
+    static KucoinKline kline(int bar) {
+        final double close = 40 + bar % 7;
+        return new KucoinKline(PAIR, min5, new Object[]{NOW + 300L * bar, close, close, close, close, 1, close});
+    }
+
+    /** A registry of the given traders only. */
+    static class StubRegistry extends TraderRegistry {
+        private final Trader trader;
+
+        StubRegistry(Trader trader) throws IOException {
+            super(null, null, null, null, null, null, new MockEnvironment(), new String[0], BigDecimal.ONE, false);
+            this.trader = trader;
+        }
+
+        @Override
+        public Collection<Trader> getTraders() {
+            return Collections.singletonList(trader);
+        }
+
+        @Override
+        public Trader getTrader(CurrencyPair currencyPair) {
+            return trader.getCurrencyPair().equals(currencyPair) ? trader : null;
+        }
+    }
+
+    /** Records its bars and ticks, a tick waits for {@link #blocked} when it is set. */
+    static class StubTrader implements Trader {
+        final List<KucoinKline> bars = Collections.synchronizedList(new ArrayList<>());
+        final List<KucoinKline> ticks = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch ticking = new CountDownLatch(1);
+        volatile CountDownLatch blocked;
+
+        @Override
+        public CurrencyPair getCurrencyPair() {
+            return PAIR;
+        }
+
+        @Override
+        public void loadBarSeries(KucoinKline kline) {
+            if (bars.isEmpty() || kline.getTime() > bars.get(bars.size() - 1).getTime()) {
+                bars.add(kline);
+            }
+        }
+
+        @Override
+        public int getBarCount() {
+            return bars.size();
+        }
+
+        @Override
+        public void next(KucoinKline lastKline) throws IOException {
+            ticks.add(lastKline);
+            ticking.countDown();
+            if (blocked != null) {
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+        }
+
+        @Override
+        public BigDecimal getBalance() {
+            return BigDecimal.ZERO;
+        }
+
+        @Override
+        public void placeStopOrder(Order.OrderType side, BigDecimal stopOrderPrice) {
+        }
+
+        @Override
+        public void cancelOrder() {
+        }
+    }
+}
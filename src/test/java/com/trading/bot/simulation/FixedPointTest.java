@@ -0,0 +1,34 @@
+package com.trading.bot.simulation;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FixedPointTest {
+
+    @Test
+    void convertsDoublesOfAtMostTheScale() {
+        assertEquals(39977L, FixedPoint.toUnits(39.977, 3));
+        assertEquals(3997700000L, FixedPoint.toUnits(39.977, 8));
+        assertEquals(-1L, FixedPoint.toUnits(-0.1, 1));
+    }
+
+    @Test
+    void rejectsDoublesWithMorePlaces() {
+        assertThrows(ArithmeticException.class, () -> FixedPoint.toUnits(39.9775, 3));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.toUnits(0.1 + 0.2, 8));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.toUnits(new BigDecimal("1.005"), 2));
+    }
+
+    @Test
+    void convertsBackLikeBigDecimal() {
+        for (long units : new long[]{0, 1, 39977, 123456789012L, -98765, 1L << 60}) {
+            for (int scale : new int[]{0, 3, 8, 11}) {
+                assertEquals(BigDecimal.valueOf(units, scale).doubleValue(), FixedPoint.toDouble(units, scale));
+            }
+        }
+    }
+}
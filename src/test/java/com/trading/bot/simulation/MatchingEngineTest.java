@@ -0,0 +1,104 @@
+package com.trading.bot.simulation;
+
+import com.trading.bot.repository.FileKlineSource;
+import org.junit.jupiter.api.Test;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.kucoin.dto.response.KucoinKline;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.knowm.xchange.dto.Order.OrderType.ASK;
+import static org.knowm.xchange.dto.Order.OrderType.BID;
+import static org.knowm.xchange.kucoin.dto.KlineIntervalType.min5;
+
+class MatchingEngineTest {
+    private static final CurrencyPair SOL = new CurrencyPair("SOL", "USDT");
+    private static final CurrencyPair BTC = new CurrencyPair("BTC", "USDT");
+
+    private final List<Fill> fills = new ArrayList<>();
+
+    @Test
+    void fillsTriggeredOrdersOnly() {
+        final MatchingEngine engine = new MatchingEngine(FillModel.builder().build(), fills::add);
+        final long buyStop = engine.placeStop(SOL, BID, BigDecimal.ONE, price("41"));
+        engine.placeStop(SOL, BID, BigDecimal.ONE, price("43"));
+        final long sellStop = engine.placeStop(SOL, ASK, BigDecimal.ONE, price("39"));
+        final long buyLimit = engine.placeLimit(SOL, BID, BigDecimal.ONE, price("39.5"));
+        engine.placeLimit(SOL, ASK, BigDecimal.ONE, price("45"));
+        engine.placeStop(BTC, BID, BigDecimal.ONE, price("1"));
+
+        engine.onBar(kline(SOL, "40", "41", "39.5", "40.5"));
+
+        assertEquals(2, fills.size());
+        assertEquals(buyStop, fills.get(0).getOrderId());
+        assertEquals(0, price("41").compareTo(fills.get(0).getPrice()));
+        assertEquals(buyLimit, fills.get(1).getOrderId());
+        assertEquals(0, price("39.5").compareTo(fills.get(1).getPrice()));
+        assertEquals(4, engine.getOpenOrderCount());
+
+        assertTrue(engine.cancel(sellStop));
+        assertFalse(engine.cancel(sellStop));
+        engine.onBar(kline(SOL, "40", "40", "38", "38"));
+        assertEquals(2, fills.size());
+    }
+
+    @Test
+    void pricesFillsByModel() {
+        assertEquals(price("42"), fill(FillModel.builder().build(), "42", "43", "41", "42.5"));
+        assertEquals(price("40.5"), fill(FillModel.close(), "40", "43", "39", "40.5"));
+        assertEquals(price("43"), fill(FillModel.builder().fillPrice(FillModel.FillPrice.WORST).build(), "40", "43", "39", "40.5"));
+        assertEquals(0, price("41.041").compareTo(
+                fill(FillModel.builder().slippageBasisPoints(BigDecimal.TEN).build(), "40", "43", "39", "40.5")));
+    }
+
+    @Test
+    void runsGridOfRestingOrders() throws IOException {
+        final MatchingEngine engine = new MatchingEngine(FillModel.builder().build(), fills::add);
+        for (int level = 0; level < 1000; level++) {
+            final BigDecimal price = price("30").add(BigDecimal.valueOf(level, 2));
+            engine.placeLimit(SOL, BID, BigDecimal.ONE, price);
+            engine.placeLimit(SOL, ASK, BigDecimal.ONE, price);
+        }
+
+        BigDecimal low = null;
+        BigDecimal high = null;
+        for (KucoinKline kline : FileKlineSource.load(SOL, min5)) {
+            engine.onBar(kline);
+            low = low == null ? kline.getLow() : low.min(kline.getLow());
+            high = high == null ? kline.getHigh() : high.max(kline.getHigh());
+        }
+
+        for (Fill fill : fills) {
+            assertTrue(fill.getSide() == BID
+                    ? fill.getOrderPrice().compareTo(low) >= 0
+                    : fill.getOrderPrice().compareTo(high) <= 0);
+            assertTrue(fill.getSide() == BID
+                    ? fill.getPrice().compareTo(fill.getOrderPrice()) <= 0
+                    : fill.getPrice().compareTo(fill.getOrderPrice()) >= 0);
+        }
+        assertEquals(2000, fills.size() + engine.getOpenOrderCount());
+    }
+
+    private BigDecimal fill(FillModel fillModel, String open, String high, String low, String close) {
+        final List<Fill> filled = new ArrayList<>();
+        final MatchingEngine engine = new MatchingEngine(fillModel, filled::add);
+        engine.placeStop(SOL, BID, BigDecimal.ONE, price("41"));
+        engine.onBar(kline(SOL, open, high, low, close));
+        assertEquals(1, filled.size());
+        return filled.get(0).getPrice();
+    }
+
+    private static KucoinKline kline(CurrencyPair pair, String open, String high, String low, String close) {
+        return new KucoinKline(pair, min5, new Object[]{1698796800L, open, close, high, low, "1", "40"});
+    }
+
+    private static BigDecimal price(String price) {
+        return new BigDecimal(price);
+    }
+}
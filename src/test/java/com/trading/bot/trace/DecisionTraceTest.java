@@ -0,0 +1,83 @@
+package com.trading.bot.trace;
+
+import com.trading.bot.indicator.MacdSignalEngine;
+import org.junit.jupiter.api.Test;
+import org.knowm.xchange.currency.CurrencyPair;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DecisionTraceTest {
+    private static final CurrencyPair PAIR = new CurrencyPair("SOL", "USDT");
+
+    @Test
+    void keepsTheLastRecords() {
+        final DecisionTrace trace = new DecisionTrace(8);
+        final MacdSignalEngine engine = new MacdSignalEngine();
+        for (int bar = 0; bar < 20; bar++) {
+            tick(trace, engine, bar);
+        }
+
+        final List<DecisionTrace.Record> records = trace.snapshot(100);
+        assertEquals(20, trace.getCommitted());
+        assertEquals(8, records.size());
+        assertEquals(12, records.get(0).getSequence());
+        assertEquals(19 * 300L, records.get(7).getBarTime());
+        assertEquals(DecisionTrace.Action.PLACE_BID, records.get(7).getAction());
+        assertEquals(100 + 19, records.get(7).getStopPrice());
+        assertEquals(3, trace.snapshot(3).size());
+        assertTrue(trace.snapshot(-1).isEmpty());
+        assertEquals(engine.getMacd(), records.get(7).getMacd());
+        assertEquals(engine.getMacd() < engine.getSignal(), records.get(7).isMacdUnderSignal());
+        assertEquals(engine.shouldEnter(), records.get(7).isEnter());
+    }
+
+    @Test
+    void recordsWithoutAllocating() {
+        final DecisionTrace trace = new DecisionTrace(1024);
+        final MacdSignalEngine engine = new MacdSignalEngine();
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int bar = 0; bar < 100_000; bar++) {
+            tick(trace, engine, bar);
+        }
+
+        final long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        for (int bar = 0; bar < 100_000; bar++) {
+            tick(trace, engine, bar);
+        }
+        final long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+
+        assertTrue(allocated < 1024, "allocated " + allocated + " bytes");
+    }
+
+    @Test
+    void dumpIsReadBack() throws IOException {
+        final DecisionTraceService service = new DecisionTraceService(16, "");
+        final MacdSignalEngine engine = new MacdSignalEngine();
+        for (int bar = 0; bar < 20; bar++) {
+            tick(service.getTrace(PAIR), engine, bar);
+        }
+        final ByteArrayOutputStream dump = new ByteArrayOutputStream();
+        service.dump(dump);
+
+        final Map<CurrencyPair, List<DecisionTrace.Record>> read = DecisionTraceService.read(new ByteArrayInputStream(dump.toByteArray()));
+        assertEquals(service.getTrace(PAIR).snapshot(16), read.get(PAIR));
+    }
+
+    private static void tick(DecisionTrace trace, MacdSignalEngine engine, int bar) {
+        engine.next(100 + Math.sin(bar / 10.0));
+        trace.begin(bar * 300L, 100 + bar, engine, bar % 2 == 0);
+        trace.balanceCall(1000);
+        trace.action(DecisionTrace.Action.PLACE_BID);
+        trace.stopPrice(100 + bar);
+        trace.orderCall(2000);
+        trace.commit(5000);
+    }
+}